@@ -0,0 +1,152 @@
+package datastructure;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A last-in-first-out stack backed by a resizable array. Unlike
+ * {@link Stack}, which extends {@link Vector}, no operation is synchronized,
+ * so an instance must not be shared between threads without external
+ * synchronization; see {@link ConcurrentStack} for that case.
+ * <p>
+ * Iteration runs from the top of the stack to the bottom, in the order
+ * successive pops would return the elements, while {@link #toArray()} lists
+ * them bottom first like {@link Stack}.
+ *
+ * @param <E>
+ *            the type/class of elements held in this stack.
+ */
+public class ArrayStack<E> implements Iterable<E>
+{
+	private static final int DEFAULT_CAPACITY = 10;
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private Object[] elementData;
+
+	private int size;
+
+	public ArrayStack(int initialCapacity)
+	{
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+		this.elementData = new Object[initialCapacity];
+	}
+
+	public ArrayStack()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	private void grow(int minCapacity)
+	{
+		// overflow-conscious code
+		int oldCapacity = elementData.length;
+		int newCapacity = oldCapacity + (oldCapacity >> 1);
+		if (newCapacity - minCapacity < 0)
+			newCapacity = minCapacity;
+		if (newCapacity - MAX_ARRAY_SIZE > 0)
+		{
+			if (minCapacity < 0) // overflow
+				throw new OutOfMemoryError();
+			newCapacity = (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+		}
+		elementData = java.util.Arrays.copyOf(elementData, newCapacity);
+	}
+
+	public E push(E item)
+	{
+		if (size == elementData.length)
+			grow(size + 1);
+		elementData[size++] = item;
+		return item;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E pop()
+	{
+		if (size == 0)
+			throw new RuntimeException("Stack is empty");
+		E obj = (E) elementData[--size];
+		elementData[size] = null; // clear to let GC do its work
+		return obj;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E peek()
+	{
+		if (size == 0)
+			throw new RuntimeException("Stack is empty");
+		return (E) elementData[size - 1];
+	}
+
+	public boolean empty()
+	{
+		return size == 0;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the 1-based distance of o from the top of the stack, or -1 if
+	 * it is not on the stack.
+	 */
+	public int search(Object o)
+	{
+		for (int i = size - 1; i >= 0; i--)
+		{
+			if (o == null ? elementData[i] == null : o.equals(elementData[i]))
+				return size - i;
+		}
+		return -1;
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+			elementData[i] = null;
+		size = 0;
+	}
+
+	/**
+	 * Returns the elements from the bottom of the stack to the top.
+	 */
+	public Object[] toArray()
+	{
+		return java.util.Arrays.copyOf(elementData, size);
+	}
+
+	public Iterator<E> iterator()
+	{
+		return new Iterator<E>()
+		{
+			private int cursor = size;
+
+			public boolean hasNext()
+			{
+				return cursor > 0;
+			}
+
+			@SuppressWarnings("unchecked")
+			public E next()
+			{
+				if (cursor <= 0)
+					throw new NoSuchElementException();
+				return (E) elementData[--cursor];
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
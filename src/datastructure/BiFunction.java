@@ -0,0 +1,10 @@
+package datastructure;
+
+/**
+ * A function of two arguments, for the compute and merge methods of
+ * {@link HashMap}.
+ */
+public interface BiFunction<T, U, R>
+{
+	R apply(T t, U u);
+}
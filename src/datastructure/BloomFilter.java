@@ -0,0 +1,203 @@
+package datastructure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A Bloom filter over long IDs: a set that answers membership queries with
+ * no false negatives and a configurable rate of false positives, in a
+ * fraction of the memory of a {@link HashSet}. An element sets k bits of a
+ * bit array, chosen by double hashing, and is reported present if all k bits
+ * are set. Sized for n elements at a false positive rate p, the filter takes
+ * -n ln p / (ln 2)^2 bits, about 9.6 bits per element at 1%, and k = -log2 p
+ * hash functions.
+ * <p>
+ * Elements cannot be removed, see {@link CuckooFilter} for a filter that
+ * supports removal. Filters of the same size can be combined with
+ * {@link #union(BloomFilter)}, and are written to and read from byte streams.
+ * Other keys can be added through a 64-bit hash of their own.
+ */
+public class BloomFilter
+{
+	private static final int MAGIC = 0x424C4D31; // "BLM1"
+
+	/**
+	 * Stores the bits of this filter.
+	 */
+	private final long[] bits;
+
+	/**
+	 * Number of bits of the filter.
+	 */
+	private final long numBits;
+
+	private final int numHashes;
+
+	/**
+	 * Creates a filter for expectedInsertions elements with the given false
+	 * positive rate.
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate)
+	{
+		if (expectedInsertions < 0)
+			throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException("Illegal false positive rate: " + falsePositiveRate);
+		long n = Math.max(1, expectedInsertions);
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+		// whole units, within the limit of a long[]
+		m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE << 6));
+		this.numBits = (m + 63) & ~63L;
+		this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * ln2));
+		this.bits = new long[unitIndex(numBits - 1) + 1];
+	}
+
+	private BloomFilter(long[] bits, int numHashes)
+	{
+		this.bits = bits;
+		this.numBits = (long) bits.length << 6;
+		this.numHashes = numHashes;
+	}
+
+	/**
+	 * Given a bit index return unit index containing it.
+	 */
+	private static int unitIndex(long bitIndex)
+	{
+		return (int) (bitIndex >>> 6);
+	}
+
+	/**
+	 * Return a unit that masks the specified bit in its unit.
+	 */
+	private static long bit(long bitIndex)
+	{
+		return 1L << (bitIndex & ((1 << 6) - 1));
+	}
+
+	// Finalization mix of MurmurHash3
+	static long mix(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Adds id and returns true if that changed the filter, false if id was
+	 * already reported present.
+	 */
+	public boolean add(long id)
+	{
+		long h1 = mix(id);
+		long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+		boolean changed = false;
+		long combined = h1;
+		for (int i = 0; i < numHashes; i++, combined += h2)
+		{
+			long bitIndex = (combined & Long.MAX_VALUE) % numBits;
+			int unitIndex = unitIndex(bitIndex);
+			long unit = bits[unitIndex];
+			long mask = bit(bitIndex);
+			if ((unit & mask) == 0)
+			{
+				bits[unitIndex] = unit | mask;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns false if id was never added, true if it probably was.
+	 */
+	public boolean mightContain(long id)
+	{
+		long h1 = mix(id);
+		long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+		long combined = h1;
+		for (int i = 0; i < numHashes; i++, combined += h2)
+		{
+			long bitIndex = (combined & Long.MAX_VALUE) % numBits;
+			if ((bits[unitIndex(bitIndex)] & bit(bitIndex)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	public long bitSize()
+	{
+		return numBits;
+	}
+
+	public int hashCount()
+	{
+		return numHashes;
+	}
+
+	/**
+	 * Returns the probability that mightContain reports an element that was
+	 * never added, estimated from the fraction of bits set.
+	 */
+	public double expectedFalsePositiveRate()
+	{
+		long set = 0;
+		for (long unit : bits)
+			set += Long.bitCount(unit);
+		return Math.pow((double) set / numBits, numHashes);
+	}
+
+	/**
+	 * Adds all elements of other, which must have been created with the same
+	 * parameters.
+	 */
+	public void union(BloomFilter other)
+	{
+		if (other.numBits != numBits || other.numHashes != numHashes)
+			throw new IllegalArgumentException("Incompatible filters");
+		for (int i = 0; i < bits.length; i++)
+			bits[i] |= other.bits[i];
+	}
+
+	public void clear()
+	{
+		java.util.Arrays.fill(bits, 0L);
+	}
+
+	/**
+	 * Writes this filter to out, see {@link #readFrom(InputStream)}.
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(numHashes);
+		data.writeInt(bits.length);
+		for (long unit : bits)
+			data.writeLong(unit);
+		data.flush();
+	}
+
+	/**
+	 * Reads a filter written by {@link #writeTo(OutputStream)}.
+	 */
+	public static BloomFilter readFrom(InputStream in) throws IOException
+	{
+		DataInputStream data = new DataInputStream(in);
+		int numHashes;
+		int length;
+		if (data.readInt() != MAGIC || (numHashes = data.readInt()) < 1 || (length = data.readInt()) < 1)
+			throw new IOException("Not a Bloom filter");
+		long[] bits = new long[length];
+		for (int i = 0; i < length; i++)
+			bits[i] = data.readLong();
+		return new BloomFilter(bits, numHashes);
+	}
+}
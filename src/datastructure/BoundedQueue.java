@@ -0,0 +1,173 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base of the array-backed bounded queues {@link SpscArrayQueue},
+ * {@link MpscArrayQueue} and {@link MpmcArrayQueue}, for handing elements
+ * between producer and consumer threads without a lock or a node per
+ * element. The queues differ in how many threads may offer and poll
+ * concurrently and share the rest:
+ * <ul>
+ * <li>the capacity is rounded up to a power of two and the buffer is
+ * indexed by a running sequence number masked with capacity - 1;</li>
+ * <li>the head (next to poll) and tail (next to offer) sequences sit in
+ * padded objects of their own, so that producers and consumers do not
+ * invalidate each other's cache lines (false sharing);</li>
+ * <li>{@link #offer(Object)} and {@link #poll()} never block, while
+ * {@link #put(Object)} and {@link #take()} wait with the
+ * {@link WaitStrategy} of the queue;</li>
+ * <li>{@link #drain(Consumer, int)} and
+ * {@link #offerBatch(Object[], int, int)} move many elements per call; the
+ * single consumer and single producer sides publish a whole batch with one
+ * store or compare-and-set.</li>
+ * </ul>
+ * Null elements are not permitted, poll and peek return null when the queue
+ * is empty.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public abstract class BoundedQueue<E>
+{
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * A sequence padded on the right with a cache line, so that two
+	 * sequences allocated one after the other never share a line.
+	 */
+	@SuppressWarnings("serial")
+	static final class Sequence extends AtomicLong
+	{
+		// never read, keeps the next object away from the value
+		long p1, p2, p3, p4, p5, p6, p7;
+
+		Sequence(long initialValue)
+		{
+			super(initialValue);
+		}
+	}
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	protected final WaitStrategy waitStrategy;
+
+	/**
+	 * Sequence of the next element to poll, written by consumers.
+	 */
+	protected final Sequence head = new Sequence(0);
+
+	/**
+	 * Sequence of the next element to offer, written by producers.
+	 */
+	protected final Sequence tail = new Sequence(0);
+
+	protected BoundedQueue(int capacity, WaitStrategy waitStrategy)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		if (waitStrategy == null)
+			throw new NullPointerException();
+		int c = 2;
+		while (c < capacity && c < MAXIMUM_CAPACITY)
+			c <<= 1;
+		this.capacity = c;
+		this.mask = c - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Inserts e if there is room, and returns whether it did.
+	 */
+	public abstract boolean offer(E e);
+
+	/**
+	 * Removes and returns the head of the queue, or returns null if the queue
+	 * is empty.
+	 */
+	public abstract E poll();
+
+	/**
+	 * Returns the head of the queue, or null if the queue is empty.
+	 */
+	public abstract E peek();
+
+	/**
+	 * Inserts e, waiting for room if the queue is full.
+	 */
+	public void put(E e)
+	{
+		for (int counter = 0; !offer(e);)
+			counter = waitStrategy.idle(counter);
+	}
+
+	/**
+	 * Removes and returns the head of the queue, waiting for an element if
+	 * the queue is empty.
+	 */
+	public E take()
+	{
+		E e;
+		for (int counter = 0; (e = poll()) == null;)
+			counter = waitStrategy.idle(counter);
+		return e;
+	}
+
+	/**
+	 * Removes up to max elements, in queue order, passing each to c, and
+	 * returns how many it removed. Stops early once the queue is empty.
+	 */
+	public int drain(Consumer<? super E> c, int max)
+	{
+		int n = 0;
+		E e;
+		while (n < max && (e = poll()) != null)
+		{
+			c.accept(e);
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Offers the elements of a in [fromIndex, toIndex), in order, and returns
+	 * how many were inserted before the queue was full.
+	 */
+	public int offerBatch(E[] a, int fromIndex, int toIndex)
+	{
+		ArrayList.subListRangeCheck(fromIndex, toIndex, a.length);
+		int i = fromIndex;
+		while (i < toIndex && offer(a[i]))
+			i++;
+		return i - fromIndex;
+	}
+
+	/**
+	 * Returns the number of elements, a snapshot while other threads offer
+	 * and poll.
+	 */
+	public int size()
+	{
+		long after = head.get();
+		for (;;)
+		{
+			long before = after;
+			long t = tail.get();
+			after = head.get();
+			if (before == after)
+				return (int) Math.max(0, Math.min(t - after, capacity));
+		}
+	}
+
+	public boolean isEmpty()
+	{
+		return head.get() >= tail.get();
+	}
+
+	public int capacity()
+	{
+		return capacity;
+	}
+}
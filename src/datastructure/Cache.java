@@ -0,0 +1,597 @@
+package datastructure;
+
+/**
+ * A bounded in-process cache built from access-ordered
+ * {@link LinkedHashMap}s.
+ * <p>
+ * The cache holds at most a maximum number of entries, or a maximum total
+ * weight as measured by a {@link Weigher}. Two eviction policies are
+ * available:
+ * <ul>
+ * <li>{@link Policy#LRU} evicts the least recently used entry;</li>
+ * <li>{@link Policy#TINY_LFU} (W-TinyLFU) first keeps new entries in a small
+ * LRU window of 1% of the capacity. An entry leaving the window is admitted
+ * to the main space only if it has been accessed more often than the entry
+ * it would displace, according to a {@link FrequencySketch} of recent
+ * accesses, so that one-off lookups cannot flush out popular entries. The
+ * main space is a segmented LRU: entries are promoted from a probation
+ * segment to a protected segment of 80% of the main space when they are hit
+ * again.</li>
+ * </ul>
+ * Entries can also expire a fixed time after they were written or last
+ * accessed. Expired entries are never returned, and are removed by a
+ * {@link TimerWheel} that advances on every operation or on
+ * {@link #cleanUp()}.
+ * <p>
+ * Hits, misses, evictions and expirations are counted, see {@link #stats()}.
+ * All methods are synchronized; loaders run outside the lock.
+ * <p>
+ * Neither keys nor values may be null.
+ *
+ * @param <K>
+ *            the type/class of elements held in this cache as key.
+ * @param <V>
+ *            the type/class of elements held in this cache as value.
+ */
+public class Cache<K, V>
+{
+
+	public enum Policy
+	{
+		LRU, TINY_LFU
+	}
+
+	/**
+	 * Computes the weight of an entry, which must not change while the entry
+	 * is cached.
+	 */
+	public interface Weigher<K, V>
+	{
+		int weigh(K key, V value);
+	}
+
+	/**
+	 * Computes the value of a key missing from the cache.
+	 */
+	public interface Loader<K, V>
+	{
+		V load(K key);
+	}
+
+	// Segments of an entry
+	private static final byte WINDOW = 0;
+	private static final byte PROBATION = 1;
+	private static final byte PROTECTED = 2;
+
+	static final class Node<K, V>
+	{
+		final K key;
+		V value;
+		int weight;
+		byte segment;
+		long writeTime;
+		long accessTime;
+		long expiry;
+		Node<K, V> prevInTimer, nextInTimer;
+
+		Node(K key, V value, int weight)
+		{
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private final Policy policy;
+	private final Weigher<? super K, ? super V> weigher;
+	private final long maximum;
+	private final long windowMaximum;
+	private final long protectedMaximum;
+	private final long expireAfterWriteNanos;
+	private final long expireAfterAccessNanos;
+
+	// LRU uses the window alone, with the whole capacity
+	private final LinkedHashMap<K, Node<K, V>> window;
+	private final LinkedHashMap<K, Node<K, V>> probation;
+	private final LinkedHashMap<K, Node<K, V>> protect;
+
+	private long weight;
+	private long windowWeight;
+	private long protectedWeight;
+
+	private final FrequencySketch sketch;
+	private final TimerWheel<K, V> timerWheel;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+
+	/**
+	 * Creates a cache of at most maximumSize entries that never expire.
+	 */
+	public Cache(long maximumSize, Policy policy)
+	{
+		this(maximumSize, null, policy, 0, 0);
+	}
+
+	/**
+	 * Creates a cache of entries with a total weight of at most maximumWeight
+	 * that never expire.
+	 */
+	public Cache(long maximumWeight, Weigher<? super K, ? super V> weigher, Policy policy)
+	{
+		this(maximumWeight, weigher, policy, 0, 0);
+	}
+
+	/**
+	 * Creates a cache bounded by maximum, counted in entries if weigher is
+	 * null and in weight otherwise.
+	 *
+	 * @param expireAfterWriteNanos
+	 *            time after which an entry expires once written, 0 for never
+	 * @param expireAfterAccessNanos
+	 *            time after which an entry expires once last read or written,
+	 *            0 for never
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Cache(long maximum, Weigher<? super K, ? super V> weigher, Policy policy, long expireAfterWriteNanos,
+			long expireAfterAccessNanos)
+	{
+		if (maximum < 0)
+			throw new IllegalArgumentException("Illegal maximum: " + maximum);
+		if (expireAfterWriteNanos < 0 || expireAfterAccessNanos < 0)
+			throw new IllegalArgumentException("Illegal expiration: " + expireAfterWriteNanos + ", "
+					+ expireAfterAccessNanos);
+		if (policy == null)
+			throw new NullPointerException();
+		this.policy = policy;
+		this.weigher = weigher;
+		this.maximum = maximum;
+		this.expireAfterWriteNanos = expireAfterWriteNanos;
+		this.expireAfterAccessNanos = expireAfterAccessNanos;
+
+		// key and value types are only used by keys() and values(), which
+		// the cache never calls
+		Class<Node<K, V>> nodeType = (Class) Node.class;
+		window = new LinkedHashMap<K, Node<K, V>>(16, 0.75f, true, null, nodeType);
+		if (policy == Policy.TINY_LFU)
+		{
+			windowMaximum = Math.max(1, maximum / 100);
+			protectedMaximum = (long) (0.8 * (maximum - windowMaximum));
+			probation = new LinkedHashMap<K, Node<K, V>>(16, 0.75f, true, null, nodeType);
+			protect = new LinkedHashMap<K, Node<K, V>>(16, 0.75f, true, null, nodeType);
+			sketch = new FrequencySketch(maximum);
+		}
+		else
+		{
+			windowMaximum = maximum;
+			protectedMaximum = 0;
+			probation = protect = null;
+			sketch = null;
+		}
+		timerWheel = (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0)
+				? new TimerWheel<K, V>(this, System.nanoTime()) : null;
+	}
+
+	/**
+	 * Returns the value of key, or null if it is not cached.
+	 */
+	public synchronized V get(K key)
+	{
+		long now = advance();
+		if (sketch != null)
+			sketch.increment(key);
+		Node<K, V> node = find(key);
+		if (node == null || hasExpired(node, now))
+		{
+			if (node != null)
+				expireEntry(node);
+			misses++;
+			return null;
+		}
+		hits++;
+		onAccess(node, now);
+		return node.value;
+	}
+
+	/**
+	 * Returns the value of key, loading and caching it first if it is not
+	 * cached. Concurrent misses of the same key may load it more than once.
+	 */
+	public V get(K key, Loader<? super K, ? extends V> loader)
+	{
+		V value = get(key);
+		if (value == null)
+		{
+			value = loader.load(key);
+			if (value != null)
+				put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Caches value for key, replacing any previous value.
+	 */
+	public synchronized void put(K key, V value)
+	{
+		if (key == null || value == null)
+			throw new NullPointerException();
+		long now = advance();
+		if (sketch != null)
+			sketch.increment(key);
+		int w = weigh(key, value);
+		Node<K, V> node = find(key);
+		if (node == null)
+		{
+			node = new Node<K, V>(key, value, w);
+			node.segment = WINDOW;
+			window.put(key, node);
+			windowWeight += w;
+			weight += w;
+		}
+		else
+		{
+			node.value = value;
+			int delta = w - node.weight;
+			node.weight = w;
+			if (node.segment == WINDOW)
+				windowWeight += delta;
+			else if (node.segment == PROTECTED)
+				protectedWeight += delta;
+			weight += delta;
+			onAccess(node, now);
+		}
+		node.writeTime = now;
+		node.accessTime = now;
+		if (timerWheel != null)
+		{
+			node.expiry = expiryOf(node);
+			timerWheel.schedule(node);
+		}
+		evictEntries();
+	}
+
+	/**
+	 * Removes key from the cache and returns its value, or null if it was not
+	 * cached.
+	 */
+	public synchronized V remove(K key)
+	{
+		long now = advance();
+		Node<K, V> node = find(key);
+		if (node == null)
+			return null;
+		unlink(node);
+		return hasExpired(node, now) ? null : node.value;
+	}
+
+	public synchronized void clear()
+	{
+		clear(window);
+		if (probation != null)
+		{
+			clear(probation);
+			clear(protect);
+		}
+		weight = windowWeight = protectedWeight = 0;
+	}
+
+	private void clear(LinkedHashMap<K, Node<K, V>> segment)
+	{
+		if (timerWheel != null)
+		{
+			for (LinkedHashMap.Entry<K, Node<K, V>> e = segment.head; e != null; e = e.after)
+				timerWheel.deschedule(e.value);
+		}
+		segment.clear();
+	}
+
+	/**
+	 * Removes the entries that have expired by now.
+	 */
+	public synchronized void cleanUp()
+	{
+		advance();
+	}
+
+	/**
+	 * Returns the number of cached entries, which may include expired
+	 * entries that have not been cleaned up yet.
+	 */
+	public synchronized int size()
+	{
+		int size = window.size();
+		if (probation != null)
+			size += probation.size() + protect.size();
+		return size;
+	}
+
+	/**
+	 * Returns the total weight of the cached entries, or their number if
+	 * the cache has no weigher.
+	 */
+	public synchronized long weight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns a snapshot of the hit, miss, eviction and expiration counters.
+	 */
+	public synchronized Stats stats()
+	{
+		return new Stats(hits, misses, evictions, expirations);
+	}
+
+	// Advances the timer wheel to the current time
+	private long advance()
+	{
+		long now = System.nanoTime();
+		if (timerWheel != null)
+			timerWheel.advance(now);
+		return now;
+	}
+
+	private int weigh(K key, V value)
+	{
+		if (weigher == null)
+			return 1;
+		int w = weigher.weigh(key, value);
+		if (w < 0)
+			throw new IllegalArgumentException("Illegal weight: " + w);
+		return w;
+	}
+
+	private Node<K, V> find(K key)
+	{
+		Node<K, V> node = peek(window, key);
+		if (node == null && probation != null && (node = peek(probation, key)) == null)
+			node = peek(protect, key);
+		return node;
+	}
+
+	// Looks up key without changing the access order
+	private static <K, V> Node<K, V> peek(LinkedHashMap<K, Node<K, V>> segment, K key)
+	{
+		LinkedHashMap.Entry<K, Node<K, V>> e = segment.getNode(LinkedHashMap.hash(key), key);
+		return (e == null) ? null : e.value;
+	}
+
+	private static <K, V> Node<K, V> eldest(LinkedHashMap<K, Node<K, V>> segment)
+	{
+		LinkedHashMap.Entry<K, Node<K, V>> e = segment.head;
+		return (e == null) ? null : e.value;
+	}
+
+	private long expiryOf(Node<K, V> node)
+	{
+		long expiry = Long.MAX_VALUE;
+		if (expireAfterWriteNanos > 0)
+			expiry = node.writeTime + expireAfterWriteNanos;
+		if (expireAfterAccessNanos > 0)
+		{
+			long e = node.accessTime + expireAfterAccessNanos;
+			expiry = (expiry == Long.MAX_VALUE || e - expiry < 0) ? e : expiry;
+		}
+		return expiry;
+	}
+
+	private boolean hasExpired(Node<K, V> node, long now)
+	{
+		return timerWheel != null && node.expiry - now <= 0;
+	}
+
+	// Moves node to the most recently used end of its segment, promoting it
+	// from probation to protected
+	private void onAccess(Node<K, V> node, long now)
+	{
+		if (node.segment == WINDOW)
+			window.get(node.key);
+		else if (node.segment == PROTECTED)
+			protect.get(node.key);
+		else
+		{
+			probation.remove(node.key);
+			node.segment = PROTECTED;
+			protect.put(node.key, node);
+			protectedWeight += node.weight;
+			// demote the least recently used protected entries
+			while (protectedWeight > protectedMaximum)
+			{
+				Node<K, V> demoted = eldest(protect);
+				if (demoted == node)
+					break;
+				protect.remove(demoted.key);
+				protectedWeight -= demoted.weight;
+				demoted.segment = PROBATION;
+				probation.put(demoted.key, demoted);
+			}
+		}
+		if (expireAfterAccessNanos > 0)
+		{
+			node.accessTime = now;
+			node.expiry = expiryOf(node);
+			timerWheel.schedule(node);
+		}
+	}
+
+	// Removes node from its segment and the timer wheel
+	private void unlink(Node<K, V> node)
+	{
+		if (node.segment == WINDOW)
+		{
+			window.remove(node.key);
+			windowWeight -= node.weight;
+		}
+		else if (node.segment == PROBATION)
+			probation.remove(node.key);
+		else
+		{
+			protect.remove(node.key);
+			protectedWeight -= node.weight;
+		}
+		weight -= node.weight;
+		if (timerWheel != null)
+			timerWheel.deschedule(node);
+	}
+
+	void expireEntry(Node<K, V> node)
+	{
+		unlink(node);
+		expirations++;
+	}
+
+	private void evict(Node<K, V> node)
+	{
+		unlink(node);
+		evictions++;
+	}
+
+	private void evictEntries()
+	{
+		if (policy == Policy.TINY_LFU)
+		{
+			// move the window's overflow to the main space, admitting each
+			// candidate only if it is used more often than the victims it
+			// displaces
+			long mainMaximum = maximum - windowMaximum;
+			while (windowWeight > windowMaximum)
+			{
+				Node<K, V> candidate = eldest(window);
+				window.remove(candidate.key);
+				windowWeight -= candidate.weight;
+				boolean admit = true;
+				while (weight - windowWeight > mainMaximum)
+				{
+					Node<K, V> victim = eldest(probation);
+					if (victim == null && (victim = eldest(protect)) == null)
+						break;
+					if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key))
+					{
+						admit = false;
+						break;
+					}
+					evict(victim);
+				}
+				if (admit)
+				{
+					candidate.segment = PROBATION;
+					probation.put(candidate.key, candidate);
+				}
+				else
+				{
+					// no longer in the window, so only settle the totals
+					weight -= candidate.weight;
+					if (timerWheel != null)
+						timerWheel.deschedule(candidate);
+					evictions++;
+				}
+			}
+		}
+		// entries heavier than the space they were admitted to
+		while (weight > maximum)
+		{
+			Node<K, V> victim = null;
+			if (probation != null && (victim = eldest(probation)) == null)
+				victim = eldest(protect);
+			if (victim == null)
+				victim = eldest(window);
+			if (victim == null)
+				break;
+			evict(victim);
+		}
+	}
+
+	/**
+	 * Counters of a cache at one point in time.
+	 */
+	public static final class Stats
+	{
+
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long expirations;
+
+		private Stats(long hits, long misses, long evictions, long expirations)
+		{
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.expirations = expirations;
+		}
+
+		public long hits()
+		{
+			return hits;
+		}
+
+		public long misses()
+		{
+			return misses;
+		}
+
+		/**
+		 * Returns the fraction of lookups that were hits, 1 if there were no
+		 * lookups.
+		 */
+		public double hitRate()
+		{
+			long requests = hits + misses;
+			return (requests == 0) ? 1.0 : (double) hits / requests;
+		}
+
+		/**
+		 * Returns the number of entries evicted to keep the cache within its
+		 * bounds.
+		 */
+		public long evictions()
+		{
+			return evictions;
+		}
+
+		/**
+		 * Returns the number of entries removed because they expired.
+		 */
+		public long expirations()
+		{
+			return expirations;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", expirations="
+					+ expirations;
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		System.out.println("Checking... (no more output means success)");
+
+		// filled to its maximum, a cache keeps every entry
+		for (Policy policy : Policy.values())
+		{
+			Cache<Integer, Integer> cache = new Cache<>(100, policy);
+			for (int i = 0; i < 100; i++)
+				cache.put(i, i);
+			if (cache.size() != 100)
+				System.out.println("OOPS!!! " + policy + " holds " + cache.size() + " of 100 entries");
+
+			Cache<Integer, Integer> weighted = new Cache<>(1000, new Weigher<Integer, Integer>()
+			{
+				public int weigh(Integer key, Integer value)
+				{
+					return 10;
+				}
+			}, policy);
+			for (int i = 0; i < 200; i++)
+				weighted.put(i, i);
+			if (weighted.size() != 100 || weighted.weight() != 1000)
+				System.out.println("OOPS!!! " + policy + " holds " + weighted.size() + " entries of weight 10 in 1000");
+		}
+	}
+}
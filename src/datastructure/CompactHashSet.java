@@ -0,0 +1,328 @@
+package datastructure;
+
+/**
+ * A memory-compact alternative to {@link HashSet} and {@link LinkedHashSet}.
+ * Elements are stored directly in an open addressed array with linear
+ * probing, so there is no node per element: a reference per slot instead of
+ * a map node of about 32 bytes plus the table slot. If insertion order is
+ * requested, two int links per slot keep the elements in a doubly linked
+ * list, like the before/after links of {@link LinkedHashMap}.
+ * <p>
+ * Removal shifts the following entries of the cluster back instead of
+ * leaving tombstones. See {@link #footprint()} for the size of a set.
+ * <p>
+ * Null elements are not permitted. No iterator.
+ *
+ * @param <E>
+ *            the type/class of elements held in this set.
+ */
+public class CompactHashSet<E>
+{
+	private static final int DEFAULT_EXPECTED_SIZE = 3;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	// Marks the end of the insertion order list
+	private static final int NONE = -1;
+
+	private final Class<E> componentType;
+
+	private final float loadFactor;
+
+	private final boolean insertionOrder;
+
+	private Object[] elements;
+
+	// Insertion order links by slot, null unless insertionOrder
+	private int[] before;
+
+	private int[] after;
+
+	private int head = NONE;
+
+	private int tail = NONE;
+
+	private int mask;
+
+	private int size;
+
+	private int threshold;
+
+	public CompactHashSet(int expectedSize, float loadFactor, boolean insertionOrder, Class<E> componentType)
+	{
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+		if (!(loadFactor > 0 && loadFactor < 1))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		this.componentType = componentType;
+		this.loadFactor = loadFactor;
+		this.insertionOrder = insertionOrder;
+		allocate(capacityFor(expectedSize, loadFactor));
+	}
+
+	public CompactHashSet(int expectedSize, boolean insertionOrder, Class<E> componentType)
+	{
+		this(expectedSize, DEFAULT_LOAD_FACTOR, insertionOrder, componentType);
+	}
+
+	public CompactHashSet(boolean insertionOrder, Class<E> componentType)
+	{
+		this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, insertionOrder, componentType);
+	}
+
+	public CompactHashSet(Class<E> componentType)
+	{
+		this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR, false, componentType);
+	}
+
+	// Smallest power of two table that holds expectedSize elements
+	private static int capacityFor(int expectedSize, float loadFactor)
+	{
+		return LinearProbing.capacityFor(expectedSize, loadFactor, 2);
+	}
+
+	private void allocate(int capacity)
+	{
+		elements = new Object[capacity];
+		if (insertionOrder)
+		{
+			before = new int[capacity];
+			after = new int[capacity];
+		}
+		mask = capacity - 1;
+		threshold = LinearProbing.threshold(capacity, loadFactor);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	// Slot of o, or -1 - the free slot where o belongs if it is absent
+	private int find(Object o)
+	{
+		Object[] es = elements;
+		int m = mask;
+		for (int i = LinearProbing.hash(o) & m;; i = (i + 1) & m)
+		{
+			Object e = es[i];
+			if (e == null)
+				return -1 - i;
+			if (e == o || o.equals(e))
+				return i;
+		}
+	}
+
+	public boolean contains(Object o)
+	{
+		return find(o) >= 0;
+	}
+
+	public boolean add(E e)
+	{
+		int i = find(e);
+		if (i >= 0)
+			return false;
+		if (size == threshold)
+		{
+			resize(elements.length << 1);
+			i = find(e);
+		}
+		i = -1 - i;
+		elements[i] = e;
+		if (insertionOrder)
+			linkLast(i);
+		size++;
+		return true;
+	}
+
+	public boolean remove(Object o)
+	{
+		int i = find(o);
+		if (i < 0)
+			return false;
+		if (insertionOrder)
+			unlink(i);
+		shiftBack(i);
+		size--;
+		return true;
+	}
+
+	private void linkLast(int i)
+	{
+		before[i] = tail;
+		after[i] = NONE;
+		if (tail == NONE)
+			head = i;
+		else
+			after[tail] = i;
+		tail = i;
+	}
+
+	private void unlink(int i)
+	{
+		int b = before[i], a = after[i];
+		if (b == NONE)
+			head = a;
+		else
+			after[b] = a;
+		if (a == NONE)
+			tail = b;
+		else
+			before[a] = b;
+	}
+
+	// Closes the gap at slot gap by moving back later entries of its cluster
+	// that would otherwise become unreachable
+	private void shiftBack(int gap)
+	{
+		Object[] es = elements;
+		int m = mask;
+		for (int i = (gap + 1) & m;; i = (i + 1) & m)
+		{
+			Object e = es[i];
+			if (e == null)
+				break;
+			int home = LinearProbing.hash(e) & m;
+			if (LinearProbing.shouldShift(home, gap, i, m))
+			{
+				es[gap] = e;
+				if (insertionOrder)
+					relink(i, gap);
+				gap = i;
+			}
+		}
+		es[gap] = null;
+	}
+
+	// Points the insertion order list at slot to instead of slot from
+	private void relink(int from, int to)
+	{
+		int b = before[from], a = after[from];
+		before[to] = b;
+		after[to] = a;
+		if (b == NONE)
+			head = to;
+		else
+			after[b] = to;
+		if (a == NONE)
+			tail = to;
+		else
+			before[a] = to;
+	}
+
+	private void resize(int newCapacity)
+	{
+		if (elements.length == LinearProbing.MAXIMUM_CAPACITY)
+		{
+			if (size >= LinearProbing.MAXIMUM_CAPACITY - 1)
+				throw new IllegalStateException("Set is full");
+			threshold = LinearProbing.MAXIMUM_CAPACITY - 1;
+			return;
+		}
+		Object[] oldElements = elements;
+		int[] oldAfter = after;
+		int oldHead = head;
+		allocate(newCapacity);
+		head = tail = NONE;
+		if (insertionOrder)
+		{
+			for (int j = oldHead; j != NONE; j = oldAfter[j])
+				linkLast(place(oldElements[j]));
+		}
+		else
+		{
+			for (Object e : oldElements)
+			{
+				if (e != null)
+					place(e);
+			}
+		}
+	}
+
+	// Stores e, known to be absent, in a table with a free slot for it
+	private int place(Object e)
+	{
+		int i = LinearProbing.freeSlot(elements, LinearProbing.hash(e) & mask, mask);
+		elements[i] = e;
+		return i;
+	}
+
+	/**
+	 * Grows the table, if needed, so that it holds expectedSize elements
+	 * without resizing.
+	 */
+	public void ensureCapacity(int expectedSize)
+	{
+		int capacity = capacityFor(expectedSize, loadFactor);
+		if (capacity > elements.length)
+			resize(capacity);
+	}
+
+	public void clear()
+	{
+		size = 0;
+		head = tail = NONE;
+		java.util.Arrays.fill(elements, null);
+	}
+
+	/**
+	 * Returns the elements in insertion order if the set keeps it, otherwise
+	 * in table order.
+	 */
+	@SuppressWarnings("unchecked")
+	public E[] toArray()
+	{
+		E[] result = (E[]) java.lang.reflect.Array.newInstance(componentType, size);
+		int idx = 0;
+		if (insertionOrder)
+		{
+			for (int i = head; i != NONE; i = after[i])
+				result[idx++] = (E) elements[i];
+		}
+		else
+		{
+			for (Object e : elements)
+			{
+				if (e != null)
+					result[idx++] = (E) e;
+			}
+		}
+		return result;
+	}
+
+	public CompactHashSet<E> clone()
+	{
+		CompactHashSet<E> clone = new CompactHashSet<>(size, loadFactor, insertionOrder, componentType);
+		for (E element : toArray())
+		{
+			clone.add(element);
+		}
+		return clone;
+	}
+
+	/**
+	 * Returns the estimated bytes taken by this set, excluding its elements,
+	 * on a 64-bit JVM with compressed references: 4 bytes per slot, 12 in
+	 * insertion order, plus object and array headers. A set from
+	 * {@link HashSet} or {@link LinkedHashSet} takes about 40 and 48 bytes per
+	 * element for the map nodes and table.
+	 */
+	public long footprint()
+	{
+		long bytes = 40 + arrayBytes(elements.length, 4);
+		if (insertionOrder)
+			bytes += 2 * arrayBytes(elements.length, 4);
+		return bytes;
+	}
+
+	private static long arrayBytes(long length, int elementSize)
+	{
+		return (16 + length * elementSize + 7) & ~7L;
+	}
+}
@@ -0,0 +1,1680 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe variant of {@link HashMap}. No iterator.
+ * <p>
+ * Reads take no locks. An insert into an empty bin is a single CAS of the
+ * bin head; every other update locks only the head node of its bin, so
+ * updates of different bins never contend. Bins that collect more than 8
+ * entries are turned into red-black trees as in HashMap; readers that meet
+ * a tree while it is being rebalanced fall back to its linked list instead
+ * of waiting.
+ * <p>
+ * When the table grows, the old table is split into strides that threads
+ * claim one at a time. Every thread that updates the map during a resize
+ * helps moving bins, and moved bins are marked with a forwarding node that
+ * sends readers to the new table.
+ * <p>
+ * The size is kept LongAdder-style: a base count updated by CAS, and under
+ * contention one counter cell per processor that threads spread their
+ * updates over, so size() is a sum and only an estimate while the map is
+ * being modified.
+ * <p>
+ * Neither keys nor values may be null.
+ *
+ * @param <K>
+ *            the type/class of elements held in this hash-map as key.
+ * @param <V>
+ *            the type/class of elements held in this hash-map as value.
+ */
+public class ConcurrentHashMap<K, V>
+{
+	private final Class<K> keyType;
+	private final Class<V> valueType;
+
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	static final int DEFAULT_CAPACITY = 16;
+
+	static final int TREEIFY_THRESHOLD = 8;
+
+	static final int UNTREEIFY_THRESHOLD = 6;
+
+	static final int MIN_TREEIFY_CAPACITY = 64;
+
+	// Fewest bins a resizing thread claims at a time
+	static final int MIN_TRANSFER_STRIDE = 16;
+
+	static final int RESIZE_STAMP_BITS = 16;
+
+	static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
+
+	static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+
+	// Hashes of the special nodes
+	static final int MOVED = -1; // forwarding node
+	static final int TREEBIN = -2; // root of a tree bin
+
+	static final int HASH_BITS = 0x7fffffff; // usable bits of a normal hash
+
+	static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+	// Counter cells, a power of two at least NCPU
+	static final int COUNTER_CELLS = HashMap.tableSizeFor(NCPU);
+
+	static class Node<K, V>
+	{
+		final int hash;
+		final K key;
+		volatile V val;
+		volatile Node<K, V> next;
+
+		Node(int hash, K key, V val, Node<K, V> next)
+		{
+			this.hash = hash;
+			this.key = key;
+			this.val = val;
+			this.next = next;
+		}
+
+		public final K getKey()
+		{
+			return key;
+		}
+
+		public final V getValue()
+		{
+			return val;
+		}
+
+		public final String toString()
+		{
+			return key + "=" + val;
+		}
+
+		// Finds the node of key k in the bin that starts with this node
+		Node<K, V> find(int h, Object k)
+		{
+			Node<K, V> e = this;
+			if (k != null)
+			{
+				do
+				{
+					K ek;
+					if (e.hash == h && ((ek = e.key) == k || (ek != null && k.equals(ek))))
+						return e;
+				}
+				while ((e = e.next) != null);
+			}
+			return null;
+		}
+	}
+
+	static final int spread(int h)
+	{
+		return (h ^ (h >>> 16)) & HASH_BITS;
+	}
+
+	// The stamp of a resize of a table of length n, placed in the high bits
+	// of sizeCtl while the resize runs
+	static final int resizeStamp(int n)
+	{
+		return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+	}
+
+	transient volatile AtomicReferenceArray<Node<K, V>> table;
+
+	// The table being filled by a resize, null otherwise
+	private transient volatile AtomicReferenceArray<Node<K, V>> nextTable;
+
+	/**
+	 * Table initialization and resizing control. -1 while the table is being
+	 * created, -(1 + number of resizing threads) in the low bits and the
+	 * resize stamp in the high bits during a resize. Otherwise the initial
+	 * capacity before the table exists, and the size at which to resize next
+	 * after.
+	 */
+	private transient volatile int sizeCtl;
+
+	// Next table index (plus one) a resizing thread claims bins below
+	private transient volatile int transferIndex;
+
+	private transient volatile long baseCount;
+
+	// Spinlock (locked via CAS) for creating counter cells
+	private transient volatile int cellsBusy;
+
+	private transient volatile CounterCell[] counterCells;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ConcurrentHashMap> SIZECTL = AtomicIntegerFieldUpdater
+			.newUpdater(ConcurrentHashMap.class, "sizeCtl");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ConcurrentHashMap> TRANSFERINDEX = AtomicIntegerFieldUpdater
+			.newUpdater(ConcurrentHashMap.class, "transferIndex");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ConcurrentHashMap> CELLSBUSY = AtomicIntegerFieldUpdater
+			.newUpdater(ConcurrentHashMap.class, "cellsBusy");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<ConcurrentHashMap> BASECOUNT = AtomicLongFieldUpdater
+			.newUpdater(ConcurrentHashMap.class, "baseCount");
+
+	public ConcurrentHashMap(int initialCapacity, Class<K> keyType, Class<V> valueType)
+	{
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		this.sizeCtl = (initialCapacity >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY
+				: HashMap.tableSizeFor(initialCapacity + (initialCapacity >>> 1) + 1);
+		this.keyType = keyType;
+		this.valueType = valueType;
+	}
+
+	public ConcurrentHashMap(Class<K> keyType, Class<V> valueType)
+	{
+		this.keyType = keyType;
+		this.valueType = valueType;
+	}
+
+	public int size()
+	{
+		long n = sumCount();
+		return (n < 0L) ? 0 : (n > (long) Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) n;
+	}
+
+	/**
+	 * Returns the number of mappings, which may exceed Integer.MAX_VALUE.
+	 */
+	public long mappingCount()
+	{
+		long n = sumCount();
+		return (n < 0L) ? 0L : n;
+	}
+
+	public boolean isEmpty()
+	{
+		return sumCount() <= 0L;
+	}
+
+	public V get(Object key)
+	{
+		AtomicReferenceArray<Node<K, V>> tab;
+		Node<K, V> e, p;
+		int n, eh;
+		K ek;
+		int h = spread(key.hashCode());
+		if ((tab = table) != null && (n = tab.length()) > 0 && (e = tab.get((n - 1) & h)) != null)
+		{
+			if ((eh = e.hash) == h)
+			{
+				if ((ek = e.key) == key || (ek != null && key.equals(ek)))
+					return e.val;
+			}
+			else if (eh < 0)
+				return (p = e.find(h, key)) != null ? p.val : null;
+			while ((e = e.next) != null)
+			{
+				if (e.hash == h && ((ek = e.key) == key || (ek != null && key.equals(ek))))
+					return e.val;
+			}
+		}
+		return null;
+	}
+
+	public V getOrDefault(Object key, V defaultValue)
+	{
+		V v;
+		return (v = get(key)) == null ? defaultValue : v;
+	}
+
+	public boolean containsKey(Object key)
+	{
+		return get(key) != null;
+	}
+
+	public boolean containsValue(Object value)
+	{
+		if (value == null)
+			throw new NullPointerException();
+		AtomicReferenceArray<Node<K, V>> t;
+		if ((t = table) != null)
+		{
+			Traverser<K, V> it = new Traverser<K, V>(t, t.length(), 0, t.length());
+			for (Node<K, V> p; (p = it.advance()) != null;)
+			{
+				V v;
+				if ((v = p.val) == value || (v != null && value.equals(v)))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	public V put(K key, V value)
+	{
+		return putVal(key, value, false);
+	}
+
+	public V putIfAbsent(K key, V value)
+	{
+		return putVal(key, value, true);
+	}
+
+	final V putVal(K key, V value, boolean onlyIfAbsent)
+	{
+		if (key == null || value == null)
+			throw new NullPointerException();
+		int hash = spread(key.hashCode());
+		int binCount = 0;
+		for (AtomicReferenceArray<Node<K, V>> tab = table;;)
+		{
+			Node<K, V> f;
+			int n, i, fh;
+			if (tab == null || (n = tab.length()) == 0)
+				tab = initTable();
+			else if ((f = tab.get(i = (n - 1) & hash)) == null)
+			{
+				if (tab.compareAndSet(i, null, new Node<K, V>(hash, key, value, null)))
+					break; // no lock when adding to empty bin
+			}
+			else if ((fh = f.hash) == MOVED)
+				tab = helpTransfer(tab, f);
+			else
+			{
+				V oldVal = null;
+				synchronized (f)
+				{
+					if (tab.get(i) == f)
+					{
+						if (fh >= 0)
+						{
+							binCount = 1;
+							for (Node<K, V> e = f;; ++binCount)
+							{
+								K ek;
+								if (e.hash == hash && ((ek = e.key) == key || (ek != null && key.equals(ek))))
+								{
+									oldVal = e.val;
+									if (!onlyIfAbsent)
+										e.val = value;
+									break;
+								}
+								Node<K, V> pred = e;
+								if ((e = e.next) == null)
+								{
+									pred.next = new Node<K, V>(hash, key, value, null);
+									break;
+								}
+							}
+						}
+						else if (f instanceof TreeBin)
+						{
+							Node<K, V> p;
+							binCount = 2;
+							if ((p = ((TreeBin<K, V>) f).putTreeVal(hash, key, value)) != null)
+							{
+								oldVal = p.val;
+								if (!onlyIfAbsent)
+									p.val = value;
+							}
+						}
+					}
+				}
+				if (binCount != 0)
+				{
+					if (binCount >= TREEIFY_THRESHOLD)
+						treeifyBin(tab, i);
+					if (oldVal != null)
+						return oldVal;
+					break;
+				}
+			}
+		}
+		addCount(1L, binCount);
+		return null;
+	}
+
+	public V remove(Object key)
+	{
+		return replaceNode(key, null, null);
+	}
+
+	public boolean remove(Object key, Object value)
+	{
+		if (key == null)
+			throw new NullPointerException();
+		return value != null && replaceNode(key, null, value) != null;
+	}
+
+	public boolean replace(K key, V oldValue, V newValue)
+	{
+		if (key == null || oldValue == null || newValue == null)
+			throw new NullPointerException();
+		return replaceNode(key, newValue, oldValue) != null;
+	}
+
+	public V replace(K key, V value)
+	{
+		if (key == null || value == null)
+			throw new NullPointerException();
+		return replaceNode(key, value, null);
+	}
+
+	/**
+	 * Replaces the value of key with value, or removes the mapping if value is
+	 * null, provided the current value matches cv (any value if cv is null).
+	 * Returns the previous value, or null if nothing changed.
+	 */
+	final V replaceNode(Object key, V value, Object cv)
+	{
+		int hash = spread(key.hashCode());
+		for (AtomicReferenceArray<Node<K, V>> tab = table;;)
+		{
+			Node<K, V> f;
+			int n, i, fh;
+			if (tab == null || (n = tab.length()) == 0 || (f = tab.get(i = (n - 1) & hash)) == null)
+				break;
+			else if ((fh = f.hash) == MOVED)
+				tab = helpTransfer(tab, f);
+			else
+			{
+				V oldVal = null;
+				boolean validated = false;
+				synchronized (f)
+				{
+					if (tab.get(i) == f)
+					{
+						if (fh >= 0)
+						{
+							validated = true;
+							for (Node<K, V> e = f, pred = null;;)
+							{
+								K ek;
+								if (e.hash == hash && ((ek = e.key) == key || (ek != null && key.equals(ek))))
+								{
+									V ev = e.val;
+									if (cv == null || cv == ev || (ev != null && cv.equals(ev)))
+									{
+										oldVal = ev;
+										if (value != null)
+											e.val = value;
+										else if (pred != null)
+											pred.next = e.next;
+										else
+											tab.set(i, e.next);
+									}
+									break;
+								}
+								pred = e;
+								if ((e = e.next) == null)
+									break;
+							}
+						}
+						else if (f instanceof TreeBin)
+						{
+							validated = true;
+							TreeBin<K, V> t = (TreeBin<K, V>) f;
+							TreeNode<K, V> r, p;
+							if ((r = t.root) != null && (p = r.findTreeNode(hash, key, null)) != null)
+							{
+								V pv = p.val;
+								if (cv == null || cv == pv || (pv != null && cv.equals(pv)))
+								{
+									oldVal = pv;
+									if (value != null)
+										p.val = value;
+									else if (t.removeTreeNode(p))
+										tab.set(i, untreeify(t.first));
+								}
+							}
+						}
+					}
+				}
+				if (validated)
+				{
+					if (oldVal != null)
+					{
+						if (value == null)
+							addCount(-1L, -1);
+						return oldVal;
+					}
+					break;
+				}
+			}
+		}
+		return null;
+	}
+
+	public void clear()
+	{
+		long delta = 0L; // negative number of deletions
+		int i = 0;
+		AtomicReferenceArray<Node<K, V>> tab = table;
+		while (tab != null && i < tab.length())
+		{
+			int fh;
+			Node<K, V> f = tab.get(i);
+			if (f == null)
+				++i;
+			else if ((fh = f.hash) == MOVED)
+			{
+				tab = helpTransfer(tab, f);
+				i = 0; // restart
+			}
+			else
+			{
+				synchronized (f)
+				{
+					if (tab.get(i) == f)
+					{
+						Node<K, V> p = (fh >= 0) ? f : (f instanceof TreeBin) ? ((TreeBin<K, V>) f).first : null;
+						while (p != null)
+						{
+							--delta;
+							p = p.next;
+						}
+						tab.set(i++, null);
+					}
+				}
+			}
+		}
+		if (delta != 0L)
+			addCount(delta, -1);
+	}
+
+	/**
+	 * Returns the keys present while the method runs. Keys added or removed
+	 * concurrently may or may not be included.
+	 */
+	public K[] keys()
+	{
+		ArrayList<K> result = new ArrayList<K>();
+		AtomicReferenceArray<Node<K, V>> t;
+		if ((t = table) != null)
+		{
+			Traverser<K, V> it = new Traverser<K, V>(t, t.length(), 0, t.length());
+			for (Node<K, V> p; (p = it.advance()) != null;)
+				result.add(p.key);
+		}
+		@SuppressWarnings("unchecked")
+		K[] a = (K[]) java.lang.reflect.Array.newInstance(keyType, result.size());
+		return result.toArray(a);
+	}
+
+	/**
+	 * Returns the values present while the method runs. Values added or
+	 * removed concurrently may or may not be included.
+	 */
+	public V[] values()
+	{
+		ArrayList<V> result = new ArrayList<V>();
+		AtomicReferenceArray<Node<K, V>> t;
+		if ((t = table) != null)
+		{
+			Traverser<K, V> it = new Traverser<K, V>(t, t.length(), 0, t.length());
+			for (Node<K, V> p; (p = it.advance()) != null;)
+				result.add(p.val);
+		}
+		@SuppressWarnings("unchecked")
+		V[] a = (V[]) java.lang.reflect.Array.newInstance(valueType, result.size());
+		return result.toArray(a);
+	}
+
+	// Table initialization and resizing
+
+	private final AtomicReferenceArray<Node<K, V>> initTable()
+	{
+		AtomicReferenceArray<Node<K, V>> tab;
+		int sc;
+		while ((tab = table) == null || tab.length() == 0)
+		{
+			if ((sc = sizeCtl) < 0)
+				Thread.yield(); // lost initialization race; just spin
+			else if (SIZECTL.compareAndSet(this, sc, -1))
+			{
+				try
+				{
+					if ((tab = table) == null || tab.length() == 0)
+					{
+						int n = (sc > 0) ? sc : DEFAULT_CAPACITY;
+						table = tab = new AtomicReferenceArray<Node<K, V>>(n);
+						sc = n - (n >>> 2);
+					}
+				}
+				finally
+				{
+					sizeCtl = sc;
+				}
+				break;
+			}
+		}
+		return tab;
+	}
+
+	/**
+	 * Adds x to the count and, if check >= 0, starts or helps a resize when
+	 * the map has outgrown its table. check is the length of the bin that was
+	 * just added to; if it is 1 or less the resize check is skipped under
+	 * contention.
+	 */
+	private final void addCount(long x, int check)
+	{
+		long b, s;
+		if (counterCells != null || !BASECOUNT.compareAndSet(this, b = baseCount, s = b + x))
+		{
+			fullAddCount(x);
+			if (check <= 1)
+				return;
+			s = sumCount();
+		}
+		if (check >= 0)
+		{
+			AtomicReferenceArray<Node<K, V>> tab, nt;
+			int n, sc;
+			while (s >= (long) (sc = sizeCtl) && (tab = table) != null && (n = tab.length()) < MAXIMUM_CAPACITY)
+			{
+				int rs = resizeStamp(n) << RESIZE_STAMP_SHIFT;
+				if (sc < 0)
+				{
+					if (sc == rs + MAX_RESIZERS || sc == rs + 1 || (nt = nextTable) == null || transferIndex <= 0)
+						break;
+					if (SIZECTL.compareAndSet(this, sc, sc + 1))
+						transfer(tab, nt);
+				}
+				else if (SIZECTL.compareAndSet(this, sc, rs + 2))
+					transfer(tab, null);
+				s = sumCount();
+			}
+		}
+	}
+
+	/**
+	 * Helps transfer if a resize is in progress.
+	 */
+	final AtomicReferenceArray<Node<K, V>> helpTransfer(AtomicReferenceArray<Node<K, V>> tab, Node<K, V> f)
+	{
+		AtomicReferenceArray<Node<K, V>> nextTab;
+		int sc;
+		if (tab != null && (f instanceof ForwardingNode)
+				&& (nextTab = ((ForwardingNode<K, V>) f).nextTable) != null)
+		{
+			int rs = resizeStamp(tab.length()) << RESIZE_STAMP_SHIFT;
+			while (nextTab == nextTable && table == tab && (sc = sizeCtl) < 0)
+			{
+				if (sc == rs + MAX_RESIZERS || sc == rs + 1 || transferIndex <= 0)
+					break;
+				if (SIZECTL.compareAndSet(this, sc, sc + 1))
+				{
+					transfer(tab, nextTab);
+					break;
+				}
+			}
+			return nextTab;
+		}
+		return table;
+	}
+
+	/**
+	 * Tries to presize the table to hold size elements.
+	 */
+	private final void tryPresize(int size)
+	{
+		int c = (size >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY
+				: HashMap.tableSizeFor(size + (size >>> 1) + 1);
+		int sc;
+		while ((sc = sizeCtl) >= 0)
+		{
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			int n;
+			if (tab == null || (n = tab.length()) == 0)
+			{
+				n = (sc > c) ? sc : c;
+				if (SIZECTL.compareAndSet(this, sc, -1))
+				{
+					try
+					{
+						if (table == tab)
+						{
+							table = new AtomicReferenceArray<Node<K, V>>(n);
+							sc = n - (n >>> 2);
+						}
+					}
+					finally
+					{
+						sizeCtl = sc;
+					}
+				}
+			}
+			else if (c <= sc || n >= MAXIMUM_CAPACITY)
+				break;
+			else if (tab == table)
+			{
+				int rs = resizeStamp(n);
+				if (SIZECTL.compareAndSet(this, sc, (rs << RESIZE_STAMP_SHIFT) + 2))
+					transfer(tab, null);
+			}
+		}
+	}
+
+	/**
+	 * Moves the nodes of each bin of tab to nextTab, creating nextTab if it is
+	 * null. Threads claim strides of bins from the top of the table down;
+	 * the last one to leave rechecks every bin and installs the new table.
+	 */
+	private final void transfer(AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> nextTab)
+	{
+		int n = tab.length(), stride;
+		if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+			stride = MIN_TRANSFER_STRIDE; // subdivide range
+		if (nextTab == null)
+		{ // initiating
+			try
+			{
+				nextTab = new AtomicReferenceArray<Node<K, V>>(n << 1);
+			}
+			catch (OutOfMemoryError ex)
+			{
+				sizeCtl = Integer.MAX_VALUE;
+				return;
+			}
+			nextTable = nextTab;
+			transferIndex = n;
+		}
+		int nextn = nextTab.length();
+		ForwardingNode<K, V> fwd = new ForwardingNode<K, V>(nextTab);
+		boolean advance = true;
+		boolean finishing = false; // to ensure sweep before committing nextTab
+		for (int i = 0, bound = 0;;)
+		{
+			Node<K, V> f;
+			int fh;
+			while (advance)
+			{
+				int nextIndex, nextBound;
+				if (--i >= bound || finishing)
+					advance = false;
+				else if ((nextIndex = transferIndex) <= 0)
+				{
+					i = -1;
+					advance = false;
+				}
+				else if (TRANSFERINDEX.compareAndSet(this, nextIndex,
+						nextBound = (nextIndex > stride ? nextIndex - stride : 0)))
+				{
+					bound = nextBound;
+					i = nextIndex - 1;
+					advance = false;
+				}
+			}
+			if (i < 0 || i >= n || i + n >= nextn)
+			{
+				int sc;
+				if (finishing)
+				{
+					nextTable = null;
+					table = nextTab;
+					sizeCtl = (n << 1) - (n >>> 1);
+					return;
+				}
+				if (SIZECTL.compareAndSet(this, sc = sizeCtl, sc - 1))
+				{
+					if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+						return;
+					finishing = advance = true;
+					i = n; // recheck before commit
+				}
+			}
+			else if ((f = tab.get(i)) == null)
+				advance = tab.compareAndSet(i, null, fwd);
+			else if ((fh = f.hash) == MOVED)
+				advance = true; // already processed
+			else
+			{
+				synchronized (f)
+				{
+					if (tab.get(i) == f)
+					{
+						Node<K, V> ln, hn;
+						if (fh >= 0)
+						{
+							// the trailing run of nodes that all go to the same
+							// half is moved as is, the rest is copied
+							int runBit = fh & n;
+							Node<K, V> lastRun = f;
+							for (Node<K, V> p = f.next; p != null; p = p.next)
+							{
+								int b = p.hash & n;
+								if (b != runBit)
+								{
+									runBit = b;
+									lastRun = p;
+								}
+							}
+							if (runBit == 0)
+							{
+								ln = lastRun;
+								hn = null;
+							}
+							else
+							{
+								hn = lastRun;
+								ln = null;
+							}
+							for (Node<K, V> p = f; p != lastRun; p = p.next)
+							{
+								int ph = p.hash;
+								K pk = p.key;
+								V pv = p.val;
+								if ((ph & n) == 0)
+									ln = new Node<K, V>(ph, pk, pv, ln);
+								else
+									hn = new Node<K, V>(ph, pk, pv, hn);
+							}
+							nextTab.set(i, ln);
+							nextTab.set(i + n, hn);
+							tab.set(i, fwd);
+							advance = true;
+						}
+						else if (f instanceof TreeBin)
+						{
+							TreeBin<K, V> t = (TreeBin<K, V>) f;
+							TreeNode<K, V> lo = null, loTail = null;
+							TreeNode<K, V> hi = null, hiTail = null;
+							int lc = 0, hc = 0;
+							for (Node<K, V> e = t.first; e != null; e = e.next)
+							{
+								int h = e.hash;
+								TreeNode<K, V> p = new TreeNode<K, V>(h, e.key, e.val, null, null);
+								if ((h & n) == 0)
+								{
+									if ((p.prev = loTail) == null)
+										lo = p;
+									else
+										loTail.next = p;
+									loTail = p;
+									++lc;
+								}
+								else
+								{
+									if ((p.prev = hiTail) == null)
+										hi = p;
+									else
+										hiTail.next = p;
+									hiTail = p;
+									++hc;
+								}
+							}
+							ln = (lc <= UNTREEIFY_THRESHOLD) ? untreeify(lo) : (hc != 0) ? new TreeBin<K, V>(lo) : t;
+							hn = (hc <= UNTREEIFY_THRESHOLD) ? untreeify(hi) : (lc != 0) ? new TreeBin<K, V>(hi) : t;
+							nextTab.set(i, ln);
+							nextTab.set(i + n, hn);
+							tab.set(i, fwd);
+							advance = true;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Counter support
+
+	static final class CounterCell
+	{
+		volatile long value;
+
+		CounterCell(long x)
+		{
+			value = x;
+		}
+	}
+
+	private static final AtomicLongFieldUpdater<CounterCell> CELLVALUE = AtomicLongFieldUpdater
+			.newUpdater(CounterCell.class, "value");
+
+	private static final AtomicInteger PROBE_SEED = new AtomicInteger();
+
+	// Per-thread counter cell index, rehashed on contention
+	private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			int seed = PROBE_SEED.addAndGet(0x9e3779b9);
+			return new int[] { (seed == 0) ? 1 : seed };
+		}
+	};
+
+	final long sumCount()
+	{
+		CounterCell[] cs = counterCells;
+		long sum = baseCount;
+		if (cs != null)
+		{
+			for (CounterCell c : cs)
+			{
+				if (c != null)
+					sum += c.value;
+			}
+		}
+		return sum;
+	}
+
+	private final void fullAddCount(long x)
+	{
+		int[] probe = PROBE.get();
+		for (;;)
+		{
+			CounterCell[] cs = counterCells;
+			if (cs == null)
+			{
+				if (cellsBusy == 0 && CELLSBUSY.compareAndSet(this, 0, 1))
+				{
+					try
+					{
+						if (counterCells == null)
+							counterCells = new CounterCell[COUNTER_CELLS];
+					}
+					finally
+					{
+						cellsBusy = 0;
+					}
+					continue;
+				}
+				long b = baseCount;
+				if (BASECOUNT.compareAndSet(this, b, b + x))
+					return; // fall back on using base
+				continue;
+			}
+			CounterCell c = cs[probe[0] & (cs.length - 1)];
+			if (c == null)
+			{
+				if (cellsBusy == 0 && CELLSBUSY.compareAndSet(this, 0, 1))
+				{
+					try
+					{
+						int j = probe[0] & (cs.length - 1);
+						if (cs[j] == null)
+						{
+							cs[j] = new CounterCell(x);
+							return;
+						}
+					}
+					finally
+					{
+						cellsBusy = 0;
+					}
+				}
+				continue;
+			}
+			long v = c.value;
+			if (CELLVALUE.compareAndSet(c, v, v + x))
+				return;
+			// contended, move to another cell
+			int h = probe[0];
+			h ^= h << 13;
+			h ^= h >>> 17;
+			h ^= h << 5;
+			probe[0] = h;
+		}
+	}
+
+	// Special nodes
+
+	/**
+	 * Placed at the head of a bin whose nodes have been moved to nextTable.
+	 */
+	static final class ForwardingNode<K, V> extends Node<K, V>
+	{
+		final AtomicReferenceArray<Node<K, V>> nextTable;
+
+		ForwardingNode(AtomicReferenceArray<Node<K, V>> tab)
+		{
+			super(MOVED, null, null, null);
+			this.nextTable = tab;
+		}
+
+		@Override
+		Node<K, V> find(int h, Object k)
+		{
+			// loop to avoid arbitrarily deep recursion on forwarding nodes
+			outer: for (AtomicReferenceArray<Node<K, V>> tab = nextTable;;)
+			{
+				Node<K, V> e;
+				int n;
+				if (k == null || tab == null || (n = tab.length()) == 0 || (e = tab.get((n - 1) & h)) == null)
+					return null;
+				for (;;)
+				{
+					int eh;
+					K ek;
+					if ((eh = e.hash) == h && ((ek = e.key) == k || (ek != null && k.equals(ek))))
+						return e;
+					if (eh < 0)
+					{
+						if (e instanceof ForwardingNode)
+						{
+							tab = ((ForwardingNode<K, V>) e).nextTable;
+							continue outer;
+						}
+						else
+							return e.find(h, k);
+					}
+					if ((e = e.next) == null)
+						return null;
+				}
+			}
+		}
+	}
+
+	// Tree bins
+
+	/**
+	 * Replaces the list of the bin at index by a tree bin, unless the table
+	 * is so small that it should grow instead.
+	 */
+	private final void treeifyBin(AtomicReferenceArray<Node<K, V>> tab, int index)
+	{
+		Node<K, V> b;
+		int n;
+		if (tab != null)
+		{
+			if ((n = tab.length()) < MIN_TREEIFY_CAPACITY)
+				tryPresize(n << 1);
+			else if ((b = tab.get(index)) != null && b.hash >= 0)
+			{
+				synchronized (b)
+				{
+					if (tab.get(index) == b)
+					{
+						TreeNode<K, V> hd = null, tl = null;
+						for (Node<K, V> e = b; e != null; e = e.next)
+						{
+							TreeNode<K, V> p = new TreeNode<K, V>(e.hash, e.key, e.val, null, null);
+							if ((p.prev = tl) == null)
+								hd = p;
+							else
+								tl.next = p;
+							tl = p;
+						}
+						tab.set(index, new TreeBin<K, V>(hd));
+					}
+				}
+			}
+		}
+	}
+
+	// A list of plain nodes replacing the given nodes
+	static <K, V> Node<K, V> untreeify(Node<K, V> b)
+	{
+		Node<K, V> hd = null, tl = null;
+		for (Node<K, V> q = b; q != null; q = q.next)
+		{
+			Node<K, V> p = new Node<K, V>(q.hash, q.key, q.val, null);
+			if (tl == null)
+				hd = p;
+			else
+				tl.next = p;
+			tl = p;
+		}
+		return hd;
+	}
+
+	static final class TreeNode<K, V> extends Node<K, V>
+	{
+		TreeNode<K, V> parent; // red-black tree links
+		TreeNode<K, V> left;
+		TreeNode<K, V> right;
+		TreeNode<K, V> prev; // needed to unlink next upon deletion
+		boolean red;
+
+		TreeNode(int hash, K key, V val, Node<K, V> next, TreeNode<K, V> parent)
+		{
+			super(hash, key, val, next);
+			this.parent = parent;
+		}
+
+		@Override
+		Node<K, V> find(int h, Object k)
+		{
+			return findTreeNode(h, k, null);
+		}
+
+		final TreeNode<K, V> findTreeNode(int h, Object k, Class<?> kc)
+		{
+			if (k != null)
+			{
+				TreeNode<K, V> p = this;
+				do
+				{
+					int ph, dir;
+					K pk;
+					TreeNode<K, V> q;
+					TreeNode<K, V> pl = p.left, pr = p.right;
+					if ((ph = p.hash) > h)
+						p = pl;
+					else if (ph < h)
+						p = pr;
+					else if ((pk = p.key) == k || (pk != null && k.equals(pk)))
+						return p;
+					else if (pl == null)
+						p = pr;
+					else if (pr == null)
+						p = pl;
+					else if ((kc != null || (kc = HashMap.comparableClassFor(k)) != null)
+							&& (dir = HashMap.compareComparables(kc, k, pk)) != 0)
+						p = (dir < 0) ? pl : pr;
+					else if ((q = pr.findTreeNode(h, k, kc)) != null)
+						return q;
+					else
+						p = pl;
+				}
+				while (p != null);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Head of a tree bin. Holds the root of the red-black tree and the list of
+	 * its nodes in insertion order. Writers already hold the lock of this
+	 * node; they also take the write lock while rebalancing, and readers that
+	 * cannot get the read lock search the list instead.
+	 */
+	static final class TreeBin<K, V> extends Node<K, V>
+	{
+		TreeNode<K, V> root;
+		volatile TreeNode<K, V> first;
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		TreeBin(TreeNode<K, V> b)
+		{
+			super(TREEBIN, null, null, null);
+			this.first = b;
+			TreeNode<K, V> r = null;
+			for (TreeNode<K, V> x = b, next; x != null; x = next)
+			{
+				next = (TreeNode<K, V>) x.next;
+				x.left = x.right = null;
+				if (r == null)
+				{
+					x.parent = null;
+					x.red = false;
+					r = x;
+				}
+				else
+				{
+					K k = x.key;
+					int h = x.hash;
+					Class<?> kc = null;
+					for (TreeNode<K, V> p = r;;)
+					{
+						int dir, ph;
+						K pk = p.key;
+						if ((ph = p.hash) > h)
+							dir = -1;
+						else if (ph < h)
+							dir = 1;
+						else if ((kc == null && (kc = HashMap.comparableClassFor(k)) == null)
+								|| (dir = HashMap.compareComparables(kc, k, pk)) == 0)
+							dir = HashMap.TreeNode.tieBreakOrder(k, pk);
+						TreeNode<K, V> xp = p;
+						if ((p = (dir <= 0) ? p.left : p.right) == null)
+						{
+							x.parent = xp;
+							if (dir <= 0)
+								xp.left = x;
+							else
+								xp.right = x;
+							r = balanceInsertion(r, x);
+							break;
+						}
+					}
+				}
+			}
+			this.root = r;
+		}
+
+		@Override
+		Node<K, V> find(int h, Object k)
+		{
+			if (k != null)
+			{
+				ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+				if (readLock.tryLock())
+				{
+					try
+					{
+						TreeNode<K, V> r = root;
+						return (r == null) ? null : r.findTreeNode(h, k, null);
+					}
+					finally
+					{
+						readLock.unlock();
+					}
+				}
+				// the tree is being rebalanced, search the list instead
+				for (Node<K, V> e = first; e != null; e = e.next)
+				{
+					K ek;
+					if (e.hash == h && ((ek = e.key) == k || (ek != null && k.equals(ek))))
+						return e;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Adds a node for k unless there is one already.
+		 *
+		 * @return the existing node of k, or null if it was added
+		 */
+		final TreeNode<K, V> putTreeVal(int h, K k, V v)
+		{
+			Class<?> kc = null;
+			boolean searched = false;
+			for (TreeNode<K, V> p = root;;)
+			{
+				int dir, ph;
+				K pk;
+				if (p == null)
+				{
+					first = root = new TreeNode<K, V>(h, k, v, null, null);
+					break;
+				}
+				else if ((ph = p.hash) > h)
+					dir = -1;
+				else if (ph < h)
+					dir = 1;
+				else if ((pk = p.key) == k || (pk != null && k.equals(pk)))
+					return p;
+				else if ((kc == null && (kc = HashMap.comparableClassFor(k)) == null)
+						|| (dir = HashMap.compareComparables(kc, k, pk)) == 0)
+				{
+					if (!searched)
+					{
+						TreeNode<K, V> q, ch;
+						searched = true;
+						if (((ch = p.left) != null && (q = ch.findTreeNode(h, k, kc)) != null)
+								|| ((ch = p.right) != null && (q = ch.findTreeNode(h, k, kc)) != null))
+							return q;
+					}
+					dir = HashMap.TreeNode.tieBreakOrder(k, pk);
+				}
+
+				TreeNode<K, V> xp = p;
+				if ((p = (dir <= 0) ? p.left : p.right) == null)
+				{
+					TreeNode<K, V> x, f = first;
+					first = x = new TreeNode<K, V>(h, k, v, f, xp);
+					if (f != null)
+						f.prev = x;
+					if (dir <= 0)
+						xp.left = x;
+					else
+						xp.right = x;
+					if (!xp.red)
+						x.red = true;
+					else
+					{
+						lock.writeLock().lock();
+						try
+						{
+							root = balanceInsertion(root, x);
+						}
+						finally
+						{
+							lock.writeLock().unlock();
+						}
+					}
+					break;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Removes the given node, which must be present.
+		 *
+		 * @return true if the bin is now too small and should be untreeified
+		 */
+		final boolean removeTreeNode(TreeNode<K, V> p)
+		{
+			TreeNode<K, V> next = (TreeNode<K, V>) p.next;
+			TreeNode<K, V> pred = p.prev; // unlink traversal pointers
+			TreeNode<K, V> r, rl;
+			if (pred == null)
+				first = next;
+			else
+				pred.next = next;
+			if (next != null)
+				next.prev = pred;
+			if (first == null)
+			{
+				root = null;
+				return true;
+			}
+			if ((r = root) == null || r.right == null || (rl = r.left) == null || rl.left == null)
+				return true; // too small
+			lock.writeLock().lock();
+			try
+			{
+				TreeNode<K, V> replacement;
+				TreeNode<K, V> pl = p.left;
+				TreeNode<K, V> pr = p.right;
+				if (pl != null && pr != null)
+				{
+					TreeNode<K, V> s = pr, sl;
+					while ((sl = s.left) != null) // find successor
+						s = sl;
+					boolean c = s.red;
+					s.red = p.red;
+					p.red = c; // swap colors
+					TreeNode<K, V> sr = s.right;
+					TreeNode<K, V> pp = p.parent;
+					if (s == pr)
+					{ // p was s's direct parent
+						p.parent = s;
+						s.right = p;
+					}
+					else
+					{
+						TreeNode<K, V> sp = s.parent;
+						if ((p.parent = sp) != null)
+						{
+							if (s == sp.left)
+								sp.left = p;
+							else
+								sp.right = p;
+						}
+						if ((s.right = pr) != null)
+							pr.parent = s;
+					}
+					p.left = null;
+					if ((p.right = sr) != null)
+						sr.parent = p;
+					if ((s.left = pl) != null)
+						pl.parent = s;
+					if ((s.parent = pp) == null)
+						r = s;
+					else if (p == pp.left)
+						pp.left = s;
+					else
+						pp.right = s;
+					if (sr != null)
+						replacement = sr;
+					else
+						replacement = p;
+				}
+				else if (pl != null)
+					replacement = pl;
+				else if (pr != null)
+					replacement = pr;
+				else
+					replacement = p;
+				if (replacement != p)
+				{
+					TreeNode<K, V> pp = replacement.parent = p.parent;
+					if (pp == null)
+						r = replacement;
+					else if (p == pp.left)
+						pp.left = replacement;
+					else
+						pp.right = replacement;
+					p.left = p.right = p.parent = null;
+				}
+
+				root = (p.red) ? r : balanceDeletion(r, replacement);
+
+				if (p == replacement)
+				{ // detach pointers
+					TreeNode<K, V> pp;
+					if ((pp = p.parent) != null)
+					{
+						if (p == pp.left)
+							pp.left = null;
+						else if (p == pp.right)
+							pp.right = null;
+						p.parent = null;
+					}
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+			return false;
+		}
+
+		// Red-black tree methods, all adapted from CLR
+
+		static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> root, TreeNode<K, V> p)
+		{
+			TreeNode<K, V> r, pp, rl;
+			if (p != null && (r = p.right) != null)
+			{
+				if ((rl = p.right = r.left) != null)
+					rl.parent = p;
+				if ((pp = r.parent = p.parent) == null)
+					(root = r).red = false;
+				else if (pp.left == p)
+					pp.left = r;
+				else
+					pp.right = r;
+				r.left = p;
+				p.parent = r;
+			}
+			return root;
+		}
+
+		static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> root, TreeNode<K, V> p)
+		{
+			TreeNode<K, V> l, pp, lr;
+			if (p != null && (l = p.left) != null)
+			{
+				if ((lr = p.left = l.right) != null)
+					lr.parent = p;
+				if ((pp = l.parent = p.parent) == null)
+					(root = l).red = false;
+				else if (pp.right == p)
+					pp.right = l;
+				else
+					pp.left = l;
+				l.right = p;
+				p.parent = l;
+			}
+			return root;
+		}
+
+		static <K, V> TreeNode<K, V> balanceInsertion(TreeNode<K, V> root, TreeNode<K, V> x)
+		{
+			x.red = true;
+			for (TreeNode<K, V> xp, xpp, xppl, xppr;;)
+			{
+				if ((xp = x.parent) == null)
+				{
+					x.red = false;
+					return x;
+				}
+				else if (!xp.red || (xpp = xp.parent) == null)
+					return root;
+				if (xp == (xppl = xpp.left))
+				{
+					if ((xppr = xpp.right) != null && xppr.red)
+					{
+						xppr.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					}
+					else
+					{
+						if (x == xp.right)
+						{
+							root = rotateLeft(root, x = xp);
+							xpp = (xp = x.parent) == null ? null : xp.parent;
+						}
+						if (xp != null)
+						{
+							xp.red = false;
+							if (xpp != null)
+							{
+								xpp.red = true;
+								root = rotateRight(root, xpp);
+							}
+						}
+					}
+				}
+				else
+				{
+					if (xppl != null && xppl.red)
+					{
+						xppl.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					}
+					else
+					{
+						if (x == xp.left)
+						{
+							root = rotateRight(root, x = xp);
+							xpp = (xp = x.parent) == null ? null : xp.parent;
+						}
+						if (xp != null)
+						{
+							xp.red = false;
+							if (xpp != null)
+							{
+								xpp.red = true;
+								root = rotateLeft(root, xpp);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		static <K, V> TreeNode<K, V> balanceDeletion(TreeNode<K, V> root, TreeNode<K, V> x)
+		{
+			for (TreeNode<K, V> xp, xpl, xpr;;)
+			{
+				if (x == null || x == root)
+					return root;
+				else if ((xp = x.parent) == null)
+				{
+					x.red = false;
+					return x;
+				}
+				else if (x.red)
+				{
+					x.red = false;
+					return root;
+				}
+				else if ((xpl = xp.left) == x)
+				{
+					if ((xpr = xp.right) != null && xpr.red)
+					{
+						xpr.red = false;
+						xp.red = true;
+						root = rotateLeft(root, xp);
+						xpr = (xp = x.parent) == null ? null : xp.right;
+					}
+					if (xpr == null)
+						x = xp;
+					else
+					{
+						TreeNode<K, V> sl = xpr.left, sr = xpr.right;
+						if ((sr == null || !sr.red) && (sl == null || !sl.red))
+						{
+							xpr.red = true;
+							x = xp;
+						}
+						else
+						{
+							if (sr == null || !sr.red)
+							{
+								if (sl != null)
+									sl.red = false;
+								xpr.red = true;
+								root = rotateRight(root, xpr);
+								xpr = (xp = x.parent) == null ? null : xp.right;
+							}
+							if (xpr != null)
+							{
+								xpr.red = (xp == null) ? false : xp.red;
+								if ((sr = xpr.right) != null)
+									sr.red = false;
+							}
+							if (xp != null)
+							{
+								xp.red = false;
+								root = rotateLeft(root, xp);
+							}
+							x = root;
+						}
+					}
+				}
+				else
+				{ // symmetric
+					if (xpl != null && xpl.red)
+					{
+						xpl.red = false;
+						xp.red = true;
+						root = rotateRight(root, xp);
+						xpl = (xp = x.parent) == null ? null : xp.left;
+					}
+					if (xpl == null)
+						x = xp;
+					else
+					{
+						TreeNode<K, V> sl = xpl.left, sr = xpl.right;
+						if ((sl == null || !sl.red) && (sr == null || !sr.red))
+						{
+							xpl.red = true;
+							x = xp;
+						}
+						else
+						{
+							if (sl == null || !sl.red)
+							{
+								if (sr != null)
+									sr.red = false;
+								xpl.red = true;
+								root = rotateLeft(root, xpl);
+								xpl = (xp = x.parent) == null ? null : xp.left;
+							}
+							if (xpl != null)
+							{
+								xpl.red = (xp == null) ? false : xp.red;
+								if ((sl = xpl.left) != null)
+									sl.red = false;
+							}
+							if (xp != null)
+							{
+								xp.red = false;
+								root = rotateRight(root, xp);
+							}
+							x = root;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Traversal
+
+	// Records the table, length and index of a forwarding node being
+	// traversed
+	static final class TableStack<K, V>
+	{
+		int length;
+		int index;
+		AtomicReferenceArray<Node<K, V>> tab;
+		TableStack<K, V> next;
+	}
+
+	/**
+	 * Walks the nodes of the map, following forwarding nodes into the tables
+	 * of concurrent resizes. Every node present for the whole traversal is
+	 * returned exactly once.
+	 */
+	static class Traverser<K, V>
+	{
+		AtomicReferenceArray<Node<K, V>> tab; // current table; updated if resized
+		Node<K, V> next; // the next entry to use
+		TableStack<K, V> stack, spare; // to save/restore on ForwardingNodes
+		int index; // index of bin to use next
+		int baseIndex; // current index of initial table
+		int baseLimit; // index bound for initial table
+		final int baseSize; // initial table size
+
+		Traverser(AtomicReferenceArray<Node<K, V>> tab, int size, int index, int limit)
+		{
+			this.tab = tab;
+			this.baseSize = size;
+			this.baseIndex = this.index = index;
+			this.baseLimit = limit;
+			this.next = null;
+		}
+
+		/**
+		 * Advances if possible, returning next valid node, or null if none.
+		 */
+		final Node<K, V> advance()
+		{
+			Node<K, V> e;
+			if ((e = next) != null)
+				e = e.next;
+			for (;;)
+			{
+				AtomicReferenceArray<Node<K, V>> t;
+				int i, n; // must use locals in checks
+				if (e != null)
+					return next = e;
+				if (baseIndex >= baseLimit || (t = tab) == null || (n = t.length()) <= (i = index) || i < 0)
+					return next = null;
+				if ((e = t.get(i)) != null && e.hash < 0)
+				{
+					if (e instanceof ForwardingNode)
+					{
+						tab = ((ForwardingNode<K, V>) e).nextTable;
+						e = null;
+						pushState(t, i, n);
+						continue;
+					}
+					else if (e instanceof TreeBin)
+						e = ((TreeBin<K, V>) e).first;
+					else
+						e = null;
+				}
+				if (stack != null)
+					recoverState(n);
+				else if ((index = i + baseSize) >= n)
+					index = ++baseIndex; // visit upper slots if present
+			}
+		}
+
+		private void pushState(AtomicReferenceArray<Node<K, V>> t, int i, int n)
+		{
+			TableStack<K, V> s = spare; // reuse if possible
+			if (s != null)
+				spare = s.next;
+			else
+				s = new TableStack<K, V>();
+			s.tab = t;
+			s.length = n;
+			s.index = i;
+			s.next = stack;
+			stack = s;
+		}
+
+		private void recoverState(int n)
+		{
+			TableStack<K, V> s;
+			int len;
+			while ((s = stack) != null && (index += (len = s.length)) >= n)
+			{
+				n = len;
+				index = s.index;
+				tab = s.tab;
+				s.tab = null;
+				TableStack<K, V> next = s.next;
+				s.next = spare; // save for reuse
+				stack = next;
+				spare = s;
+			}
+			if (s == null && (index += baseSize) >= n)
+				index = ++baseIndex;
+		}
+	}
+}
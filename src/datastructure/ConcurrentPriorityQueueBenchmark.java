@@ -0,0 +1,329 @@
+package datastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.Benchmark;
+
+/**
+ * Benchmarks the concurrent priority queues {@link MultiQueue} and
+ * {@link SkipListPriorityQueue} against {@link PriorityQueue} guarded by a
+ * lock, with p threads started by each operation. Workloads:
+ * <ul>
+ * <li>MIXED prefills the queue with n random keys, then the threads make n
+ * operations in all, alternating offer and poll; the reported ops/s is the
+ * throughput in queue operations;</li>
+ * <li>DRAIN prefills the queue with a permutation of 0..n-1, then the
+ * threads poll it empty. The i-th poll to finish should return about i, so
+ * the mean of |key - i| over all polls, the rank error, measures how far the
+ * order strays from a strict queue.</li>
+ * </ul>
+ * Usage: <tt>ConcurrentPriorityQueueBenchmark [-p 1,2,4] [-n 1000000]
+ * [-c 2] [-q MultiQueue,...] [-l MIXED,DRAIN] [-w warmup] [-i iterations]
+ * [-t millis]</tt>
+ */
+public class ConcurrentPriorityQueueBenchmark
+{
+
+	public enum Workload
+	{
+		MIXED, DRAIN
+	}
+
+	// The queue implementations behind one interface
+	private static abstract class Target
+	{
+		final String name;
+
+		Target(String name)
+		{
+			this.name = name;
+		}
+
+		abstract void create(int threads, int c);
+
+		abstract void offer(Integer e);
+
+		abstract Integer poll();
+	}
+
+	private static List<Target> targets()
+	{
+		List<Target> targets = new ArrayList<Target>();
+		targets.add(new Target("MultiQueue")
+		{
+			MultiQueue<Integer> queue;
+
+			void create(int threads, int c)
+			{
+				queue = new MultiQueue<Integer>(threads, c, null);
+			}
+
+			void offer(Integer e)
+			{
+				queue.offer(e);
+			}
+
+			Integer poll()
+			{
+				return queue.poll();
+			}
+		});
+		targets.add(new Target("SkipListPriorityQueue")
+		{
+			SkipListPriorityQueue<Integer> queue;
+
+			void create(int threads, int c)
+			{
+				queue = new SkipListPriorityQueue<Integer>();
+			}
+
+			void offer(Integer e)
+			{
+				queue.offer(e);
+			}
+
+			Integer poll()
+			{
+				return queue.poll();
+			}
+		});
+		targets.add(new Target("synchronized PriorityQueue")
+		{
+			final Object lock = new Object();
+
+			PriorityQueue<Integer> queue;
+
+			void create(int threads, int c)
+			{
+				queue = new PriorityQueue<Integer>();
+			}
+
+			void offer(Integer e)
+			{
+				synchronized (lock)
+				{
+					queue.offer(e);
+				}
+			}
+
+			Integer poll()
+			{
+				synchronized (lock)
+				{
+					return queue.poll();
+				}
+			}
+		});
+		return targets;
+	}
+
+	// Runs one worker per thread and returns the sum of their results
+	private static abstract class Workers
+	{
+		abstract long work(int thread, int threads);
+
+		long run(final int threads)
+		{
+			final long[] results = new long[threads];
+			Thread[] workers = new Thread[threads];
+			for (int p = 0; p < threads; p++)
+			{
+				final int thread = p;
+				workers[p] = new Thread()
+				{
+					@Override
+					public void run()
+					{
+						results[thread] = work(thread, threads);
+					}
+				};
+				workers[p].start();
+			}
+			long sum = 0;
+			try
+			{
+				for (int p = 0; p < threads; p++)
+				{
+					workers[p].join();
+					sum += results[p];
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return sum;
+		}
+	}
+
+	// A DRAIN operation, which keeps the rank error of its last run
+	private static final class Drain extends Benchmark.Operation
+	{
+		final Target t;
+		final int threads, c;
+		final Integer[] keys;
+		final AtomicLong ticket = new AtomicLong();
+		volatile double rankError;
+
+		Drain(Target t, int threads, int c, int n)
+		{
+			this.t = t;
+			this.threads = threads;
+			this.c = c;
+			keys = new Integer[n];
+			for (int i = 0; i < n; i++)
+				keys[i] = Integer.valueOf(i);
+			Random random = new Random(42);
+			for (int i = n - 1; i > 0; i--)
+			{
+				int j = random.nextInt(i + 1);
+				Integer swap = keys[i];
+				keys[i] = keys[j];
+				keys[j] = swap;
+			}
+		}
+
+		@Override
+		public void setup()
+		{
+			t.create(threads, c);
+			for (Integer key : keys)
+				t.offer(key);
+			ticket.set(0);
+		}
+
+		@Override
+		public long run()
+		{
+			long error = new Workers()
+			{
+				long work(int thread, int threads)
+				{
+					long error = 0;
+					for (Integer e; (e = t.poll()) != null;)
+						error += Math.abs(e - ticket.getAndIncrement());
+					return error;
+				}
+			}.run(threads);
+			rankError = (double) error / keys.length;
+			return error;
+		}
+	}
+
+	private static Benchmark.Operation mixed(final Target t, final int threads, final int c, final int n)
+	{
+		final Integer[] keys = new Integer[2 * n];
+		Random random = new Random(42);
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = Integer.valueOf(random.nextInt(Integer.MAX_VALUE));
+		return new Benchmark.Operation()
+		{
+			@Override
+			public void setup()
+			{
+				t.create(threads, c);
+				for (int i = 0; i < n; i++)
+					t.offer(keys[i]);
+			}
+
+			@Override
+			public long run()
+			{
+				return new Workers()
+				{
+					long work(int thread, int threads)
+					{
+						long sum = 0;
+						int from = (int) ((long) n * thread / threads);
+						int to = (int) ((long) n * (thread + 1) / threads);
+						for (int i = from; i < to; i++)
+						{
+							if ((i & 1) == 0)
+								t.offer(keys[n + i]);
+							else
+							{
+								Integer e = t.poll();
+								if (e != null)
+									sum += e;
+							}
+						}
+						return sum;
+					}
+				}.run(threads);
+			}
+		};
+	}
+
+	public static void main(String[] args)
+	{
+		int[] threadCounts = { 1, 2, 4 };
+		int n = 1000000;
+		int c = 2;
+		List<String> queues = null;
+		List<Workload> workloads = Arrays.asList(Workload.values());
+		int warmup = 3, iterations = 5, millis = 500;
+
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			String value = args[i + 1];
+			if (args[i].equals("-p"))
+			{
+				String[] parts = value.split(",");
+				threadCounts = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					threadCounts[j] = Integer.parseInt(parts[j]);
+			}
+			else if (args[i].equals("-n"))
+				n = Integer.parseInt(value);
+			else if (args[i].equals("-c"))
+				c = Integer.parseInt(value);
+			else if (args[i].equals("-q"))
+				queues = Arrays.asList(value.split(","));
+			else if (args[i].equals("-l"))
+			{
+				workloads = new ArrayList<Workload>();
+				for (String l : value.split(","))
+					workloads.add(Workload.valueOf(l));
+			}
+			else if (args[i].equals("-w"))
+				warmup = Integer.parseInt(value);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (args[i].equals("-t"))
+				millis = Integer.parseInt(value);
+			else
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+		List<Target> targets = targets();
+		for (Workload w : workloads)
+		{
+			for (int p : threadCounts)
+			{
+				for (Target t : targets)
+				{
+					if (queues != null && !queues.contains(t.name))
+						continue;
+					if (w == Workload.DRAIN)
+					{
+						Drain drain = new Drain(t, p, c, n);
+						Benchmark.Result r = benchmark.measure(drain);
+						System.out.printf("%-5s p=%-2d %-26s %12.0f ops/s  rank error %10.1f  %s%n", w, p,
+								t.name, r.throughput() * n, drain.rankError, r);
+					}
+					else
+					{
+						Benchmark.Result r = benchmark.measure(mixed(t, p, c, n));
+						System.out.printf("%-5s p=%-2d %-26s %12.0f ops/s  %s%n", w, p, t.name,
+								r.throughput() * n, r);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free last-in-first-out stack for any number of producer and
+ * consumer threads (Treiber's algorithm). The stack is a singly linked list
+ * whose head is swung by compare-and-set, so push and pop never block and a
+ * thread that stalls between reading and swinging the head only delays its
+ * own retry. Nodes are never reused, which keeps the algorithm free of ABA.
+ * <p>
+ * Null elements are not permitted, pop and peek return null when the stack
+ * is empty. Use {@link ArrayStack} when the stack has a single owner.
+ *
+ * @param <E>
+ *            the type/class of elements held in this stack.
+ */
+public class ConcurrentStack<E>
+{
+	private static final class Node<E>
+	{
+		final E item;
+
+		Node<E> next;
+
+		Node(E item)
+		{
+			this.item = item;
+		}
+	}
+
+	private final AtomicReference<Node<E>> head = new AtomicReference<>();
+
+	public E push(E item)
+	{
+		if (item == null)
+			throw new NullPointerException();
+		Node<E> node = new Node<>(item);
+		Node<E> h;
+		do
+		{
+			h = head.get();
+			node.next = h;
+		}
+		while (!head.compareAndSet(h, node));
+		return item;
+	}
+
+	/**
+	 * Removes and returns the top element, or returns null if the stack is
+	 * empty.
+	 */
+	public E pop()
+	{
+		Node<E> h;
+		do
+		{
+			h = head.get();
+			if (h == null)
+				return null;
+		}
+		while (!head.compareAndSet(h, h.next));
+		return h.item;
+	}
+
+	/**
+	 * Returns the top element, or null if the stack is empty.
+	 */
+	public E peek()
+	{
+		Node<E> h = head.get();
+		return (h == null) ? null : h.item;
+	}
+
+	public boolean isEmpty()
+	{
+		return head.get() == null;
+	}
+
+	/**
+	 * Returns the number of elements. This walks the list and is only a
+	 * snapshot while other threads push and pop.
+	 */
+	public int size()
+	{
+		int n = 0;
+		for (Node<E> p = head.get(); p != null; p = p.next)
+			n++;
+		return n;
+	}
+
+	/**
+	 * Removes all elements at once and returns them in pop order, so that a
+	 * consumer can take a batch with a single compare-and-set.
+	 */
+	public ArrayStack<E> popAll()
+	{
+		Node<E> h = head.getAndSet(null);
+		ArrayStack<E> reverse = new ArrayStack<>();
+		for (Node<E> p = h; p != null; p = p.next)
+			reverse.push(p.item);
+		ArrayStack<E> batch = new ArrayStack<>(reverse.size());
+		while (!reverse.isEmpty())
+			batch.push(reverse.pop());
+		return batch;
+	}
+}
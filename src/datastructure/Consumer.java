@@ -0,0 +1,10 @@
+package datastructure;
+
+/**
+ * An operation on one argument, for the drain methods of
+ * {@link BoundedQueue}.
+ */
+public interface Consumer<T>
+{
+	void accept(T t);
+}
@@ -0,0 +1,361 @@
+package datastructure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A cuckoo filter over long IDs: like a {@link BloomFilter} it answers
+ * membership queries with no false negatives and a configurable rate of
+ * false positives, and in addition supports removal. Each element is reduced
+ * to an f-bit fingerprint stored in one of two buckets of four slots; the
+ * second bucket is the first xor a hash of the fingerprint, so an entry can
+ * be moved between its buckets knowing only the fingerprint. At a false
+ * positive rate p fingerprints take log2(8 / p) bits, about 10 bits per
+ * element at 1% and fewer than a Bloom filter below 0.3%.
+ * <p>
+ * The fingerprints are packed into a long[] bit array. An add may fail when
+ * the table is close to full, after which add returns false and the filter
+ * should be rebuilt larger. Only remove elements that were added: removing a
+ * false positive removes another element's fingerprint.
+ */
+public class CuckooFilter
+{
+	private static final int MAGIC = 0x434B4F31; // "CKO1"
+
+	private static final int BUCKET_SIZE = 4;
+
+	private static final int MAX_KICKS = 500;
+
+	private static final double LOAD_FACTOR = 0.95;
+
+	/**
+	 * Stores the fingerprints, slot s of bucket b at bit (b * 4 + s) * f. An
+	 * empty slot holds 0.
+	 */
+	private final long[] bits;
+
+	private final int fingerprintBits;
+
+	private final long fingerprintMask;
+
+	private final long bucketMask;
+
+	// Fingerprint that could not be placed after MAX_KICKS, 0 if none
+	private long victim;
+
+	private long victimBucket;
+
+	private long size;
+
+	// State of the xorshift generator picking the slot to evict
+	private long random = 0x2545F4914F6CDD1DL;
+
+	/**
+	 * Creates a filter for expectedInsertions elements with the given false
+	 * positive rate.
+	 */
+	public CuckooFilter(long expectedInsertions, double falsePositiveRate)
+	{
+		if (expectedInsertions < 0)
+			throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException("Illegal false positive rate: " + falsePositiveRate);
+		int f = (int) Math.ceil(Math.log(2.0 * BUCKET_SIZE / falsePositiveRate) / Math.log(2));
+		this.fingerprintBits = Math.max(4, Math.min(f, 32));
+		this.fingerprintMask = (1L << fingerprintBits) - 1;
+		long buckets = 1;
+		while (buckets * BUCKET_SIZE * LOAD_FACTOR < expectedInsertions)
+			buckets <<= 1;
+		if (buckets * BUCKET_SIZE * fingerprintBits > (long) Integer.MAX_VALUE << 6)
+			throw new IllegalArgumentException("Filter too large: " + expectedInsertions);
+		this.bucketMask = buckets - 1;
+		this.bits = new long[unitIndex(buckets * BUCKET_SIZE * fingerprintBits - 1) + 1];
+	}
+
+	private CuckooFilter(long[] bits, int fingerprintBits, long buckets)
+	{
+		this.bits = bits;
+		this.fingerprintBits = fingerprintBits;
+		this.fingerprintMask = (1L << fingerprintBits) - 1;
+		this.bucketMask = buckets - 1;
+	}
+
+	/**
+	 * Given a bit index return unit index containing it.
+	 */
+	private static int unitIndex(long bitIndex)
+	{
+		return (int) (bitIndex >>> 6);
+	}
+
+	// Fingerprint in slot of bucket
+	private long get(long bucket, int slot)
+	{
+		long bitIndex = (bucket * BUCKET_SIZE + slot) * fingerprintBits;
+		int unitIndex = unitIndex(bitIndex);
+		int offset = (int) (bitIndex & ((1 << 6) - 1));
+		long value = bits[unitIndex] >>> offset;
+		if (offset + fingerprintBits > 64)
+			value |= bits[unitIndex + 1] << (64 - offset);
+		return value & fingerprintMask;
+	}
+
+	private void set(long bucket, int slot, long fingerprint)
+	{
+		long bitIndex = (bucket * BUCKET_SIZE + slot) * fingerprintBits;
+		int unitIndex = unitIndex(bitIndex);
+		int offset = (int) (bitIndex & ((1 << 6) - 1));
+		bits[unitIndex] = (bits[unitIndex] & ~(fingerprintMask << offset)) | (fingerprint << offset);
+		int high = offset + fingerprintBits - 64;
+		if (high > 0)
+		{
+			long highMask = fingerprintMask >>> (fingerprintBits - high);
+			bits[unitIndex + 1] = (bits[unitIndex + 1] & ~highMask) | (fingerprint >>> (64 - offset));
+		}
+	}
+
+	// Nonzero fingerprint from the high bits of the hash, the bucket index
+	// comes from the low bits
+	private long fingerprint(long hash)
+	{
+		long fingerprint = hash >>> (64 - fingerprintBits);
+		return (fingerprint == 0) ? 1 : fingerprint;
+	}
+
+	private long altBucket(long bucket, long fingerprint)
+	{
+		return (bucket ^ BloomFilter.mix(fingerprint)) & bucketMask;
+	}
+
+	// Stores fingerprint in an empty slot of bucket, if any
+	private boolean insert(long bucket, long fingerprint)
+	{
+		for (int s = 0; s < BUCKET_SIZE; s++)
+		{
+			if (get(bucket, s) == 0)
+			{
+				set(bucket, s, fingerprint);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean contains(long bucket, long fingerprint)
+	{
+		for (int s = 0; s < BUCKET_SIZE; s++)
+		{
+			if (get(bucket, s) == fingerprint)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean delete(long bucket, long fingerprint)
+	{
+		for (int s = 0; s < BUCKET_SIZE; s++)
+		{
+			if (get(bucket, s) == fingerprint)
+			{
+				set(bucket, s, 0);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds id, and returns false if the filter is too full to hold it. An id
+	 * added more than once takes as many removes.
+	 */
+	public boolean add(long id)
+	{
+		long hash = BloomFilter.mix(id);
+		long fingerprint = fingerprint(hash);
+		return add(hash & bucketMask, fingerprint);
+	}
+
+	private boolean add(long bucket, long fingerprint)
+	{
+		if (victim != 0)
+			return false;
+		size++;
+		if (insert(bucket, fingerprint))
+			return true;
+		bucket = altBucket(bucket, fingerprint);
+		if (insert(bucket, fingerprint))
+			return true;
+		// evict a random entry to its other bucket, and so on
+		for (int kick = 0; kick < MAX_KICKS; kick++)
+		{
+			random ^= random << 13;
+			random ^= random >>> 7;
+			random ^= random << 17;
+			int slot = (int) (random & (BUCKET_SIZE - 1));
+			long evicted = get(bucket, slot);
+			set(bucket, slot, fingerprint);
+			fingerprint = evicted;
+			bucket = altBucket(bucket, fingerprint);
+			if (insert(bucket, fingerprint))
+				return true;
+		}
+		// keep the last evicted entry aside so that nothing is lost
+		victim = fingerprint;
+		victimBucket = bucket;
+		return true;
+	}
+
+	/**
+	 * Returns false if id was never added, true if it probably was.
+	 */
+	public boolean mightContain(long id)
+	{
+		long hash = BloomFilter.mix(id);
+		long fingerprint = fingerprint(hash);
+		long bucket = hash & bucketMask;
+		long alt = altBucket(bucket, fingerprint);
+		if (contains(bucket, fingerprint) || contains(alt, fingerprint))
+			return true;
+		return victim == fingerprint && (victimBucket == bucket || victimBucket == alt);
+	}
+
+	/**
+	 * Removes one occurrence of id, which must have been added, and returns
+	 * false if no matching fingerprint was found.
+	 */
+	public boolean remove(long id)
+	{
+		long hash = BloomFilter.mix(id);
+		long fingerprint = fingerprint(hash);
+		long bucket = hash & bucketMask;
+		long alt = altBucket(bucket, fingerprint);
+		if (victim == fingerprint && (victimBucket == bucket || victimBucket == alt))
+		{
+			victim = 0;
+			size--;
+			return true;
+		}
+		if (delete(bucket, fingerprint) || delete(alt, fingerprint))
+		{
+			size--;
+			// the freed slot may take the victim back
+			if (victim != 0)
+			{
+				long fp = victim;
+				victim = 0;
+				size--;
+				add(victimBucket, fp);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements added and not removed.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	public int fingerprintBits()
+	{
+		return fingerprintBits;
+	}
+
+	public long bucketCount()
+	{
+		return bucketMask + 1;
+	}
+
+	/**
+	 * Returns an upper bound on the probability that mightContain reports an
+	 * element that was never added, at the current load.
+	 */
+	public double expectedFalsePositiveRate()
+	{
+		double load = (double) size / ((bucketMask + 1) * BUCKET_SIZE);
+		return Math.min(1, 2 * BUCKET_SIZE * load / (1L << fingerprintBits));
+	}
+
+	/**
+	 * Adds all elements of other, which must have been created with the same
+	 * parameters, and returns false if this filter became too full to hold
+	 * them all. Fingerprints are reinserted since, unlike Bloom filters, two
+	 * cuckoo filters cannot be combined bitwise.
+	 */
+	public boolean union(CuckooFilter other)
+	{
+		if (other.fingerprintBits != fingerprintBits || other.bucketMask != bucketMask)
+			throw new IllegalArgumentException("Incompatible filters");
+		boolean complete = true;
+		for (long b = 0; b <= other.bucketMask; b++)
+		{
+			for (int s = 0; s < BUCKET_SIZE; s++)
+			{
+				long fingerprint = other.get(b, s);
+				if (fingerprint != 0)
+					complete &= add(b, fingerprint);
+			}
+		}
+		if (other.victim != 0)
+			complete &= add(other.victimBucket, other.victim);
+		return complete;
+	}
+
+	public void clear()
+	{
+		java.util.Arrays.fill(bits, 0L);
+		victim = 0;
+		size = 0;
+	}
+
+	/**
+	 * Writes this filter to out, see {@link #readFrom(InputStream)}.
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(fingerprintBits);
+		data.writeLong(bucketMask + 1);
+		data.writeLong(size);
+		data.writeLong(victim);
+		data.writeLong(victimBucket);
+		data.writeInt(bits.length);
+		for (long unit : bits)
+			data.writeLong(unit);
+		data.flush();
+	}
+
+	/**
+	 * Reads a filter written by {@link #writeTo(OutputStream)}.
+	 */
+	public static CuckooFilter readFrom(InputStream in) throws IOException
+	{
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a cuckoo filter");
+		int fingerprintBits = data.readInt();
+		long buckets = data.readLong();
+		long size = data.readLong();
+		long victim = data.readLong();
+		long victimBucket = data.readLong();
+		int length = data.readInt();
+		if (fingerprintBits < 4 || fingerprintBits > 32 || buckets < 1 || (buckets & (buckets - 1)) != 0
+				|| length != unitIndex(buckets * BUCKET_SIZE * fingerprintBits - 1) + 1)
+			throw new IOException("Corrupt cuckoo filter");
+		long[] bits = new long[length];
+		for (int i = 0; i < length; i++)
+			bits[i] = data.readLong();
+		CuckooFilter filter = new CuckooFilter(bits, fingerprintBits, buckets);
+		filter.size = size;
+		filter.victim = victim;
+		filter.victimBucket = victimBucket;
+		return filter;
+	}
+}
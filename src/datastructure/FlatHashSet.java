@@ -0,0 +1,264 @@
+package datastructure;
+
+/**
+ * An open addressing hash set with linear probing over a power of two table,
+ * a replacement for {@link QuadraticProbingHashTable} that allocates no
+ * object per slot and never needs tombstones.
+ * <p>
+ * Besides the array of elements, every slot has a control byte: 0 if the
+ * slot is free, otherwise the high bit set and seven more bits of the hash of
+ * its element. The control bytes are packed eight to a long, so a lookup
+ * matches a whole group of eight slots against the hash with a few
+ * arithmetic operations (SWAR, SIMD within a register) and calls equals only
+ * on the slots whose seven bits agree, which is almost never a miss.
+ * <p>
+ * Removal shifts the following entries of the cluster back instead of
+ * leaving tombstones, so the table does not degrade under churn and only
+ * grows with the number of elements.
+ * <p>
+ * Null elements are not permitted.
+ *
+ * @param <E>
+ *            the type of elements held in this set.
+ */
+public class FlatHashSet<E>
+{
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private static final long LSB = 0x0101010101010101L;
+
+	private static final long MSB = 0x8080808080808080L;
+
+	private Object[] elements;
+
+	// control bytes, slot i in bits 8 * (i & 7) of ctrl[i >>> 3]
+	private long[] ctrl;
+
+	private int mask;
+
+	private int size;
+
+	private int threshold;
+
+	public FlatHashSet()
+	{
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a set that holds expectedSize elements without growing.
+	 */
+	public FlatHashSet(int expectedSize)
+	{
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+		allocate(capacityFor(expectedSize));
+	}
+
+	// Smallest power of two table, at least a group, that is at most three
+	// quarters full with expectedSize elements
+	private static int capacityFor(int expectedSize)
+	{
+		return LinearProbing.capacityFor(expectedSize, LOAD_FACTOR, 8);
+	}
+
+	private void allocate(int capacity)
+	{
+		elements = new Object[capacity];
+		ctrl = new long[capacity >>> 3];
+		mask = capacity - 1;
+		threshold = LinearProbing.threshold(capacity, LOAD_FACTOR);
+	}
+
+	// Control byte of an element with hash h
+	private static int tag(int h)
+	{
+		return 0x80 | (h >>> 25);
+	}
+
+	private int ctrlAt(int i)
+	{
+		return (int) (ctrl[i >>> 3] >>> ((i & 7) << 3)) & 0xff;
+	}
+
+	private void setCtrl(int i, int tag)
+	{
+		int shift = (i & 7) << 3;
+		int g = i >>> 3;
+		ctrl[g] = (ctrl[g] & ~(0xffL << shift)) | ((long) tag << shift);
+	}
+
+	/**
+	 * Returns the slot of o, or -1 - the free slot where o belongs if it is
+	 * absent.
+	 */
+	private int find(Object o, int h)
+	{
+		Object[] es = elements;
+		long[] cs = ctrl;
+		int m = mask;
+		long pattern = LSB * tag(h);
+		int i = h & m;
+		for (;;)
+		{
+			int g = i >>> 3;
+			long word = cs[g];
+			// ignore the slots of the group before i
+			long valid = -1L << ((i & 7) << 3);
+			long free = ~word & MSB & valid;
+			long x = word ^ pattern;
+			// high bit of every zero byte of x, plus possibly a few bytes
+			// above one, which equals rules out
+			long match = (x - LSB) & ~x & MSB & valid;
+			if (free != 0)
+				match &= (free & -free) - 1;
+			while (match != 0)
+			{
+				int slot = (g << 3) + (Long.numberOfTrailingZeros(match) >>> 3);
+				if (o.equals(es[slot]))
+					return slot;
+				match &= match - 1;
+			}
+			if (free != 0)
+				return -1 - ((g << 3) + (Long.numberOfTrailingZeros(free) >>> 3));
+			i = ((g + 1) << 3) & m;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of slots of the table.
+	 */
+	public int capacity()
+	{
+		return elements.length;
+	}
+
+	public boolean contains(Object o)
+	{
+		return find(o, LinearProbing.hash(o)) >= 0;
+	}
+
+	/**
+	 * Adds e and returns true, or returns false if it is already present.
+	 */
+	public boolean add(E e)
+	{
+		int h = LinearProbing.hash(e);
+		int slot = find(e, h);
+		if (slot >= 0)
+			return false;
+		if (size == threshold)
+		{
+			resize(elements.length << 1);
+			slot = find(e, h);
+		}
+		slot = -1 - slot;
+		elements[slot] = e;
+		setCtrl(slot, tag(h));
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes o and returns true, or returns false if it is absent.
+	 */
+	public boolean remove(Object o)
+	{
+		int slot = find(o, LinearProbing.hash(o));
+		if (slot < 0)
+			return false;
+		shiftBack(slot);
+		size--;
+		return true;
+	}
+
+	// Closes the gap at slot gap by moving back later entries of its cluster
+	// that would otherwise become unreachable
+	private void shiftBack(int gap)
+	{
+		Object[] es = elements;
+		int m = mask;
+		for (int i = (gap + 1) & m;; i = (i + 1) & m)
+		{
+			int tag = ctrlAt(i);
+			if (tag == 0)
+				break;
+			int home = LinearProbing.hash(es[i]) & m;
+			if (LinearProbing.shouldShift(home, gap, i, m))
+			{
+				es[gap] = es[i];
+				setCtrl(gap, tag);
+				gap = i;
+			}
+		}
+		es[gap] = null;
+		setCtrl(gap, 0);
+	}
+
+	private void resize(int newCapacity)
+	{
+		if (elements.length == LinearProbing.MAXIMUM_CAPACITY)
+		{
+			if (size >= LinearProbing.MAXIMUM_CAPACITY - 1)
+				throw new IllegalStateException("Set is full");
+			threshold = LinearProbing.MAXIMUM_CAPACITY - 1;
+			return;
+		}
+		Object[] oldElements = elements;
+		allocate(newCapacity);
+		Object[] es = elements;
+		int m = mask;
+		for (Object e : oldElements)
+		{
+			if (e != null)
+			{
+				int h = LinearProbing.hash(e);
+				int i = LinearProbing.freeSlot(es, h & m, m);
+				es[i] = e;
+				setCtrl(i, tag(h));
+			}
+		}
+	}
+
+	/**
+	 * Grows the table, if needed, so that it holds expectedSize elements
+	 * without resizing.
+	 */
+	public void ensureCapacity(int expectedSize)
+	{
+		int capacity = capacityFor(expectedSize);
+		if (capacity > elements.length)
+			resize(capacity);
+	}
+
+	public void clear()
+	{
+		size = 0;
+		java.util.Arrays.fill(elements, null);
+		java.util.Arrays.fill(ctrl, 0L);
+	}
+
+	public Object[] toArray()
+	{
+		Object[] result = new Object[size];
+		int idx = 0;
+		for (Object e : elements)
+		{
+			if (e != null)
+				result[idx++] = e;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,113 @@
+package datastructure;
+
+/**
+ * Approximate access frequencies for the TinyLFU admission policy of
+ * {@link Cache}: a count-min sketch of 4-bit counters, sixteen to a long,
+ * with four counters per key. Once the sketch has counted ten times as many
+ * accesses as it has counters per row, every counter is halved, so that
+ * keys that were popular a long time ago fade out.
+ */
+final class FrequencySketch
+{
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 20;
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int size;
+
+	/**
+	 * Creates a sketch sized for a cache of about expectedSize entries.
+	 */
+	FrequencySketch(long expectedSize)
+	{
+		int n = HashMap.tableSizeFor((int) Math.max(1, Math.min(expectedSize, MAXIMUM_CAPACITY)));
+		table = new long[n];
+		tableMask = n - 1;
+		sampleSize = 10 * n;
+	}
+
+	/**
+	 * Returns the estimated number of accesses of key, at most 15.
+	 */
+	int frequency(Object key)
+	{
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = 15;
+		for (int i = 0; i < 4; i++)
+		{
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Counts an access of key.
+	 */
+	void increment(Object key)
+	{
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++)
+		{
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size == sampleSize)
+		{
+			reset();
+		}
+	}
+
+	// Increments the j-th counter of table[i] unless it is saturated
+	private boolean incrementAt(int i, int j)
+	{
+		int offset = j << 2;
+		long mask = 0xfL << offset;
+		if ((table[i] & mask) != mask)
+		{
+			table[i] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	// Halves every counter
+	private void reset()
+	{
+		int odd = 0;
+		for (int i = 0; i < table.length; i++)
+		{
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size >>> 1) - (odd >>> 2);
+	}
+
+	private int indexOf(int hash, int i)
+	{
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private static int spread(int x)
+	{
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
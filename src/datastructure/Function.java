@@ -0,0 +1,9 @@
+package datastructure;
+
+/**
+ * A function of one argument, for the compute methods of {@link HashMap}.
+ */
+public interface Function<T, R>
+{
+	R apply(T t);
+}
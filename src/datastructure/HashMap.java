@@ -140,7 +140,33 @@ public class HashMap<K, V>
 
 	final float loadFactor;
 
+	// Incremental resizing: while oldTable is not null the map is moving the
+	// bins of oldTable to table, those below transferIndex are already moved
+	private boolean incrementalResize;
+
+	transient Node<K, V>[] oldTable;
+
+	transient int transferIndex;
+
+	// Bins moved by each get, put or remove during an incremental resize;
+	// enough to finish before the next resize for load factors down to 1/8
+	private static final int RESIZE_STRIDE = 8;
+
 	public HashMap(int initialCapacity, float loadFactor, Class<K> keyType, Class<V> valueType)
+	{
+		this(initialCapacity, loadFactor, false, keyType, valueType);
+	}
+
+	/**
+	 * Creates a map that resizes incrementally if incrementalResize is set:
+	 * rather than rehashing every entry at once when the map crosses its
+	 * threshold, it keeps the old table next to the doubled one and every
+	 * later get, put or remove moves a few bins over, so that no single
+	 * operation pays for rehashing the whole map. Lookups in the meantime
+	 * probe whichever table holds the bin of the key.
+	 */
+	public HashMap(int initialCapacity, float loadFactor, boolean incrementalResize, Class<K> keyType,
+			Class<V> valueType)
 	{
 		if (initialCapacity < 0)
 			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
@@ -150,6 +176,7 @@ public class HashMap<K, V>
 			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
 		this.loadFactor = loadFactor;
 		this.threshold = tableSizeFor(initialCapacity);
+		this.incrementalResize = incrementalResize;
 		this.keyType = keyType;
 		this.valueType = valueType;
 	}
@@ -187,12 +214,21 @@ public class HashMap<K, V>
 					threshold = tableSizeFor(t);
 			}
 			else if (s > threshold)
-				resize();
-			for (Node<? extends K, ? extends V> e : m.entries())
 			{
-				K key = e.getKey();
-				V value = e.getValue();
-				putVal(hash(key), key, value, false, evict);
+				// keys of m may already be present, so grow for m alone and
+				// let putVal grow on the real insertions
+				float ft = ((float) s / loadFactor) + 1.0F;
+				int cap = tableSizeFor((ft < (float) 1073741824) ? (int) ft : 1073741824);
+				if (cap > table.length)
+					resize(cap);
+			}
+			// walk the bins in place, reusing the hash of every node
+			m.completeResize();
+			Node<? extends K, ? extends V>[] tab = m.table;
+			for (int j = 0; j < tab.length; ++j)
+			{
+				for (Node<? extends K, ? extends V> e = tab[j]; e != null; e = e.next)
+					putVal(e.hash, e.key, e.value, false, evict);
 			}
 		}
 	}
@@ -200,6 +236,7 @@ public class HashMap<K, V>
 	@SuppressWarnings("unchecked")
 	public Node<K, V>[] entries()
 	{
+		completeResize();
 		int idx = 0;
 		int capacity = capacity();
 		Node<K, V>[] result = (Node<K, V>[]) new Node[size];
@@ -225,6 +262,7 @@ public class HashMap<K, V>
 		@SuppressWarnings("unchecked")
 		K[] result = (K[]) java.lang.reflect.Array.newInstance(keyType, size);
 		
+		completeResize();
 		int idx = 0;
 		int capacity = capacity();
 		
@@ -250,6 +288,7 @@ public class HashMap<K, V>
 		@SuppressWarnings("unchecked")
 		V[] result = (V[]) java.lang.reflect.Array.newInstance(valueType, size);
 		
+		completeResize();
 		int idx = 0;
 		int capacity = capacity();
 
@@ -291,7 +330,9 @@ public class HashMap<K, V>
 		Node<K, V> first, e;
 		int n;
 		K k;
-		if ((tab = table) != null && (n = tab.length) > 0 && (first = tab[(n - 1) & hash]) != null)
+		if (oldTable != null)
+			stepResize();
+		if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 && (first = tab[(n - 1) & hash]) != null)
 		{
 			if (first.hash == hash && // always check first node
 					((k = first.key) == key || (key != null && key.equals(k))))
@@ -328,6 +369,11 @@ public class HashMap<K, V>
 		int n, i;
 		if ((tab = table) == null || (n = tab.length) == 0)
 			n = (tab = resize()).length;
+		else if (oldTable != null)
+		{
+			stepResize();
+			n = (tab = tableFor(hash)).length;
+		}
 		if ((p = tab[i = (n - 1) & hash]) == null)
 			tab[i] = newNode(hash, key, value, null);
 		else
@@ -372,6 +418,8 @@ public class HashMap<K, V>
 
 	final Node<K, V>[] resize()
 	{
+		if (oldTable != null)
+			completeResize();
 		Node<K, V>[] oldTab = table;
 		int oldCap = (oldTab == null) ? 0 : oldTab.length;
 		int oldThr = threshold;
@@ -404,57 +452,155 @@ public class HashMap<K, V>
 		table = newTab;
 		if (oldTab != null)
 		{
-			for (int j = 0; j < oldCap; ++j)
+			if (incrementalResize)
+			{
+				oldTable = oldTab;
+				transferIndex = 0;
+			}
+			else
+			{
+				for (int j = 0; j < oldCap; ++j)
+					transferBin(oldTab, j, newTab);
+			}
+		}
+		return newTab;
+	}
+
+	// Grows the table straight to newCap, a power of two above its length, in
+	// one pass instead of one doubling at a time; also finishes any
+	// incremental resize
+	final void resize(int newCap)
+	{
+		completeResize();
+		Node<K, V>[] oldTab = table;
+		int oldCap = oldTab.length;
+		float ft = (float) newCap * loadFactor;
+		threshold = (newCap < 1073741824 && ft < (float) 1073741824 ? (int) ft : Integer.MAX_VALUE);
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<K, V>[] newTab = (Node<K, V>[]) new Node[newCap];
+		table = newTab;
+		for (int j = 0; j < oldCap; ++j)
+		{
+			Node<K, V> e;
+			if ((e = oldTab[j]) == null)
+				continue;
+			oldTab[j] = null;
+			if (e instanceof TreeNode)
+				e = ((TreeNode<K, V>) e).untreeify(this);
+			// reverse the bin, then push every node onto its new bin, which
+			// keeps the nodes of each new bin in their old order
+			Node<K, V> reversed = null, next;
+			int binCount = 0;
+			for (; e != null; e = next, ++binCount)
+			{
+				next = e.next;
+				e.next = reversed;
+				reversed = e;
+			}
+			for (e = reversed; e != null; e = next)
 			{
-				Node<K, V> e;
-				if ((e = oldTab[j]) != null)
+				next = e.next;
+				int i = e.hash & (newCap - 1);
+				e.next = newTab[i];
+				newTab[i] = e;
+			}
+			// bins j, j + oldCap, ... share the nodes of bin j
+			if (binCount >= 8 && newCap >= 64)
+			{
+				for (int i = j; i < newCap; i += oldCap)
+				{
+					int c = 0;
+					for (e = newTab[i]; e != null && c < 8; e = e.next)
+						++c;
+					if (c >= 8)
+						treeifyBin(newTab, newTab[i].hash);
+				}
+			}
+		}
+	}
+
+	// Moves bin j of oldTab, of half the length of newTab, to bins j and
+	// j + oldTab.length of newTab
+	final void transferBin(Node<K, V>[] oldTab, int j, Node<K, V>[] newTab)
+	{
+		int oldCap = oldTab.length, newCap = newTab.length;
+		Node<K, V> e;
+		if ((e = oldTab[j]) != null)
+		{
+			oldTab[j] = null;
+			if (e.next == null)
+				newTab[e.hash & (newCap - 1)] = e;
+			else if (e instanceof TreeNode)
+				((TreeNode<K, V>) e).split(this, newTab, j, oldCap);
+			else
+			{ // preserve order
+				Node<K, V> loHead = null, loTail = null;
+				Node<K, V> hiHead = null, hiTail = null;
+				Node<K, V> next;
+				do
 				{
-					oldTab[j] = null;
-					if (e.next == null)
-						newTab[e.hash & (newCap - 1)] = e;
-					else if (e instanceof TreeNode)
-						((TreeNode<K, V>) e).split(this, newTab, j, oldCap);
+					next = e.next;
+					if ((e.hash & oldCap) == 0)
+					{
+						if (loTail == null)
+							loHead = e;
+						else
+							loTail.next = e;
+						loTail = e;
+					}
 					else
-					{ // preserve order
-						Node<K, V> loHead = null, loTail = null;
-						Node<K, V> hiHead = null, hiTail = null;
-						Node<K, V> next;
-						do
-						{
-							next = e.next;
-							if ((e.hash & oldCap) == 0)
-							{
-								if (loTail == null)
-									loHead = e;
-								else
-									loTail.next = e;
-								loTail = e;
-							}
-							else
-							{
-								if (hiTail == null)
-									hiHead = e;
-								else
-									hiTail.next = e;
-								hiTail = e;
-							}
-						}
-						while ((e = next) != null);
-						if (loTail != null)
-						{
-							loTail.next = null;
-							newTab[j] = loHead;
-						}
-						if (hiTail != null)
-						{
-							hiTail.next = null;
-							newTab[j + oldCap] = hiHead;
-						}
+					{
+						if (hiTail == null)
+							hiHead = e;
+						else
+							hiTail.next = e;
+						hiTail = e;
 					}
 				}
+				while ((e = next) != null);
+				if (loTail != null)
+				{
+					loTail.next = null;
+					newTab[j] = loHead;
+				}
+				if (hiTail != null)
+				{
+					hiTail.next = null;
+					newTab[j + oldCap] = hiHead;
+				}
 			}
 		}
-		return newTab;
+	}
+
+	// The table holding the bin of hash
+	final Node<K, V>[] tableFor(int hash)
+	{
+		Node<K, V>[] oldTab = oldTable;
+		return (oldTab != null && (hash & (oldTab.length - 1)) >= transferIndex) ? oldTab : table;
+	}
+
+	// Moves the next few bins of an incremental resize
+	final void stepResize()
+	{
+		Node<K, V>[] oldTab = oldTable, newTab = table;
+		int j = transferIndex, end = Math.min(j + RESIZE_STRIDE, oldTab.length);
+		for (; j < end; ++j)
+			transferBin(oldTab, j, newTab);
+		transferIndex = j;
+		if (j == oldTab.length)
+			oldTable = null;
+	}
+
+	// Moves all bins left of an incremental resize
+	final void completeResize()
+	{
+		Node<K, V>[] oldTab = oldTable, newTab = table;
+		if (oldTab != null)
+		{
+			for (int j = transferIndex; j < oldTab.length; ++j)
+				transferBin(oldTab, j, newTab);
+			oldTable = null;
+		}
 	}
 
 	final void treeifyBin(Node<K, V>[] tab, int hash)
@@ -484,6 +630,15 @@ public class HashMap<K, V>
 		}
 	}
 
+	/**
+	 * Copies all mappings of m into this map. The table grows up front, in a
+	 * single resize, to the capacity for the keys of m, where putting them one
+	 * by one doubles it log2(m.size() / capacity) times, rehashing every node
+	 * each time. Keys of m already in this map do not count twice; if the two
+	 * maps are mostly disjoint, the insertions may still double the table
+	 * once more. Each key is inserted with the hash cached in its node of m,
+	 * saving a hashCode call per key, and with one lookup, as put takes.
+	 */
 	public void putAll(HashMap<? extends K, ? extends V> m)
 	{
 		putMapEntries(m, true);
@@ -500,7 +655,9 @@ public class HashMap<K, V>
 		Node<K, V>[] tab;
 		Node<K, V> p;
 		int n, index;
-		if ((tab = table) != null && (n = tab.length) > 0 && (p = tab[index = (n - 1) & hash]) != null)
+		if (oldTable != null)
+			stepResize();
+		if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 && (p = tab[index = (n - 1) & hash]) != null)
 		{
 			Node<K, V> node = null, e;
 			K k;
@@ -546,6 +703,7 @@ public class HashMap<K, V>
 	{
 		Node<K, V>[] tab;
 		modCount++;
+		oldTable = null;
 		if ((tab = table) != null && size > 0)
 		{
 			size = 0;
@@ -558,6 +716,7 @@ public class HashMap<K, V>
 	{
 		Node<K, V>[] tab;
 		V v;
+		completeResize();
 		if ((tab = table) != null && size > 0)
 		{
 			for (int i = 0; i < tab.length; ++i)
@@ -616,6 +775,274 @@ public class HashMap<K, V>
 		return null;
 	}
 
+	/**
+	 * Returns the value of key, first mapping key to
+	 * mappingFunction.apply(key) if it is absent or mapped to null, unless
+	 * that is null too. Takes one hash lookup where a get followed by a put
+	 * takes two.
+	 *
+	 * @throws java.util.ConcurrentModificationException
+	 *             if mappingFunction modifies this map
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction)
+	{
+		if (mappingFunction == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		Node<K, V>[] tab;
+		Node<K, V> first;
+		int n, i;
+		int binCount = 0;
+		TreeNode<K, V> t = null;
+		Node<K, V> old = null;
+		if ((tab = table) == null || (n = tab.length) == 0)
+			n = (tab = resize()).length;
+		else if (oldTable != null)
+		{
+			stepResize();
+			n = (tab = tableFor(hash)).length;
+		}
+		if ((first = tab[i = (n - 1) & hash]) != null)
+		{
+			if (first instanceof TreeNode)
+				old = (t = (TreeNode<K, V>) first).getTreeNode(hash, key);
+			else
+			{
+				Node<K, V> e = first;
+				K k;
+				do
+				{
+					if (e.hash == hash && ((k = e.key) == key || (key != null && key.equals(k))))
+					{
+						old = e;
+						break;
+					}
+					++binCount;
+				}
+				while ((e = e.next) != null);
+			}
+			V oldValue;
+			if (old != null && (oldValue = old.value) != null)
+			{
+				afterNodeAccess(old);
+				return oldValue;
+			}
+		}
+		int mc = modCount;
+		V v = mappingFunction.apply(key);
+		if (mc != modCount)
+			throw new java.util.ConcurrentModificationException();
+		if (v == null)
+			return null;
+		else if (tableFor(hash) != tab)
+		{
+			// a lookup in mappingFunction moved the bin to the new table of
+			// an incremental resize, so tab, first and old are stale
+			putVal(hash, key, v, false, true);
+			return v;
+		}
+		else if (old != null)
+		{
+			old.value = v;
+			afterNodeAccess(old);
+			return v;
+		}
+		else if (t != null)
+			t.putTreeVal(this, tab, hash, key, v);
+		else
+		{
+			tab[i] = newNode(hash, key, v, first);
+			if (binCount >= 8 - 1)
+				treeifyBin(tab, hash);
+		}
+		++modCount;
+		if (++size > threshold)
+			resize();
+		afterNodeInsertion(true);
+		return v;
+	}
+
+	/**
+	 * Maps key to remappingFunction.apply(key, value of key or null), or
+	 * removes key if that is null, and returns the new value. Takes one hash
+	 * lookup, two if the mapping is removed, where a get followed by a put or
+	 * remove takes two.
+	 *
+	 * @throws java.util.ConcurrentModificationException
+	 *             if remappingFunction modifies this map
+	 */
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+	{
+		if (remappingFunction == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		Node<K, V>[] tab;
+		Node<K, V> first;
+		int n, i;
+		int binCount = 0;
+		TreeNode<K, V> t = null;
+		Node<K, V> old = null;
+		if ((tab = table) == null || (n = tab.length) == 0)
+			n = (tab = resize()).length;
+		else if (oldTable != null)
+		{
+			stepResize();
+			n = (tab = tableFor(hash)).length;
+		}
+		if ((first = tab[i = (n - 1) & hash]) != null)
+		{
+			if (first instanceof TreeNode)
+				old = (t = (TreeNode<K, V>) first).getTreeNode(hash, key);
+			else
+			{
+				Node<K, V> e = first;
+				K k;
+				do
+				{
+					if (e.hash == hash && ((k = e.key) == key || (key != null && key.equals(k))))
+					{
+						old = e;
+						break;
+					}
+					++binCount;
+				}
+				while ((e = e.next) != null);
+			}
+		}
+		V oldValue = (old == null) ? null : old.value;
+		int mc = modCount;
+		V v = remappingFunction.apply(key, oldValue);
+		if (mc != modCount)
+			throw new java.util.ConcurrentModificationException();
+		if (tableFor(hash) != tab)
+		{
+			// a lookup in remappingFunction moved the bin to the new table of
+			// an incremental resize, so tab, first and old are stale
+			if (v != null)
+				putVal(hash, key, v, false, true);
+			else if (old != null)
+				removeNode(hash, key, null, false, true);
+		}
+		else if (old != null)
+		{
+			if (v != null)
+			{
+				old.value = v;
+				afterNodeAccess(old);
+			}
+			else
+				removeNode(hash, key, null, false, true);
+		}
+		else if (v != null)
+		{
+			if (t != null)
+				t.putTreeVal(this, tab, hash, key, v);
+			else
+			{
+				tab[i] = newNode(hash, key, v, first);
+				if (binCount >= 8 - 1)
+					treeifyBin(tab, hash);
+			}
+			++modCount;
+			if (++size > threshold)
+				resize();
+			afterNodeInsertion(true);
+		}
+		return v;
+	}
+
+	/**
+	 * Maps key to value if it is absent or mapped to null, otherwise to
+	 * remappingFunction.apply(old value, value), or removes key if that is
+	 * null, and returns the new value. Counting with merge(key, 1, sum) takes
+	 * one hash lookup per increment where a get followed by a put takes two.
+	 *
+	 * @throws java.util.ConcurrentModificationException
+	 *             if remappingFunction modifies this map
+	 */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+	{
+		if (value == null || remappingFunction == null)
+			throw new NullPointerException();
+		int hash = hash(key);
+		Node<K, V>[] tab;
+		Node<K, V> first;
+		int n, i;
+		int binCount = 0;
+		TreeNode<K, V> t = null;
+		Node<K, V> old = null;
+		if ((tab = table) == null || (n = tab.length) == 0)
+			n = (tab = resize()).length;
+		else if (oldTable != null)
+		{
+			stepResize();
+			n = (tab = tableFor(hash)).length;
+		}
+		if ((first = tab[i = (n - 1) & hash]) != null)
+		{
+			if (first instanceof TreeNode)
+				old = (t = (TreeNode<K, V>) first).getTreeNode(hash, key);
+			else
+			{
+				Node<K, V> e = first;
+				K k;
+				do
+				{
+					if (e.hash == hash && ((k = e.key) == key || (key != null && key.equals(k))))
+					{
+						old = e;
+						break;
+					}
+					++binCount;
+				}
+				while ((e = e.next) != null);
+			}
+		}
+		if (old != null)
+		{
+			V v;
+			if (old.value != null)
+			{
+				int mc = modCount;
+				v = remappingFunction.apply(old.value, value);
+				if (mc != modCount)
+					throw new java.util.ConcurrentModificationException();
+			}
+			else
+				v = value;
+			if (tableFor(hash) != tab)
+			{
+				// a lookup in remappingFunction moved the bin to the new table
+				// of an incremental resize, where old may have been replaced
+				if (v != null)
+					putVal(hash, key, v, false, true);
+				else
+					removeNode(hash, key, null, false, true);
+			}
+			else if (v != null)
+			{
+				old.value = v;
+				afterNodeAccess(old);
+			}
+			else
+				removeNode(hash, key, null, false, true);
+			return v;
+		}
+		if (t != null)
+			t.putTreeVal(this, tab, hash, key, value);
+		else
+		{
+			tab[i] = newNode(hash, key, value, first);
+			if (binCount >= 8 - 1)
+				treeifyBin(tab, hash);
+		}
+		++modCount;
+		if (++size > threshold)
+			resize();
+		afterNodeInsertion(true);
+		return value;
+	}
+
 	// Cloning and serialization
 
 	@SuppressWarnings("unchecked")
@@ -718,6 +1145,7 @@ public class HashMap<K, V>
 	void reinitialize()
 	{
 		table = null;
+		oldTable = null;
 		modCount = 0;
 		threshold = 0;
 		size = 0;
@@ -1338,4 +1766,59 @@ public class HashMap<K, V>
 		}
 	}
 
+	public static void main(String[] args)
+	{
+		System.out.println("Checking... (no more output means success)");
+
+		// lookups inside the function move bins of an incremental resize
+		final HashMap<Integer, Integer> m = new HashMap<>(16, 0.75f, true, Integer.class, Integer.class);
+		for (int i = 0; i < 20000; i++)
+		{
+			final int j = i / 2;
+			m.computeIfAbsent(i, new Function<Integer, Integer>()
+			{
+				public Integer apply(Integer key)
+				{
+					m.get(j);
+					return key;
+				}
+			});
+			m.compute(i + 20000, new BiFunction<Integer, Integer, Integer>()
+			{
+				public Integer apply(Integer key, Integer value)
+				{
+					m.get(j);
+					return key;
+				}
+			});
+			m.merge(i, 1, new BiFunction<Integer, Integer, Integer>()
+			{
+				public Integer apply(Integer value, Integer one)
+				{
+					m.get(j);
+					return value + one;
+				}
+			});
+		}
+		if (m.size() != 40000)
+			System.out.println("OOPS!!! size " + m.size() + " instead of 40000");
+		for (int i = 0; i < 20000; i++)
+		{
+			Integer a = m.get(i), b = m.get(i + 20000);
+			if (a == null || a != i + 1 || b == null || b != i + 20000)
+				System.out.println("OOPS!!! lost the mapping of " + i + ": " + a + ", " + b);
+		}
+
+		// putAll grows once, to the capacity for the keys of the other map
+		HashMap<Integer, Integer> all = new HashMap<>(Integer.class, Integer.class);
+		all.put(-1, -1);
+		all.putAll(m);
+		if (all.size() != 40001 || all.capacity() != 65536)
+			System.out.println("OOPS!!! putAll left " + all.size() + " mappings in " + all.capacity() + " bins");
+		for (int i = 0; i < 40000; i++)
+		{
+			if (!java.util.Objects.equals(m.get(i), all.get(i)))
+				System.out.println("OOPS!!! putAll lost the mapping of " + i);
+		}
+	}
 }
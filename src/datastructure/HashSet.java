@@ -13,6 +13,9 @@ public class HashSet<E>
 {
 	private transient HashMap<E, Object> map;
 
+	// Replaces map in compact sets
+	private transient CompactHashSet<E> compact;
+
 	// Dummy value to associate with an Object in the backing Map
 	private static final Object PRESENT = new Object();
 	
@@ -36,44 +39,80 @@ public class HashSet<E>
 		map = new HashMap<>(initialCapacity, componentType, Object.class);
 	}
 
+	/**
+	 * Creates a set that, if compact is set, keeps its elements in a
+	 * {@link CompactHashSet} instead of a map, which takes a fraction of the
+	 * memory per element.
+	 */
+	public HashSet(int initialCapacity, boolean compact, Class<E> componentType)
+	{
+		this.componentType = componentType;
+		if (compact)
+			this.compact = new CompactHashSet<>(initialCapacity, false, componentType);
+		else
+			map = new HashMap<>(initialCapacity, componentType, Object.class);
+	}
+
 	public int size()
 	{
+		if (compact != null)
+			return compact.size();
 		return map.size();
 	}
 
 	public boolean isEmpty()
 	{
+		if (compact != null)
+			return compact.isEmpty();
 		return map.isEmpty();
 	}
 
 	public boolean contains(Object o)
 	{
+		if (compact != null)
+			return compact.contains(o);
 		return map.containsKey(o);
 	}
 
 	public boolean add(E e)
 	{
+		if (compact != null)
+			return compact.add(e);
 		return map.put(e, PRESENT) == null;
 	}
 
 	public boolean remove(Object o)
 	{
+		if (compact != null)
+			return compact.remove(o);
 		return map.remove(o) == PRESENT;
 	}
 
 	public void clear()
 	{
-		map.clear();
+		if (compact != null)
+			compact.clear();
+		else
+			map.clear();
 	}
 
 	public E[] toArray()
 	{
+		if (compact != null)
+			return compact.toArray();
 		return map.keys();
 	}
 	
 	@SuppressWarnings("unchecked")
 	public HashSet<E> clone()
 	{
+		if (compact != null)
+		{
+			HashSet<E> clone = new HashSet<>(0, true, componentType);
+			clone.compact = compact.clone();
+			return clone;
+		}
+
 		HashSet<E> clone = new HashSet<>(componentType);
 		
 		for(Object element : map.keys())
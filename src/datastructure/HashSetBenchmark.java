@@ -0,0 +1,282 @@
+package datastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import util.Benchmark;
+
+/**
+ * Benchmarks {@link FlatHashSet} against {@link QuadraticProbingHashTable},
+ * {@link HashSet} and java.util.HashSet on Integer keys, reporting
+ * throughput, latency percentiles and allocated bytes per operation (see
+ * {@link Benchmark}). Every workload times n operations:
+ * <ul>
+ * <li>INSERT adds n keys to an empty set;</li>
+ * <li>HIT and MISS look up n present or absent keys in a set of n keys;</li>
+ * <li>CHURN slides a window of n keys: every operation removes the oldest key
+ * and adds a new one, so the set never grows. Tables that leave tombstones
+ * keep slowing down and growing over the iterations.</li>
+ * </ul>
+ * Usage: <tt>HashSetBenchmark [-n 1000,100000,...] [-s FlatHashSet,...]
+ * [-l INSERT,HIT,...] [-w warmup] [-i iterations] [-t millis]</tt>
+ */
+public class HashSetBenchmark
+{
+
+	public enum Workload
+	{
+		INSERT, HIT, MISS, CHURN
+	}
+
+	// The set implementations behind one interface
+	private static abstract class Target
+	{
+		final String name;
+
+		Target(String name)
+		{
+			this.name = name;
+		}
+
+		abstract void create();
+
+		abstract boolean add(Integer key);
+
+		abstract boolean contains(Integer key);
+
+		abstract boolean remove(Integer key);
+	}
+
+	private static List<Target> targets()
+	{
+		List<Target> targets = new ArrayList<Target>();
+		targets.add(new Target("FlatHashSet")
+		{
+			FlatHashSet<Integer> set;
+
+			void create()
+			{
+				set = new FlatHashSet<Integer>();
+			}
+
+			boolean add(Integer key)
+			{
+				return set.add(key);
+			}
+
+			boolean contains(Integer key)
+			{
+				return set.contains(key);
+			}
+
+			boolean remove(Integer key)
+			{
+				return set.remove(key);
+			}
+		});
+		targets.add(new Target("QuadraticProbing")
+		{
+			QuadraticProbingHashTable<Integer> set;
+
+			void create()
+			{
+				set = new QuadraticProbingHashTable<Integer>();
+			}
+
+			boolean add(Integer key)
+			{
+				return set.insert(key);
+			}
+
+			boolean contains(Integer key)
+			{
+				return set.contains(key);
+			}
+
+			boolean remove(Integer key)
+			{
+				return set.remove(key);
+			}
+		});
+		targets.add(new Target("HashSet")
+		{
+			HashSet<Integer> set;
+
+			void create()
+			{
+				set = new HashSet<Integer>(Integer.class);
+			}
+
+			boolean add(Integer key)
+			{
+				return set.add(key);
+			}
+
+			boolean contains(Integer key)
+			{
+				return set.contains(key);
+			}
+
+			boolean remove(Integer key)
+			{
+				return set.remove(key);
+			}
+		});
+		targets.add(new Target("java.util.HashSet")
+		{
+			java.util.HashSet<Integer> set;
+
+			void create()
+			{
+				set = new java.util.HashSet<Integer>();
+			}
+
+			boolean add(Integer key)
+			{
+				return set.add(key);
+			}
+
+			boolean contains(Integer key)
+			{
+				return set.contains(key);
+			}
+
+			boolean remove(Integer key)
+			{
+				return set.remove(key);
+			}
+		});
+		return targets;
+	}
+
+	// Distinct, well spread keys
+	private static Integer key(long i)
+	{
+		return Integer.valueOf((int) (i * 0x9E3779B1L));
+	}
+
+	private static Integer[] keys(long from, int n)
+	{
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++)
+			keys[i] = key(from + i);
+		return keys;
+	}
+
+	private static Benchmark.Operation operation(final Target t, Workload w, final int n)
+	{
+		final Integer[] present = keys(0, n);
+		switch (w)
+		{
+			case INSERT:
+				return new Benchmark.Operation()
+				{
+					@Override
+					public void setup()
+					{
+						t.create();
+					}
+
+					@Override
+					public long run()
+					{
+						long added = 0;
+						for (Integer k : present)
+							added += t.add(k) ? 1 : 0;
+						return added;
+					}
+				};
+			case HIT:
+			case MISS:
+				t.create();
+				for (Integer k : present)
+					t.add(k);
+				final Integer[] probes = (w == Workload.HIT) ? present : keys(n, n);
+				return new Benchmark.Operation()
+				{
+					@Override
+					public long run()
+					{
+						long found = 0;
+						for (Integer k : probes)
+							found += t.contains(k) ? 1 : 0;
+						return found;
+					}
+				};
+			default:
+				t.create();
+				for (Integer k : present)
+					t.add(k);
+				return new Benchmark.Operation()
+				{
+					// the set holds the keys of [oldest, oldest + n)
+					long oldest;
+
+					@Override
+					public long run()
+					{
+						long changed = 0;
+						for (int i = 0; i < n; i++, oldest++)
+						{
+							changed += t.remove(key(oldest)) ? 1 : 0;
+							changed += t.add(key(oldest + n)) ? 1 : 0;
+						}
+						return changed;
+					}
+				};
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		int[] sizes = { 1000, 100000, 1000000 };
+		List<String> sets = null;
+		List<Workload> workloads = Arrays.asList(Workload.values());
+		int warmup = 5, iterations = 5, millis = 500;
+
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			String value = args[i + 1];
+			if (args[i].equals("-n"))
+			{
+				String[] parts = value.split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					sizes[j] = Integer.parseInt(parts[j]);
+			}
+			else if (args[i].equals("-s"))
+				sets = Arrays.asList(value.split(","));
+			else if (args[i].equals("-l"))
+			{
+				workloads = new ArrayList<Workload>();
+				for (String l : value.split(","))
+					workloads.add(Workload.valueOf(l));
+			}
+			else if (args[i].equals("-w"))
+				warmup = Integer.parseInt(value);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (args[i].equals("-t"))
+				millis = Integer.parseInt(value);
+			else
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+		List<Target> targets = targets();
+		for (Workload w : workloads)
+		{
+			for (int n : sizes)
+			{
+				for (Target t : targets)
+				{
+					if (sets != null && !sets.contains(t.name))
+						continue;
+					Benchmark.Result r = benchmark.measure(operation(t, w, n));
+					System.out.printf("%-7s %9d  %-18s %s%n", w, n, t.name, r);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package datastructure;
+
+/**
+ * An indexed minimum priority queue of <tt>long</tt> keys, like
+ * {@link IndexedMinimumPriorityQueue} with the same operations and
+ * exceptions, but without boxing and on a d-ary heap. Keys are kept in a
+ * <tt>long[]</tt> in heap order next to the heap of indices, so that the
+ * d children compared in a sink lie side by side: with d = 8 they fill one
+ * 64-byte cache line, and the heap is a third as deep as a binary one. The
+ * sift operations move a hole instead of swapping.
+ * <p>
+ * Arity 4 is a good default: sink compares more children per level, which is
+ * cheap while they share a cache line, and swim, as used by insert and
+ * decreaseKey, walks fewer levels.
+ */
+public class IndexedLongMinPQ
+{
+	private static final int DEFAULT_ARITY = 4;
+
+	private final int maxN; // maximum number of keys on PQ
+	private final int d; // arity of the heap
+	private int N; // number of keys on PQ
+	private final int[] pq; // d-ary heap using 0-based indexing
+	private final long[] heap; // heap[k] = key of pq[k]
+	private final int[] qp; // inverse of pq - qp[pq[k]] = k, -1 if absent
+
+	public IndexedLongMinPQ(int maxN, int arity)
+	{
+		if (maxN < 0)
+			throw new IllegalArgumentException();
+		if (arity < 2)
+			throw new IllegalArgumentException("Illegal arity: " + arity);
+
+		this.maxN = maxN;
+		this.d = arity;
+		pq = new int[maxN];
+		heap = new long[maxN];
+		qp = new int[maxN];
+		java.util.Arrays.fill(qp, -1);
+	}
+
+	public IndexedLongMinPQ(int maxN)
+	{
+		this(maxN, DEFAULT_ARITY);
+	}
+
+	// return true if the priority queue is empty
+	public boolean isEmpty()
+	{
+		return N == 0;
+	}
+
+	// return true if idx is an index on the priority queue
+	public boolean contains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException();
+		return qp[idx] != -1;
+	}
+
+	// returns the number of keys on the priority queue.
+	public int size()
+	{
+		return N;
+	}
+
+	// associates key with index i.
+	public void insert(int i, long key)
+	{
+		if (contains(i))
+			throw new IllegalArgumentException("index is already in the priority queue");
+		swim(N++, i, key);
+	}
+
+	// returns an index associated with a minimum key.
+	public int minIndex()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		return pq[0];
+	}
+
+	// returns a minimum key
+	public long minKey()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		return heap[0];
+	}
+
+	// removes a minimum key and returns its associated index.
+	public int delMin()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		int min = pq[0];
+		qp[min] = -1;
+		if (--N > 0)
+			sink(0, pq[N], heap[N]);
+		return min;
+	}
+
+	// returns the key associated with index i.
+	public long keyOf(int idx)
+	{
+		checkContains(idx);
+		return heap[qp[idx]];
+	}
+
+	// change the key associated with index i to the specified value.
+	public void changeKey(int idx, long key)
+	{
+		checkContains(idx);
+
+		int k = qp[idx];
+		if (key < heap[k])
+			swim(k, idx, key);
+		else
+			sink(k, idx, key);
+	}
+
+	// decrease the key associated with index i to the specified value.
+	public void decreaseKey(int i, long key)
+	{
+		checkContains(i);
+		int k = qp[i];
+		if (key >= heap[k])
+			throw new IllegalArgumentException(
+					"Calling decreaseKey() with given argument would not strictly decrease the key");
+		swim(k, i, key);
+	}
+
+	// increase the key associated with index i to the specified value.
+	public void increaseKey(int i, long key)
+	{
+		checkContains(i);
+		int k = qp[i];
+		if (key <= heap[k])
+			throw new IllegalArgumentException(
+					"Calling increaseKey() with given argument would not strictly increase the key");
+		sink(k, i, key);
+	}
+
+	// remove the key associated with index i.
+	public void delete(int i)
+	{
+		checkContains(i);
+
+		int k = qp[i];
+		qp[i] = -1;
+		if (--N > k)
+		{
+			// refill the hole at k with the last entry
+			int last = pq[N];
+			long key = heap[N];
+			if (key < heap[k])
+				swim(k, last, key);
+			else
+				sink(k, last, key);
+		}
+	}
+
+	/***************************************************************************
+	 * helper functions.
+	 ***************************************************************************/
+	private void checkContains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException("index " + idx + " is not between 0 and " + (maxN - 1));
+		if (qp[idx] == -1)
+			throw new RuntimeException("index is not in the priority queue");
+	}
+
+	private void place(int k, int idx, long key)
+	{
+		pq[k] = idx;
+		heap[k] = key;
+		qp[idx] = k;
+	}
+
+	/***************************************************************************
+	 * Heap helper functions.
+	 ***************************************************************************/
+	// Moves the hole at k up until idx with key fits into it
+	private void swim(int k, int idx, long key)
+	{
+		while (k > 0)
+		{
+			int parent = (k - 1) / d;
+			if (key >= heap[parent])
+				break;
+			place(k, pq[parent], heap[parent]);
+			k = parent;
+		}
+		place(k, idx, key);
+	}
+
+	// Moves the hole at k down until idx with key fits into it
+	private void sink(int k, int idx, long key)
+	{
+		int n = N;
+		for (;;)
+		{
+			if (n < 2 || k > (n - 2) / d)
+				break; // no children
+			int first = d * k + 1;
+			int last = Math.min(first + d, n);
+			int min = first;
+			long minKey = heap[first];
+			for (int c = first + 1; c < last; c++)
+			{
+				if (heap[c] < minKey)
+				{
+					min = c;
+					minKey = heap[c];
+				}
+			}
+			if (minKey >= key)
+				break;
+			place(k, pq[min], minKey);
+			k = min;
+		}
+		place(k, idx, key);
+	}
+}
@@ -0,0 +1,274 @@
+package datastructure;
+
+/**
+ * An indexed minimum priority queue of <tt>double</tt> keys on a pairing
+ * heap, with the operations and exceptions of
+ * {@link IndexedMinimumPriorityQueue}. insert and decreaseKey link a single
+ * node to the root in constant time; delMin and delete pay for that by
+ * pairing up the children of the removed node, left to right, then merging
+ * the pairs right to left, in amortized O(log n). That suits shortest-path
+ * searches, which make many more decreaseKeys than delMins.
+ * <p>
+ * The heap lives in int arrays indexed like the queue: the leftmost child
+ * of every node, its right sibling, and its left sibling or, for a leftmost
+ * child, its parent. NaN keys are not permitted.
+ */
+public class IndexedPairingHeap
+{
+	private static final int NONE = -1;
+
+	// prev of an index that is not on the queue
+	private static final int ABSENT = -2;
+
+	private final int maxN; // maximum number of keys on PQ
+	private int N; // number of keys on PQ
+	private int root = NONE;
+	private final double[] keys; // keys[i] = priority of i
+	private final int[] child; // leftmost child of i
+	private final int[] sibling; // right sibling of i
+	private final int[] prev; // left sibling of i, or its parent if leftmost
+	private final int[] pairs; // roots of the first pass of combine
+
+	public IndexedPairingHeap(int maxN)
+	{
+		if (maxN < 0)
+			throw new IllegalArgumentException();
+
+		this.maxN = maxN;
+		keys = new double[maxN];
+		child = new int[maxN];
+		sibling = new int[maxN];
+		prev = new int[maxN];
+		pairs = new int[maxN / 2 + 1];
+		java.util.Arrays.fill(prev, ABSENT);
+	}
+
+	// return true if the priority queue is empty
+	public boolean isEmpty()
+	{
+		return N == 0;
+	}
+
+	// return true if idx is an index on the priority queue
+	public boolean contains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException();
+		return prev[idx] != ABSENT;
+	}
+
+	// returns the number of keys on the priority queue.
+	public int size()
+	{
+		return N;
+	}
+
+	// associates key with index i.
+	public void insert(int i, double key)
+	{
+		if (contains(i))
+			throw new IllegalArgumentException("index is already in the priority queue");
+		if (key != key)
+			throw new IllegalArgumentException("NaN key");
+
+		keys[i] = key;
+		child[i] = NONE;
+		sibling[i] = NONE;
+		prev[i] = NONE;
+		root = (root == NONE) ? i : link(root, i);
+		N++;
+	}
+
+	// returns an index associated with a minimum key.
+	public int minIndex()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		return root;
+	}
+
+	// returns a minimum key
+	public double minKey()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		return keys[root];
+	}
+
+	// removes a minimum key and returns its associated index.
+	public int delMin()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		int min = root;
+		root = combine(child[min]);
+		prev[min] = ABSENT;
+		N--;
+		return min;
+	}
+
+	// returns the key associated with index i.
+	public double keyOf(int idx)
+	{
+		checkContains(idx);
+		return keys[idx];
+	}
+
+	// change the key associated with index i to the specified value.
+	public void changeKey(int idx, double key)
+	{
+		checkContains(idx);
+		if (key != key)
+			throw new IllegalArgumentException("NaN key");
+
+		if (key < keys[idx])
+			decrease(idx, key);
+		else if (key > keys[idx])
+			increase(idx, key);
+	}
+
+	// decrease the key associated with index i to the specified value.
+	public void decreaseKey(int i, double key)
+	{
+		checkContains(i);
+		if (!(key < keys[i]))
+			throw new IllegalArgumentException(
+					"Calling decreaseKey() with given argument would not strictly decrease the key");
+		decrease(i, key);
+	}
+
+	// increase the key associated with index i to the specified value.
+	public void increaseKey(int i, double key)
+	{
+		checkContains(i);
+		if (!(key > keys[i]))
+			throw new IllegalArgumentException(
+					"Calling increaseKey() with given argument would not strictly increase the key");
+		increase(i, key);
+	}
+
+	// remove the key associated with index i.
+	public void delete(int i)
+	{
+		checkContains(i);
+
+		if (i == root)
+		{
+			delMin();
+			return;
+		}
+		cut(i);
+		int rest = combine(child[i]);
+		if (rest != NONE)
+			root = link(root, rest);
+		prev[i] = ABSENT;
+		N--;
+	}
+
+	/***************************************************************************
+	 * helper functions.
+	 ***************************************************************************/
+	private void checkContains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException("index " + idx + " is not between 0 and " + (maxN - 1));
+		if (prev[idx] == ABSENT)
+			throw new RuntimeException("index is not in the priority queue");
+	}
+
+	private void decrease(int i, double key)
+	{
+		keys[i] = key;
+		if (i != root)
+		{
+			// the subtree of i stays ordered, hang it off the root
+			cut(i);
+			root = link(root, i);
+		}
+	}
+
+	private void increase(int i, double key)
+	{
+		// the children of i may now be smaller than i, so take them out
+		int rest = combine(child[i]);
+		child[i] = NONE;
+		keys[i] = key;
+		if (i == root)
+			root = (rest == NONE) ? i : link(i, rest);
+		else
+		{
+			cut(i);
+			if (rest != NONE)
+				root = link(root, rest);
+			root = link(root, i);
+		}
+	}
+
+	/***************************************************************************
+	 * Heap helper functions.
+	 ***************************************************************************/
+	// Makes the root with the larger key the leftmost child of the other one
+	// and returns the new root
+	private int link(int a, int b)
+	{
+		if (keys[b] < keys[a])
+		{
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		int first = child[a];
+		sibling[b] = first;
+		if (first != NONE)
+			prev[first] = b;
+		child[a] = b;
+		prev[b] = a;
+		return a;
+	}
+
+	// Detaches the subtree of i, which is not the root
+	private void cut(int i)
+	{
+		int p = prev[i];
+		int next = sibling[i];
+		if (child[p] == i)
+			child[p] = next;
+		else
+			sibling[p] = next;
+		if (next != NONE)
+			prev[next] = p;
+		sibling[i] = NONE;
+		prev[i] = NONE;
+	}
+
+	// Merges the sibling list starting at first into one heap, two-pass
+	private int combine(int first)
+	{
+		if (first == NONE)
+			return NONE;
+		int n = 0;
+		for (int a = first; a != NONE;)
+		{
+			int b = sibling[a];
+			prev[a] = NONE;
+			sibling[a] = NONE;
+			if (b == NONE)
+			{
+				pairs[n++] = a;
+				break;
+			}
+			int next = sibling[b];
+			prev[b] = NONE;
+			sibling[b] = NONE;
+			pairs[n++] = link(a, b);
+			a = next;
+		}
+		int r = pairs[--n];
+		while (n > 0)
+			r = link(pairs[--n], r);
+		return r;
+	}
+}
@@ -0,0 +1,241 @@
+package datastructure;
+
+/**
+ * An indexed monotone priority queue of <tt>long</tt> keys on a radix heap,
+ * with the operations and exceptions of {@link IndexedMinimumPriorityQueue}.
+ * It only accepts keys that are at least the last minimum removed by delMin
+ * or returned by minKey or minIndex, as Dijkstra's algorithm with
+ * non-negative integer edge weights produces.
+ * <p>
+ * An index with key k lies in bucket b, the position of the highest bit in
+ * which k differs from the last minimum, or bucket 0 if k equals it. insert,
+ * decreaseKey and delete relink one node in constant time. When bucket 0
+ * runs empty, the lowest non-empty bucket is scanned for its minimum, which
+ * becomes the new last minimum, and its indices move down into lower
+ * buckets; an index moves at most 64 times between insert and delMin.
+ */
+public class IndexedRadixHeap
+{
+	private static final int BUCKETS = 65;
+
+	private static final int NONE = -1;
+
+	private final int maxN; // maximum number of keys on PQ
+	private int N; // number of keys on PQ
+	private long last = Long.MIN_VALUE; // last minimum found, a lower bound
+	private final long[] keys; // keys[i] = priority of i
+	private final int[] bucketOf; // bucket of i, NONE if not on PQ
+	private final int[] next; // doubly linked lists of the buckets
+	private final int[] prev;
+	private final int[] heads = new int[BUCKETS];
+
+	public IndexedRadixHeap(int maxN)
+	{
+		if (maxN < 0)
+			throw new IllegalArgumentException();
+
+		this.maxN = maxN;
+		keys = new long[maxN];
+		bucketOf = new int[maxN];
+		next = new int[maxN];
+		prev = new int[maxN];
+		java.util.Arrays.fill(bucketOf, NONE);
+		java.util.Arrays.fill(heads, NONE);
+	}
+
+	// return true if the priority queue is empty
+	public boolean isEmpty()
+	{
+		return N == 0;
+	}
+
+	// return true if idx is an index on the priority queue
+	public boolean contains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException();
+		return bucketOf[idx] != NONE;
+	}
+
+	// returns the number of keys on the priority queue.
+	public int size()
+	{
+		return N;
+	}
+
+	// associates key with index i.
+	public void insert(int i, long key)
+	{
+		if (contains(i))
+			throw new IllegalArgumentException("index is already in the priority queue");
+		checkMonotone(key);
+
+		keys[i] = key;
+		link(i, bucket(key));
+		N++;
+	}
+
+	// returns an index associated with a minimum key.
+	public int minIndex()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		pull();
+		return heads[0];
+	}
+
+	// returns a minimum key
+	public long minKey()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		pull();
+		return keys[heads[0]];
+	}
+
+	// removes a minimum key and returns its associated index.
+	public int delMin()
+	{
+		if (N == 0)
+			throw new RuntimeException("Priority queue underflow");
+
+		pull();
+		int min = heads[0];
+		unlink(min);
+		bucketOf[min] = NONE;
+		N--;
+		return min;
+	}
+
+	// returns the key associated with index i.
+	public long keyOf(int idx)
+	{
+		checkContains(idx);
+		return keys[idx];
+	}
+
+	// change the key associated with index i to the specified value.
+	public void changeKey(int idx, long key)
+	{
+		checkContains(idx);
+		checkMonotone(key);
+		move(idx, key);
+	}
+
+	// decrease the key associated with index i to the specified value.
+	public void decreaseKey(int i, long key)
+	{
+		checkContains(i);
+		if (key >= keys[i])
+			throw new IllegalArgumentException(
+					"Calling decreaseKey() with given argument would not strictly decrease the key");
+		checkMonotone(key);
+		move(i, key);
+	}
+
+	// increase the key associated with index i to the specified value.
+	public void increaseKey(int i, long key)
+	{
+		checkContains(i);
+		if (key <= keys[i])
+			throw new IllegalArgumentException(
+					"Calling increaseKey() with given argument would not strictly increase the key");
+		move(i, key);
+	}
+
+	// remove the key associated with index i.
+	public void delete(int i)
+	{
+		checkContains(i);
+
+		unlink(i);
+		bucketOf[i] = NONE;
+		N--;
+	}
+
+	/***************************************************************************
+	 * helper functions.
+	 ***************************************************************************/
+	private void checkContains(int idx)
+	{
+		if (idx < 0 || idx >= maxN)
+			throw new IndexOutOfBoundsException("index " + idx + " is not between 0 and " + (maxN - 1));
+		if (bucketOf[idx] == NONE)
+			throw new RuntimeException("index is not in the priority queue");
+	}
+
+	private void checkMonotone(long key)
+	{
+		if (key < last)
+			throw new IllegalArgumentException("key " + key + " is less than the last minimum " + last);
+	}
+
+	// Bucket of key relative to the last minimum; comparing the bits works
+	// for signed keys since both are at least last
+	private int bucket(long key)
+	{
+		return 64 - Long.numberOfLeadingZeros(key ^ last);
+	}
+
+	private void move(int i, long key)
+	{
+		keys[i] = key;
+		int b = bucket(key);
+		if (b != bucketOf[i])
+		{
+			unlink(i);
+			link(i, b);
+		}
+	}
+
+	/***************************************************************************
+	 * Bucket helper functions.
+	 ***************************************************************************/
+	private void link(int i, int b)
+	{
+		int first = heads[b];
+		next[i] = first;
+		prev[i] = NONE;
+		if (first != NONE)
+			prev[first] = i;
+		heads[b] = i;
+		bucketOf[i] = b;
+	}
+
+	private void unlink(int i)
+	{
+		int p = prev[i], n = next[i];
+		if (p == NONE)
+			heads[bucketOf[i]] = n;
+		else
+			next[p] = n;
+		if (n != NONE)
+			prev[n] = p;
+	}
+
+	// Makes bucket 0 hold the minimum keys, the queue being non-empty
+	private void pull()
+	{
+		if (heads[0] != NONE)
+			return;
+		int b = 1;
+		while (heads[b] == NONE)
+			b++;
+		long min = Long.MAX_VALUE;
+		for (int i = heads[b]; i != NONE; i = next[i])
+			min = Math.min(min, keys[i]);
+		last = min;
+		// every index of bucket b shares its bits above b - 1 with the new
+		// last minimum, so it moves to a lower bucket
+		int i = heads[b];
+		heads[b] = NONE;
+		while (i != NONE)
+		{
+			int n = next[i];
+			link(i, bucket(keys[i]));
+			i = n;
+		}
+	}
+}
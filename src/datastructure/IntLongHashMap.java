@@ -0,0 +1,426 @@
+package datastructure;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map from int keys to long values, stored in two flat arrays with
+ * linear probing, so neither keys nor values are boxed and there are no
+ * per-entry objects. Removal shifts the following entries of the cluster
+ * back instead of leaving tombstones, so lookups never slow down after many
+ * removals.
+ * <p>
+ * Key 0 marks a free slot in the table and is kept in separate fields.
+ * Missing keys read as 0, use {@link #containsKey(int)} or
+ * {@link #getOrDefault(int, long)} to tell them apart.
+ * <p>
+ * Entries are traversed with a {@link Cursor}, which allocates nothing per
+ * entry and can be reset and reused.
+ */
+public class IntLongHashMap
+{
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private int[] keys;
+
+	private long[] values;
+
+	private int mask;
+
+	// number of entries in the table, excluding key 0
+	private int assigned;
+
+	private int threshold;
+
+	private final float loadFactor;
+
+	private boolean hasZeroKey;
+
+	private long zeroValue;
+
+	private int modCount;
+
+	public IntLongHashMap(int expectedSize, float loadFactor)
+	{
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+		if (!(loadFactor > 0 && loadFactor < 1))
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		this.loadFactor = loadFactor;
+		allocate(capacityFor(expectedSize, loadFactor));
+	}
+
+	public IntLongHashMap(int expectedSize)
+	{
+		this(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	public IntLongHashMap()
+	{
+		this(DEFAULT_CAPACITY >> 1, DEFAULT_LOAD_FACTOR);
+	}
+
+	// Smallest power of two table that holds expectedSize entries
+	private static int capacityFor(int expectedSize, float loadFactor)
+	{
+		return LinearProbing.capacityFor(expectedSize, loadFactor, 4);
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		values = new long[capacity];
+		mask = capacity - 1;
+		threshold = LinearProbing.threshold(capacity, loadFactor);
+	}
+
+	public int size()
+	{
+		return assigned + (hasZeroKey ? 1 : 0);
+	}
+
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	// Slot of key, or -1 if key is not in the table; key must not be 0
+	private int slot(int key)
+	{
+		int[] k = keys;
+		int m = mask;
+		for (int i = LinearProbing.hash(key) & m;; i = (i + 1) & m)
+		{
+			int existing = k[i];
+			if (existing == key)
+				return i;
+			if (existing == 0)
+				return -1;
+		}
+	}
+
+	public boolean containsKey(int key)
+	{
+		if (key == 0)
+			return hasZeroKey;
+		return slot(key) >= 0;
+	}
+
+	/**
+	 * Returns the value mapped to key, or 0 if there is none.
+	 */
+	public long get(int key)
+	{
+		return getOrDefault(key, 0);
+	}
+
+	public long getOrDefault(int key, long defaultValue)
+	{
+		if (key == 0)
+			return hasZeroKey ? zeroValue : defaultValue;
+		int i = slot(key);
+		return (i < 0) ? defaultValue : values[i];
+	}
+
+	/**
+	 * Maps key to value and returns the previous value, or 0 if there was
+	 * none.
+	 */
+	public long put(int key, long value)
+	{
+		if (key == 0)
+		{
+			long oldValue = zeroValue;
+			if (!hasZeroKey)
+			{
+				hasZeroKey = true;
+				modCount++;
+			}
+			zeroValue = value;
+			return oldValue;
+		}
+		int[] k = keys;
+		int m = mask;
+		int i = LinearProbing.hash(key) & m;
+		for (int existing; (existing = k[i]) != 0; i = (i + 1) & m)
+		{
+			if (existing == key)
+			{
+				long oldValue = values[i];
+				values[i] = value;
+				return oldValue;
+			}
+		}
+		if (assigned == threshold)
+		{
+			resize(keys.length << 1);
+			return put(key, value);
+		}
+		k[i] = key;
+		values[i] = value;
+		assigned++;
+		modCount++;
+		return 0;
+	}
+
+	/**
+	 * Adds delta to the value mapped to key, mapping key to delta if it is
+	 * absent, and returns the new value.
+	 */
+	public long addTo(int key, long delta)
+	{
+		if (key == 0)
+		{
+			if (!hasZeroKey)
+			{
+				hasZeroKey = true;
+				zeroValue = 0;
+				modCount++;
+			}
+			return zeroValue += delta;
+		}
+		int[] k = keys;
+		int m = mask;
+		int i = LinearProbing.hash(key) & m;
+		for (int existing; (existing = k[i]) != 0; i = (i + 1) & m)
+		{
+			if (existing == key)
+				return values[i] += delta;
+		}
+		if (assigned == threshold)
+		{
+			resize(keys.length << 1);
+			return addTo(key, delta);
+		}
+		k[i] = key;
+		values[i] = delta;
+		assigned++;
+		modCount++;
+		return delta;
+	}
+
+	/**
+	 * Removes the mapping of key and returns its value, or 0 if there was
+	 * none.
+	 */
+	public long remove(int key)
+	{
+		if (key == 0)
+		{
+			if (!hasZeroKey)
+				return 0;
+			hasZeroKey = false;
+			modCount++;
+			long oldValue = zeroValue;
+			zeroValue = 0;
+			return oldValue;
+		}
+		int i = slot(key);
+		if (i < 0)
+			return 0;
+		long oldValue = values[i];
+		shiftBack(i);
+		assigned--;
+		modCount++;
+		return oldValue;
+	}
+
+	// Closes the gap at slot gap by moving back later entries of its cluster
+	// that would otherwise become unreachable
+	private void shiftBack(int gap)
+	{
+		int[] k = keys;
+		long[] v = values;
+		int m = mask;
+		for (int i = (gap + 1) & m;; i = (i + 1) & m)
+		{
+			int key = k[i];
+			if (key == 0)
+				break;
+			int home = LinearProbing.hash(key) & m;
+			if (LinearProbing.shouldShift(home, gap, i, m))
+			{
+				k[gap] = key;
+				v[gap] = v[i];
+				gap = i;
+			}
+		}
+		k[gap] = 0;
+		v[gap] = 0;
+	}
+
+	private void resize(int newCapacity)
+	{
+		if (keys.length == LinearProbing.MAXIMUM_CAPACITY)
+		{
+			if (assigned >= LinearProbing.MAXIMUM_CAPACITY - 1)
+				throw new IllegalStateException("Map is full");
+			threshold = LinearProbing.MAXIMUM_CAPACITY - 1;
+			return;
+		}
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(newCapacity);
+		int[] k = keys;
+		long[] v = values;
+		int m = mask;
+		for (int j = 0; j < oldKeys.length; j++)
+		{
+			int key = oldKeys[j];
+			if (key != 0)
+			{
+				int i = LinearProbing.freeSlot(k, LinearProbing.hash(key) & m, m);
+				k[i] = key;
+				v[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Grows the table, if needed, so that it holds expectedSize entries
+	 * without resizing.
+	 */
+	public void ensureCapacity(int expectedSize)
+	{
+		int capacity = capacityFor(expectedSize, loadFactor);
+		if (capacity > keys.length)
+		{
+			modCount++;
+			resize(capacity);
+		}
+	}
+
+	public void clear()
+	{
+		modCount++;
+		assigned = 0;
+		hasZeroKey = false;
+		zeroValue = 0;
+		java.util.Arrays.fill(keys, 0);
+		java.util.Arrays.fill(values, 0);
+	}
+
+	public int[] keys()
+	{
+		int[] result = new int[size()];
+		int idx = 0;
+		for (int key : keys)
+		{
+			if (key != 0)
+				result[idx++] = key;
+		}
+		if (hasZeroKey)
+			result[idx] = 0;
+		return result;
+	}
+
+	public long[] values()
+	{
+		long[] result = new long[size()];
+		int idx = 0;
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] != 0)
+				result[idx++] = values[i];
+		}
+		if (hasZeroKey)
+			result[idx] = zeroValue;
+		return result;
+	}
+
+	/**
+	 * Returns a cursor positioned before the first entry.
+	 */
+	public Cursor cursor()
+	{
+		return new Cursor();
+	}
+
+	/**
+	 * Iterates the entries of the map in table order:
+	 *
+	 * <pre>
+	 * IntLongHashMap.Cursor c = map.cursor();
+	 * while (c.advance())
+	 * 	sum += c.key() * c.value();
+	 * </pre>
+	 *
+	 * The map must not gain or lose keys while a cursor walks it, changing the
+	 * values with {@link #setValue(int)} is fine.
+	 */
+	public final class Cursor
+	{
+		// current slot, keys.length for key 0
+		private int index;
+		private int expectedModCount;
+
+		private Cursor()
+		{
+			reset();
+		}
+
+		/**
+		 * Moves the cursor back before the first entry.
+		 */
+		public void reset()
+		{
+			index = -1;
+			expectedModCount = modCount;
+		}
+
+		/**
+		 * Moves to the next entry and returns false if there is none.
+		 */
+		public boolean advance()
+		{
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			int[] k = keys;
+			int i = index;
+			while (++i < k.length)
+			{
+				if (k[i] != 0)
+				{
+					index = i;
+					return true;
+				}
+			}
+			index = k.length;
+			if (i == k.length && hasZeroKey)
+				return true;
+			index = k.length + 1;
+			return false;
+		}
+
+		private void check()
+		{
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (index < 0 || index > keys.length)
+				throw new NoSuchElementException();
+		}
+
+		public int key()
+		{
+			check();
+			return (index == keys.length) ? 0 : keys[index];
+		}
+
+		public long value()
+		{
+			check();
+			return (index == keys.length) ? zeroValue : values[index];
+		}
+
+		public void setValue(long value)
+		{
+			check();
+			if (index == keys.length)
+				zeroValue = value;
+			else
+				values[index] = value;
+		}
+	}
+}
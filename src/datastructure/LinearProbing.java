@@ -0,0 +1,98 @@
+package datastructure;
+
+/**
+ * Linear probing over a power of two table, shared by the open addressing
+ * tables of this package: {@link IntIntHashMap}, {@link IntLongHashMap},
+ * {@link LongLongHashMap}, {@link FlatHashSet} and {@link CompactHashSet}.
+ * Each table probes its own arrays, as keys, elements and extra per-slot
+ * data differ, but hashing, sizing and the rule of backward shift deletion
+ * live here.
+ * <p>
+ * Removal from these tables leaves no tombstone. The entries after the
+ * removed one, up to the next free slot, are scanned, and each one whose
+ * home slot does not lie cyclically between the gap and itself moves back
+ * into the gap, which then moves to where the entry was; see
+ * {@link #shouldShift(int, int, int, int)}.
+ */
+final class LinearProbing
+{
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	// This class should not be instantiated.
+	private LinearProbing()
+	{
+	}
+
+	static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	static int hash(Object o)
+	{
+		return hash(o.hashCode());
+	}
+
+	/**
+	 * Returns the smallest power of two capacity, at least minimum, whose
+	 * threshold admits expectedSize entries.
+	 */
+	static int capacityFor(int expectedSize, float loadFactor, int minimum)
+	{
+		long needed = (long) Math.ceil(expectedSize / (double) loadFactor);
+		if (needed >= MAXIMUM_CAPACITY)
+			return MAXIMUM_CAPACITY;
+		int capacity = minimum;
+		while (capacity < needed || threshold(capacity, loadFactor) < expectedSize)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	// At least one slot stays free so that probing always terminates
+	static int threshold(int capacity, float loadFactor)
+	{
+		return Math.min((int) (capacity * loadFactor), capacity - 1);
+	}
+
+	/**
+	 * Returns true if the entry at slot i, whose home slot is home, has to
+	 * move back into the gap at slot gap to stay reachable: its home does not
+	 * lie cyclically in (gap, i].
+	 */
+	static boolean shouldShift(int home, int gap, int i, int mask)
+	{
+		return ((i - home) & mask) >= ((i - gap) & mask);
+	}
+
+	// First free slot at or after home, in a table with a free slot
+	static int freeSlot(Object[] table, int home, int mask)
+	{
+		int i = home;
+		while (table[i] != null)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	static int freeSlot(int[] keys, int home, int mask)
+	{
+		int i = home;
+		while (keys[i] != 0)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	static int freeSlot(long[] keys, int home, int mask)
+	{
+		int i = home;
+		while (keys[i] != 0)
+			i = (i + 1) & mask;
+		return i;
+	}
+}
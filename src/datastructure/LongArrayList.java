@@ -0,0 +1,260 @@
+package datastructure;
+
+import sorting.LongComparator;
+
+/**
+ * A growable list of <tt>long</tt> values, like {@link ArrayList} but without
+ * boxing: the elements are held directly in a <tt>long[]</tt>. Sorting and
+ * binary search delegate to the {@link sorting.LongArray} and
+ * {@link searching.LongArray} routines over the used part of the array,
+ * and {@link #elements()} gives direct access to the backing array for code
+ * that takes arrays.
+ */
+public class LongArrayList
+{
+	private static final int DEFAULT_CAPACITY = 10;
+
+	private static final long[] EMPTY_ELEMENTDATA = {};
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private long[] elementData;
+
+	private int size;
+
+	public LongArrayList(int initialCapacity)
+	{
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+		this.elementData = new long[initialCapacity];
+	}
+
+	public LongArrayList()
+	{
+		this.elementData = EMPTY_ELEMENTDATA;
+	}
+
+	/**
+	 * Creates a list of the values of a, which is copied.
+	 */
+	public LongArrayList(long[] a)
+	{
+		this.elementData = a.clone();
+		this.size = a.length;
+	}
+
+	public void trimToSize()
+	{
+		if (size < elementData.length)
+			elementData = java.util.Arrays.copyOf(elementData, size);
+	}
+
+	public void ensureCapacity(int minCapacity)
+	{
+		if (minCapacity - elementData.length > 0)
+			grow(minCapacity);
+	}
+
+	private void ensureCapacityInternal(int minCapacity)
+	{
+		if (elementData == EMPTY_ELEMENTDATA)
+			minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+		if (minCapacity - elementData.length > 0)
+			grow(minCapacity);
+	}
+
+	private void grow(int minCapacity)
+	{
+		// overflow-conscious code
+		int oldCapacity = elementData.length;
+		int newCapacity = oldCapacity + (oldCapacity >> 1);
+		if (newCapacity - minCapacity < 0)
+			newCapacity = minCapacity;
+		if (newCapacity - MAX_ARRAY_SIZE > 0)
+			newCapacity = hugeCapacity(minCapacity);
+		elementData = java.util.Arrays.copyOf(elementData, newCapacity);
+	}
+
+	private static int hugeCapacity(int minCapacity)
+	{
+		if (minCapacity < 0) // overflow
+			throw new OutOfMemoryError();
+		return (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public boolean contains(long value)
+	{
+		return indexOf(value) >= 0;
+	}
+
+	public int indexOf(long value)
+	{
+		for (int i = 0; i < size; i++)
+			if (elementData[i] == value)
+				return i;
+		return -1;
+	}
+
+	public int lastIndexOf(long value)
+	{
+		for (int i = size - 1; i >= 0; i--)
+			if (elementData[i] == value)
+				return i;
+		return -1;
+	}
+
+	public long get(int index)
+	{
+		rangeCheck(index);
+		return elementData[index];
+	}
+
+	public long set(int index, long element)
+	{
+		rangeCheck(index);
+		long oldValue = elementData[index];
+		elementData[index] = element;
+		return oldValue;
+	}
+
+	public void add(long e)
+	{
+		ensureCapacityInternal(size + 1);
+		elementData[size++] = e;
+	}
+
+	public void add(int index, long element)
+	{
+		rangeCheckForAdd(index);
+		ensureCapacityInternal(size + 1);
+		System.arraycopy(elementData, index, elementData, index + 1, size - index);
+		elementData[index] = element;
+		size++;
+	}
+
+	public void addAll(long[] a)
+	{
+		addAll(a, 0, a.length);
+	}
+
+	/**
+	 * Appends the values of a in [fromIndex, toIndex).
+	 */
+	public void addAll(long[] a, int fromIndex, int toIndex)
+	{
+		ArrayList.subListRangeCheck(fromIndex, toIndex, a.length);
+		int numNew = toIndex - fromIndex;
+		ensureCapacityInternal(size + numNew);
+		System.arraycopy(a, fromIndex, elementData, size, numNew);
+		size += numNew;
+	}
+
+	public void addAll(LongArrayList list)
+	{
+		addAll(list.elementData, 0, list.size);
+	}
+
+	/**
+	 * Removes the element at index and returns it.
+	 */
+	public long remove(int index)
+	{
+		rangeCheck(index);
+		long oldValue = elementData[index];
+		int numMoved = size - index - 1;
+		if (numMoved > 0)
+			System.arraycopy(elementData, index + 1, elementData, index, numMoved);
+		size--;
+		return oldValue;
+	}
+
+	/**
+	 * Removes the elements in [fromIndex, toIndex).
+	 */
+	public void removeRange(int fromIndex, int toIndex)
+	{
+		ArrayList.subListRangeCheck(fromIndex, toIndex, size);
+		System.arraycopy(elementData, toIndex, elementData, fromIndex, size - toIndex);
+		size -= toIndex - fromIndex;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	private void rangeCheck(int index)
+	{
+		if (index >= size || index < 0)
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+	}
+
+	private void rangeCheckForAdd(int index)
+	{
+		if (index > size || index < 0)
+			throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+	}
+
+	private String outOfBoundsMsg(int index)
+	{
+		return "Index: " + index + ", Size: " + size;
+	}
+
+	/**
+	 * Sorts the list into ascending order.
+	 */
+	public void sort()
+	{
+		sorting.LongArray.sort(elementData, 0, size);
+	}
+
+	/**
+	 * Sorts the list into the order induced by c.
+	 */
+	public void sort(LongComparator c)
+	{
+		sorting.LongArray.sort(elementData, 0, size, c);
+	}
+
+	/**
+	 * Searches the list, which must be sorted, for key. Returns its index, or
+	 * (-(insertion point) - 1) if it is absent.
+	 */
+	public int binarySearch(long key)
+	{
+		return searching.LongArray.binarySearch(elementData, 0, size, key);
+	}
+
+	/**
+	 * Returns the backing array, of which the first size() values are the
+	 * list. Writes to it show in the list and the other way round, until the
+	 * list grows into a new array.
+	 */
+	public long[] elements()
+	{
+		return elementData;
+	}
+
+	public long[] toArray()
+	{
+		return java.util.Arrays.copyOf(elementData, size);
+	}
+
+	public LongArrayList clone()
+	{
+		LongArrayList clone = new LongArrayList(size);
+		System.arraycopy(elementData, 0, clone.elementData, 0, size);
+		clone.size = size;
+		return clone;
+	}
+}
@@ -0,0 +1,552 @@
+package datastructure;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+
+/**
+ * A persistent hash map from long keys to long values that lives off the
+ * heap in a memory-mapped file, so that it can hold hundreds of millions of
+ * entries and is opened again after a restart without being loaded: opening
+ * maps the file and replays at most the short journal of recent updates.
+ * <p>
+ * The file holds a header and a power of two table of 16-byte slots, a
+ * little-endian key and value each, probed linearly. Key 0 marks a free slot
+ * and {@link Long#MIN_VALUE} a removed one; both keys are kept in the header
+ * instead. Unlike the in-heap maps of this package, removal leaves a
+ * tombstone rather than shifting entries back, so that every update writes a
+ * single slot and an interrupted update never breaks a probe sequence.
+ * Tombstones are dropped whenever the table is rebuilt.
+ * <p>
+ * Every update is first appended to a journal next to the file, with a
+ * checksum, and then applied to the table. Both are mapped, so a completed
+ * update survives a crash of the process. On opening, the journal records
+ * since the last checkpoint are replayed over the table, which repairs an
+ * update that was cut short. The checksums are keyed by a random id of the
+ * file, so a journal left behind by a deleted map is never replayed into a
+ * new one. {@link #sync()} forces the table to the storage device and starts
+ * a new journal, which also happens when the journal is full. Growing the
+ * table writes a new file that atomically replaces the old one.
+ * <p>
+ * A map is not thread-safe and a file must be opened by one map at a time.
+ */
+public class MappedLongLongHashMap implements Closeable
+{
+	// "LLHMAP01"
+	private static final long MAGIC = 0x3130504D48484C4CL;
+
+	private static final int HEADER_BYTES = 4096;
+
+	// Header fields
+	private static final int MAGIC_OFFSET = 0;
+	private static final int CAPACITY_OFFSET = 8;
+	private static final int SIZE_OFFSET = 16;
+	private static final int USED_OFFSET = 24;
+	private static final int EPOCH_OFFSET = 32;
+	private static final int HAS_ZERO_OFFSET = 40;
+	private static final int ZERO_VALUE_OFFSET = 48;
+	private static final int HAS_MIN_OFFSET = 56;
+	private static final int MIN_VALUE_OFFSET = 64;
+	private static final int FILE_ID_OFFSET = 72;
+
+	private static final long FREE = 0L;
+
+	private static final long TOMBSTONE = Long.MIN_VALUE;
+
+	private static final int SLOT_BYTES = 16;
+
+	// Slots per mapping, one GiB; a mapping is limited to 2 GiB
+	private static final int SEGMENT_SHIFT = 26;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private static final long MINIMUM_CAPACITY = 16;
+
+	private static final long MAXIMUM_CAPACITY = 1L << 40;
+
+	private static final double LOAD_FACTOR = 0.75;
+
+	// Journal records: epoch << 8 | operation, key, value, size, used, and a
+	// checksum that also covers the id of the file
+	private static final int RECORD_BYTES = 48;
+
+	private static final int JOURNAL_RECORDS = 1 << 20;
+
+	private static final long PUT = 1;
+
+	private static final long REMOVE = 2;
+
+	private final File file;
+
+	private final File journalFile;
+
+	private RandomAccessFile table;
+
+	private MappedByteBuffer header;
+
+	private MappedByteBuffer[] segments;
+
+	private RandomAccessFile journalAccess;
+
+	private MappedByteBuffer journal;
+
+	// next record of the journal
+	private int journalPosition;
+
+	private long capacity;
+
+	private long mask;
+
+	private long threshold;
+
+	private long size;
+
+	// slots of the table that are not free, including tombstones
+	private long used;
+
+	private long epoch;
+
+	// random id of the file, so that a journal left by another file that had
+	// the same name never matches
+	private long fileId;
+
+	private boolean replaying;
+
+	private boolean closed;
+
+	/**
+	 * Opens the map in file, creating it if it does not exist, and grows it
+	 * if needed to hold expectedSize entries without resizing. The journal is
+	 * kept in a file of the same name with the suffix ".journal".
+	 */
+	public MappedLongLongHashMap(File file, long expectedSize) throws IOException
+	{
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+		this.file = file;
+		this.journalFile = new File(file.getPath() + ".journal");
+		if (!file.exists() || file.length() == 0)
+		{
+			// a journal left by a deleted map belongs to another file
+			if (journalFile.exists() && !journalFile.delete())
+				throw new IOException(journalFile + ": cannot delete stale journal");
+			build(capacityFor(expectedSize), 1);
+		}
+		openTable();
+		openJournal();
+		replay();
+		if (capacityFor(expectedSize) > capacity)
+			rebuild(capacityFor(expectedSize));
+	}
+
+	// Smallest power of two table that holds expectedSize entries
+	private static long capacityFor(long expectedSize)
+	{
+		long capacity = MINIMUM_CAPACITY;
+		while (capacity < MAXIMUM_CAPACITY && (long) (capacity * LOAD_FACTOR) < expectedSize)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	private static MappedByteBuffer map(RandomAccessFile f, long position, long size) throws IOException
+	{
+		MappedByteBuffer buffer = f.getChannel().map(MapMode.READ_WRITE, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	private static MappedByteBuffer[] mapSegments(RandomAccessFile f, long capacity) throws IOException
+	{
+		long segmentSlots = Math.min(capacity, 1L << SEGMENT_SHIFT);
+		MappedByteBuffer[] segments = new MappedByteBuffer[(int) (capacity / segmentSlots)];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = map(f, HEADER_BYTES + i * segmentSlots * SLOT_BYTES, segmentSlots * SLOT_BYTES);
+		return segments;
+	}
+
+	private void openTable() throws IOException
+	{
+		table = new RandomAccessFile(file, "rw");
+		if (table.length() < HEADER_BYTES)
+			throw new IOException(file + ": not a map file");
+		header = map(table, 0, HEADER_BYTES);
+		long c = header.getLong(CAPACITY_OFFSET);
+		if (header.getLong(MAGIC_OFFSET) != MAGIC || c < MINIMUM_CAPACITY || c > MAXIMUM_CAPACITY
+				|| Long.bitCount(c) != 1 || table.length() != HEADER_BYTES + c * SLOT_BYTES)
+			throw new IOException(file + ": not a map file");
+		capacity = c;
+		mask = c - 1;
+		threshold = Math.min((long) (c * LOAD_FACTOR), c - 1);
+		size = header.getLong(SIZE_OFFSET);
+		used = header.getLong(USED_OFFSET);
+		epoch = header.getLong(EPOCH_OFFSET);
+		fileId = header.getLong(FILE_ID_OFFSET);
+		segments = mapSegments(table, c);
+	}
+
+	private void openJournal() throws IOException
+	{
+		journalAccess = new RandomAccessFile(journalFile, "rw");
+		long bytes = (long) JOURNAL_RECORDS * RECORD_BYTES;
+		if (journalAccess.length() != bytes)
+			journalAccess.setLength(bytes);
+		journal = map(journalAccess, 0, bytes);
+		journalPosition = 0;
+	}
+
+	// Reapplies the journal records of the current epoch
+	private void replay() throws IOException
+	{
+		replaying = true;
+		try
+		{
+			for (; journalPosition < JOURNAL_RECORDS; journalPosition++)
+			{
+				int at = journalPosition * RECORD_BYTES;
+				long op = journal.getLong(at);
+				long key = journal.getLong(at + 8);
+				long value = journal.getLong(at + 16);
+				long recordSize = journal.getLong(at + 24);
+				long recordUsed = journal.getLong(at + 32);
+				if (op >>> 8 != epoch || journal.getLong(at + 40) != checksum(op, key, value, recordSize, recordUsed))
+					break;
+				if ((op & 0xff) == PUT)
+					put(key, value);
+				else
+					remove(key);
+				size = recordSize;
+				used = recordUsed;
+				writeCounts();
+			}
+		}
+		finally
+		{
+			replaying = false;
+		}
+	}
+
+	private long checksum(long a, long b, long c, long d, long e)
+	{
+		long h = mix(0x2545F4914F6CDD1DL ^ fileId);
+		h = mix(h ^ a);
+		h = mix(h ^ b);
+		h = mix(h ^ c);
+		h = mix(h ^ d);
+		return mix(h ^ e);
+	}
+
+	private static long mix(long h)
+	{
+		h *= 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+
+	private void append(long op, long key, long value) throws IOException
+	{
+		if (replaying)
+			return;
+		if (journalPosition == JOURNAL_RECORDS)
+			sync();
+		op |= epoch << 8;
+		int at = journalPosition * RECORD_BYTES;
+		journal.putLong(at, op);
+		journal.putLong(at + 8, key);
+		journal.putLong(at + 16, value);
+		journal.putLong(at + 24, size);
+		journal.putLong(at + 32, used);
+		// written last, so a torn record fails the check
+		journal.putLong(at + 40, checksum(op, key, value, size, used));
+		journalPosition++;
+	}
+
+	private void writeCounts()
+	{
+		header.putLong(SIZE_OFFSET, size);
+		header.putLong(USED_OFFSET, used);
+	}
+
+	private static long hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	private long keyAt(long i)
+	{
+		return segments[(int) (i >>> SEGMENT_SHIFT)].getLong((int) (i & SEGMENT_MASK) * SLOT_BYTES);
+	}
+
+	private long valueAt(long i)
+	{
+		return segments[(int) (i >>> SEGMENT_SHIFT)].getLong((int) (i & SEGMENT_MASK) * SLOT_BYTES + 8);
+	}
+
+	private void setKey(long i, long key)
+	{
+		segments[(int) (i >>> SEGMENT_SHIFT)].putLong((int) (i & SEGMENT_MASK) * SLOT_BYTES, key);
+	}
+
+	private void setValue(long i, long value)
+	{
+		segments[(int) (i >>> SEGMENT_SHIFT)].putLong((int) (i & SEGMENT_MASK) * SLOT_BYTES + 8, value);
+	}
+
+	/**
+	 * Returns the slot of key, or -1 - the slot where key belongs if it is
+	 * absent: the first tombstone or free slot of its probe sequence.
+	 */
+	private long find(long key)
+	{
+		long reusable = -1;
+		long i = hash(key) & mask;
+		for (long n = 0; n < capacity; n++, i = (i + 1) & mask)
+		{
+			long k = keyAt(i);
+			if (k == key)
+				return i;
+			if (k == FREE)
+				return -1 - ((reusable >= 0) ? reusable : i);
+			if (k == TOMBSTONE && reusable < 0)
+				reusable = i;
+		}
+		if (reusable < 0)
+			throw new IllegalStateException("Map is full");
+		return -1 - reusable;
+	}
+
+	// Header offset of the flag of key 0 or Long.MIN_VALUE
+	private static int flagOffset(long key)
+	{
+		return (key == FREE) ? HAS_ZERO_OFFSET : HAS_MIN_OFFSET;
+	}
+
+	private void checkOpen()
+	{
+		if (closed)
+			throw new IllegalStateException("Map is closed");
+	}
+
+	public long size()
+	{
+		checkOpen();
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of slots of the table.
+	 */
+	public long capacity()
+	{
+		checkOpen();
+		return capacity;
+	}
+
+	public boolean containsKey(long key)
+	{
+		checkOpen();
+		if (key == FREE || key == TOMBSTONE)
+			return header.getLong(flagOffset(key)) != 0;
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the value mapped to key, or 0 if there is none.
+	 */
+	public long get(long key)
+	{
+		return getOrDefault(key, 0);
+	}
+
+	public long getOrDefault(long key, long defaultValue)
+	{
+		checkOpen();
+		if (key == FREE || key == TOMBSTONE)
+		{
+			int flag = flagOffset(key);
+			return (header.getLong(flag) != 0) ? header.getLong(flag + 8) : defaultValue;
+		}
+		long i = find(key);
+		return (i < 0) ? defaultValue : valueAt(i);
+	}
+
+	/**
+	 * Maps key to value and returns the previous value, or 0 if there was
+	 * none.
+	 */
+	public long put(long key, long value) throws IOException
+	{
+		checkOpen();
+		if (key == FREE || key == TOMBSTONE)
+		{
+			int flag = flagOffset(key);
+			boolean present = header.getLong(flag) != 0;
+			long oldValue = present ? header.getLong(flag + 8) : 0;
+			if (!present)
+				size++;
+			append(PUT, key, value);
+			header.putLong(flag + 8, value);
+			header.putLong(flag, 1);
+			writeCounts();
+			return oldValue;
+		}
+		long i = find(key);
+		if (i >= 0)
+		{
+			long oldValue = valueAt(i);
+			append(PUT, key, value);
+			setValue(i, value);
+			return oldValue;
+		}
+		long slot = -1 - i;
+		if (keyAt(slot) == FREE && used >= threshold && !replaying)
+		{
+			// grow, or only drop the tombstones if they fill most of the table
+			rebuild((size >= threshold / 2) ? Math.min(capacity << 1, MAXIMUM_CAPACITY) : capacity);
+			slot = -1 - find(key);
+		}
+		size++;
+		if (keyAt(slot) == FREE)
+			used++;
+		append(PUT, key, value);
+		// the key is written last, so the slot never holds a wrong value
+		setValue(slot, value);
+		setKey(slot, key);
+		writeCounts();
+		return 0;
+	}
+
+	/**
+	 * Removes the mapping of key and returns its value, or 0 if there was
+	 * none.
+	 */
+	public long remove(long key) throws IOException
+	{
+		checkOpen();
+		if (key == FREE || key == TOMBSTONE)
+		{
+			int flag = flagOffset(key);
+			if (header.getLong(flag) == 0)
+				return 0;
+			size--;
+			append(REMOVE, key, 0);
+			header.putLong(flag, 0);
+			writeCounts();
+			return header.getLong(flag + 8);
+		}
+		long i = find(key);
+		if (i < 0)
+			return 0;
+		long oldValue = valueAt(i);
+		size--;
+		append(REMOVE, key, 0);
+		setKey(i, TOMBSTONE);
+		writeCounts();
+		return oldValue;
+	}
+
+	/**
+	 * Forces the table to the storage device and starts a new journal, so
+	 * that all updates so far survive a crash of the machine.
+	 */
+	public void sync() throws IOException
+	{
+		checkOpen();
+		for (MappedByteBuffer segment : segments)
+			segment.force();
+		header.force();
+		// records of older epochs are ignored from now on
+		header.putLong(EPOCH_OFFSET, ++epoch);
+		header.force();
+		journalPosition = 0;
+	}
+
+	// Writes the entries to a table of newCapacity slots in a new file that
+	// then replaces the current one
+	private void rebuild(long newCapacity) throws IOException
+	{
+		build(newCapacity, epoch + 1);
+		table.close();
+		openTable();
+		journalPosition = 0;
+	}
+
+	private void build(long newCapacity, long newEpoch) throws IOException
+	{
+		File tmp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+		try
+		{
+			out.setLength(0);
+			out.setLength(HEADER_BYTES + newCapacity * SLOT_BYTES);
+			MappedByteBuffer h = map(out, 0, HEADER_BYTES);
+			MappedByteBuffer[] s = mapSegments(out, newCapacity);
+			long n = 0;
+			if (segments != null)
+			{
+				long m = newCapacity - 1;
+				for (long j = 0; j < capacity; j++)
+				{
+					long key = keyAt(j);
+					if (key != FREE && key != TOMBSTONE)
+					{
+						long i = hash(key) & m;
+						while (s[(int) (i >>> SEGMENT_SHIFT)].getLong((int) (i & SEGMENT_MASK) * SLOT_BYTES) != FREE)
+							i = (i + 1) & m;
+						MappedByteBuffer segment = s[(int) (i >>> SEGMENT_SHIFT)];
+						segment.putLong((int) (i & SEGMENT_MASK) * SLOT_BYTES, key);
+						segment.putLong((int) (i & SEGMENT_MASK) * SLOT_BYTES + 8, valueAt(j));
+						n++;
+					}
+				}
+				for (int offset = HAS_ZERO_OFFSET; offset < FILE_ID_OFFSET + 8; offset += 8)
+					h.putLong(offset, header.getLong(offset));
+			}
+			else
+				h.putLong(FILE_ID_OFFSET, new SecureRandom().nextLong());
+			h.putLong(CAPACITY_OFFSET, newCapacity);
+			h.putLong(SIZE_OFFSET, size);
+			h.putLong(USED_OFFSET, n);
+			h.putLong(EPOCH_OFFSET, newEpoch);
+			for (MappedByteBuffer segment : s)
+				segment.force();
+			// the magic number is written last, so a half written file is
+			// never taken for a map
+			h.putLong(MAGIC_OFFSET, MAGIC);
+			h.force();
+		}
+		finally
+		{
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Syncs the map and closes its files.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+		sync();
+		closed = true;
+		table.close();
+		journalAccess.close();
+		header = null;
+		segments = null;
+		journal = null;
+	}
+}
@@ -0,0 +1,111 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue for any number of producer and consumer threads, after
+ * Vyukov's bounded MPMC queue. Every slot carries a sequence number that
+ * tells whose turn it is: a slot at position p is free for the producer of
+ * p when its sequence is p, and full for the consumer of p when it is p + 1.
+ * Producers and consumers claim positions by compare-and-set on the tail and
+ * head, then fill or empty the slot and hand it on by an ordered store of
+ * its sequence, so a stalled thread only holds up the one slot it claimed.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public class MpmcArrayQueue<E> extends BoundedQueue<E>
+{
+	private final Object[] buffer;
+
+	private final AtomicLongArray sequences;
+
+	public MpmcArrayQueue(int capacity, WaitStrategy waitStrategy)
+	{
+		super(capacity, waitStrategy);
+		this.buffer = new Object[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++)
+			sequences.lazySet(i, i);
+	}
+
+	public MpmcArrayQueue(int capacity)
+	{
+		this(capacity, WaitStrategy.YIELD);
+	}
+
+	@Override
+	public boolean offer(E e)
+	{
+		if (e == null)
+			throw new NullPointerException();
+		for (;;)
+		{
+			long t = tail.get();
+			int i = (int) t & mask;
+			long s = sequences.get(i);
+			if (s == t)
+			{
+				if (tail.compareAndSet(t, t + 1))
+				{
+					buffer[i] = e;
+					sequences.lazySet(i, t + 1);
+					return true;
+				}
+			}
+			else if (s < t)
+			{
+				// the slot still holds the element of the previous round
+				return false;
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E poll()
+	{
+		for (;;)
+		{
+			long h = head.get();
+			int i = (int) h & mask;
+			long s = sequences.get(i);
+			if (s == h + 1)
+			{
+				if (head.compareAndSet(h, h + 1))
+				{
+					E e = (E) buffer[i];
+					buffer[i] = null;
+					sequences.lazySet(i, h + capacity);
+					return e;
+				}
+			}
+			else if (s < h + 1)
+			{
+				// the slot is not filled yet
+				return null;
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E peek()
+	{
+		for (;;)
+		{
+			long h = head.get();
+			int i = (int) h & mask;
+			long s = sequences.get(i);
+			if (s < h + 1)
+				return null;
+			if (s == h + 1)
+			{
+				E e = (E) buffer[i];
+				// valid unless a consumer took the slot meanwhile
+				if (head.get() == h)
+					return e;
+			}
+		}
+	}
+}
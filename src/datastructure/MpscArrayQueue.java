@@ -0,0 +1,164 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue for any number of producer threads and one consumer
+ * thread. Producers claim a slot by compare-and-set on the tail and then
+ * fill it with an ordered store; the consumer empties slots without
+ * compare-and-set. Producers check for room against a cached limit, and
+ * only read the head of the consumer when they reach it.
+ * <p>
+ * {@link #offerBatch(Object[], int, int)} claims the slots of a whole batch
+ * with one compare-and-set, and {@link #drain(Consumer, int)} publishes the
+ * new head once per batch.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public class MpscArrayQueue<E> extends BoundedQueue<E>
+{
+	private final AtomicReferenceArray<E> buffer;
+
+	/**
+	 * Sequence below which producers may claim slots without reading the
+	 * head, at most head + capacity.
+	 */
+	private final Sequence producerLimit;
+
+	public MpscArrayQueue(int capacity, WaitStrategy waitStrategy)
+	{
+		super(capacity, waitStrategy);
+		this.buffer = new AtomicReferenceArray<>(this.capacity);
+		this.producerLimit = new Sequence(this.capacity);
+	}
+
+	public MpscArrayQueue(int capacity)
+	{
+		this(capacity, WaitStrategy.YIELD);
+	}
+
+	@Override
+	public boolean offer(E e)
+	{
+		if (e == null)
+			throw new NullPointerException();
+		long limit = producerLimit.get();
+		long t;
+		do
+		{
+			t = tail.get();
+			if (t >= limit)
+			{
+				limit = head.get() + capacity;
+				if (t >= limit)
+					return false;
+				producerLimit.lazySet(limit);
+			}
+		}
+		while (!tail.compareAndSet(t, t + 1));
+		buffer.lazySet((int) t & mask, e);
+		return true;
+	}
+
+	@Override
+	public int offerBatch(E[] a, int fromIndex, int toIndex)
+	{
+		ArrayList.subListRangeCheck(fromIndex, toIndex, a.length);
+		int n = toIndex - fromIndex;
+		for (int j = fromIndex; j < toIndex; j++)
+		{
+			if (a[j] == null)
+				throw new NullPointerException();
+		}
+		if (n == 0)
+			return 0;
+		long limit = producerLimit.get();
+		long t;
+		int k;
+		do
+		{
+			t = tail.get();
+			if (t + n > limit)
+			{
+				limit = head.get() + capacity;
+				if (t >= limit)
+					return 0;
+				producerLimit.lazySet(limit);
+			}
+			k = (int) Math.min(n, limit - t);
+		}
+		while (!tail.compareAndSet(t, t + k));
+		for (int j = 0; j < k; j++)
+			buffer.lazySet((int) (t + j) & mask, a[fromIndex + j]);
+		return k;
+	}
+
+	// Element of slot i, which a producer has claimed but may not have
+	// filled yet
+	private E await(int i)
+	{
+		E e;
+		while ((e = buffer.get(i)) == null)
+			Thread.yield();
+		return e;
+	}
+
+	@Override
+	public E poll()
+	{
+		long h = head.get();
+		int i = (int) h & mask;
+		E e = buffer.get(i);
+		if (e == null)
+		{
+			if (h == tail.get())
+				return null;
+			e = await(i);
+		}
+		buffer.lazySet(i, null);
+		head.lazySet(h + 1);
+		return e;
+	}
+
+	@Override
+	public E peek()
+	{
+		long h = head.get();
+		int i = (int) h & mask;
+		E e = buffer.get(i);
+		if (e == null && h != tail.get())
+			e = await(i);
+		return e;
+	}
+
+	/**
+	 * Removes up to max elements as {@link BoundedQueue#drain(Consumer, int)}
+	 * does, but stops at the first slot a producer has claimed and not yet
+	 * filled instead of waiting for it.
+	 */
+	@Override
+	public int drain(Consumer<? super E> c, int max)
+	{
+		long h = head.get();
+		int n = 0;
+		try
+		{
+			while (n < max)
+			{
+				int i = (int) (h + n) & mask;
+				E e = buffer.get(i);
+				if (e == null)
+					break;
+				buffer.lazySet(i, null);
+				n++;
+				c.accept(e);
+			}
+		}
+		finally
+		{
+			head.lazySet(h + n);
+		}
+		return n;
+	}
+}
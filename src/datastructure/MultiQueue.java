@@ -0,0 +1,207 @@
+package datastructure;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A relaxed concurrent priority queue (MultiQueue, Rihani, Sanders and
+ * Dementiev): c * threads sequential {@link PriorityQueue} heaps, each
+ * behind its own lock. offer inserts into a random heap; poll looks at the
+ * minima of two random heaps without locking and removes from the heap with
+ * the smaller one. Threads rarely meet on a lock, so throughput scales with
+ * the thread count, at the price of order: poll returns one of the smallest
+ * elements, on average within O(c * threads) ranks of the true minimum,
+ * rather than the minimum itself. That suits parallel best-first search and
+ * Dijkstra variants that tolerate some wasted work.
+ * <p>
+ * Null elements are not permitted. poll returns null only after finding all
+ * heaps empty, which may be stale by the time it returns.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public class MultiQueue<E>
+{
+	private static final int DEFAULT_C = 2;
+
+	// A heap with its lock and a copy of its minimum for lock-free reads
+	@SuppressWarnings("serial")
+	private static final class Shard<E> extends ReentrantLock
+	{
+		final PriorityQueue<E> heap;
+
+		volatile E min;
+
+		// keeps the fields of neighbouring shards off each other's lines
+		long p1, p2, p3, p4, p5, p6, p7;
+
+		Shard(Comparator<? super E> comparator)
+		{
+			heap = new PriorityQueue<>(16, comparator);
+		}
+	}
+
+	private final Shard<E>[] shards;
+
+	private final Comparator<? super E> comparator;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MultiQueue(int threads, int c, Comparator<? super E> comparator)
+	{
+		if (threads < 1 || c < 1)
+			throw new IllegalArgumentException("Illegal threads or c: " + threads + ", " + c);
+		this.comparator = comparator;
+		shards = new Shard[Math.max(2, threads * c)];
+		for (int i = 0; i < shards.length; i++)
+			shards[i] = new Shard<>(comparator);
+	}
+
+	public MultiQueue(int threads, Comparator<? super E> comparator)
+	{
+		this(threads, DEFAULT_C, comparator);
+	}
+
+	/**
+	 * Creates a queue of Comparable elements for the given number of threads.
+	 */
+	public MultiQueue(int threads)
+	{
+		this(threads, DEFAULT_C, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E a, E b)
+	{
+		return (comparator != null) ? comparator.compare(a, b) : ((Comparable<? super E>) a).compareTo(b);
+	}
+
+	public boolean offer(E e)
+	{
+		if (e == null)
+			throw new NullPointerException();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Shard<E> s;
+		do
+		{
+			s = shards[random.nextInt(shards.length)];
+		}
+		while (!s.tryLock());
+		try
+		{
+			s.heap.offer(e);
+			s.min = s.heap.peek();
+		}
+		finally
+		{
+			s.unlock();
+		}
+		return true;
+	}
+
+	public boolean add(E e)
+	{
+		return offer(e);
+	}
+
+	/**
+	 * Removes and returns the smaller minimum of two random heaps, or returns
+	 * null if the queue is empty.
+	 */
+	public E poll()
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int attempt = 0; attempt < shards.length; attempt++)
+		{
+			Shard<E> a = shards[random.nextInt(shards.length)];
+			Shard<E> b = shards[random.nextInt(shards.length)];
+			E ma = a.min, mb = b.min;
+			if (ma == null && mb == null)
+				continue;
+			Shard<E> s = (mb == null || (ma != null && compare(ma, mb) <= 0)) ? a : b;
+			if (!s.tryLock())
+				continue;
+			try
+			{
+				E e = s.heap.poll();
+				s.min = s.heap.peek();
+				if (e != null)
+					return e;
+			}
+			finally
+			{
+				s.unlock();
+			}
+		}
+		// mostly empty: sweep every heap before reporting empty
+		for (Shard<E> s : shards)
+		{
+			if (s.min == null)
+				continue;
+			s.lock();
+			try
+			{
+				E e = s.heap.poll();
+				s.min = s.heap.peek();
+				if (e != null)
+					return e;
+			}
+			finally
+			{
+				s.unlock();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the smallest of the heap minima, which may be stale while other
+	 * threads offer and poll, or null if the queue is empty.
+	 */
+	public E peek()
+	{
+		E best = null;
+		for (Shard<E> s : shards)
+		{
+			E m = s.min;
+			if (m != null && (best == null || compare(m, best) < 0))
+				best = m;
+		}
+		return best;
+	}
+
+	public boolean isEmpty()
+	{
+		for (Shard<E> s : shards)
+		{
+			if (s.min != null)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of elements, summed over the heaps one at a time.
+	 */
+	public int size()
+	{
+		int n = 0;
+		for (Shard<E> s : shards)
+		{
+			s.lock();
+			try
+			{
+				n += s.heap.size();
+			}
+			finally
+			{
+				s.unlock();
+			}
+		}
+		return n;
+	}
+
+	public Comparator<? super E> comparator()
+	{
+		return comparator;
+	}
+}
@@ -32,6 +32,37 @@ public class PriorityQueue<E>
 		this.comparator = comparator;
 	}
 
+	/**
+	 * Creates a queue of the given elements, heapified bottom up in O(n)
+	 * rather than offered one at a time in O(n log n).
+	 */
+	public PriorityQueue(E[] elements, Comparator<? super E> comparator)
+	{
+		this.queue = new Object[Math.max(1, elements.length)];
+		this.comparator = comparator;
+		append(elements, 0, elements.length);
+		heapify();
+	}
+
+	public PriorityQueue(E[] elements)
+	{
+		this(elements, null);
+	}
+
+	public PriorityQueue(java.util.Collection<? extends E> c, Comparator<? super E> comparator)
+	{
+		this.queue = new Object[Math.max(1, c.size())];
+		this.comparator = comparator;
+		Object[] a = c.toArray();
+		append(a, 0, a.length);
+		heapify();
+	}
+
+	public PriorityQueue(java.util.Collection<? extends E> c)
+	{
+		this(c, null);
+	}
+
 	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
 	private void grow(int minCapacity)
@@ -39,6 +70,8 @@ public class PriorityQueue<E>
 		int oldCapacity = queue.length;
 		// Double size if small; else grow by 50%
 		int newCapacity = oldCapacity + ((oldCapacity < 64) ? (oldCapacity + 2) : (oldCapacity >> 1));
+		if (newCapacity - minCapacity < 0)
+			newCapacity = minCapacity;
 		// overflow-conscious code
 		if (newCapacity - MAX_ARRAY_SIZE > 0)
 			newCapacity = hugeCapacity(minCapacity);
@@ -73,6 +106,69 @@ public class PriorityQueue<E>
 		return true;
 	}
 
+	public void addAll(E[] a)
+	{
+		addAll(a, 0, a.length);
+	}
+
+	/**
+	 * Inserts a[fromIndex..toIndex). When the batch is at least as large as
+	 * the queue, the whole heap is rebuilt bottom up in O(size), else the new
+	 * elements are sifted up one by one.
+	 */
+	public void addAll(E[] a, int fromIndex, int toIndex)
+	{
+		if (fromIndex < 0 || toIndex > a.length || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex);
+		bulkAdd(a, fromIndex, toIndex);
+	}
+
+	public void addAll(java.util.Collection<? extends E> c)
+	{
+		Object[] a = c.toArray();
+		bulkAdd(a, 0, a.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void bulkAdd(Object[] a, int fromIndex, int toIndex)
+	{
+		int oldSize = size;
+		int n = toIndex - fromIndex;
+		if (n == 0)
+			return;
+		modCount++;
+		append(a, fromIndex, toIndex);
+		if (n >= oldSize)
+			heapify();
+		else
+		{
+			for (int i = oldSize; i < size; i++)
+				siftUp(i, (E) queue[i]);
+		}
+	}
+
+	// Copies a[fromIndex..toIndex) behind the last element, not in heap order
+	private void append(Object[] a, int fromIndex, int toIndex)
+	{
+		int n = toIndex - fromIndex;
+		if (size + n > queue.length)
+			grow(size + n);
+		int s = size;
+		for (int i = fromIndex; i < toIndex; i++)
+		{
+			Object e = a[i];
+			if (e == null)
+			{
+				// leave the queue as it was
+				for (int j = size; j < s; j++)
+					queue[j] = null;
+				throw new NullPointerException();
+			}
+			queue[s++] = e;
+		}
+		size = s;
+	}
+
 	@SuppressWarnings("unchecked")
 	public E peek()
 	{
@@ -167,6 +263,29 @@ public class PriorityQueue<E>
 		return result;
 	}
 
+	/**
+	 * Removes up to max of the least elements into a, in order from a[0], and
+	 * returns how many were removed.
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(E[] a, int max)
+	{
+		int n = Math.min(Math.min(max, a.length), size);
+		if (n <= 0)
+			return 0;
+		modCount++;
+		for (int i = 0; i < n; i++)
+		{
+			a[i] = (E) queue[0];
+			int s = --size;
+			E x = (E) queue[s];
+			queue[s] = null;
+			if (s != 0)
+				siftDown(0, x);
+		}
+		return n;
+	}
+
 	@SuppressWarnings("unchecked")
 	private E removeAt(int i)
 	{
@@ -276,7 +395,7 @@ public class PriorityQueue<E>
 		queue[k] = x;
 	}
 
-	@SuppressWarnings({ "unchecked", "unused" })
+	@SuppressWarnings("unchecked")
 	private void heapify()
 	{
 		for (int i = (size >>> 1) - 1; i >= 0; i--)
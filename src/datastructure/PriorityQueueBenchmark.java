@@ -0,0 +1,415 @@
+package datastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import util.Benchmark;
+
+/**
+ * Benchmarks {@link IndexedDoubleMinPQ} and {@link IndexedLongMinPQ} at
+ * arities 2, 4 and 8, {@link IndexedPairingHeap} and {@link IndexedRadixHeap}
+ * against {@link IndexedMinimumPriorityQueue} with boxed Double keys (see
+ * {@link Benchmark}). One operation runs a whole workload on n indices:
+ * <ul>
+ * <li>DIJKSTRA computes shortest paths from vertex 0 of a random digraph
+ * with n vertices, 8 edges per vertex and integer weights in [1, 1000], so
+ * the queue sees n inserts and delMins and many decreaseKeys;</li>
+ * <li>DECREASE inserts n keys, decreases random keys 8n times and then
+ * removes all keys with delMin;</li>
+ * <li>SORT inserts n random keys and removes them all with delMin.</li>
+ * </ul>
+ * Usage: <tt>PriorityQueueBenchmark [-n 1000000,...]
+ * [-q IndexedDoubleMinPQ/4,...] [-l DIJKSTRA,DECREASE,SORT] [-w warmup]
+ * [-i iterations] [-t millis]</tt>
+ */
+public class PriorityQueueBenchmark
+{
+
+	public enum Workload
+	{
+		DIJKSTRA, DECREASE, SORT
+	}
+
+	private static final int DEGREE = 8;
+
+	// The queue implementations behind one interface
+	private static abstract class Target
+	{
+		final String name;
+
+		Target(String name)
+		{
+			this.name = name;
+		}
+
+		abstract void create(int n);
+
+		abstract boolean isEmpty();
+
+		abstract boolean contains(int i);
+
+		abstract void insert(int i, double key);
+
+		abstract void decreaseKey(int i, double key);
+
+		abstract int delMin();
+	}
+
+	private static Target doubleTarget(final int arity)
+	{
+		return new Target("IndexedDoubleMinPQ/" + arity)
+		{
+			IndexedDoubleMinPQ pq;
+
+			void create(int n)
+			{
+				pq = new IndexedDoubleMinPQ(n, arity);
+			}
+
+			boolean isEmpty()
+			{
+				return pq.isEmpty();
+			}
+
+			boolean contains(int i)
+			{
+				return pq.contains(i);
+			}
+
+			void insert(int i, double key)
+			{
+				pq.insert(i, key);
+			}
+
+			void decreaseKey(int i, double key)
+			{
+				pq.decreaseKey(i, key);
+			}
+
+			int delMin()
+			{
+				return pq.delMin();
+			}
+		};
+	}
+
+	private static Target longTarget(final int arity)
+	{
+		return new Target("IndexedLongMinPQ/" + arity)
+		{
+			IndexedLongMinPQ pq;
+
+			void create(int n)
+			{
+				pq = new IndexedLongMinPQ(n, arity);
+			}
+
+			boolean isEmpty()
+			{
+				return pq.isEmpty();
+			}
+
+			boolean contains(int i)
+			{
+				return pq.contains(i);
+			}
+
+			void insert(int i, double key)
+			{
+				pq.insert(i, (long) key);
+			}
+
+			void decreaseKey(int i, double key)
+			{
+				pq.decreaseKey(i, (long) key);
+			}
+
+			int delMin()
+			{
+				return pq.delMin();
+			}
+		};
+	}
+
+	private static List<Target> targets()
+	{
+		List<Target> targets = new ArrayList<Target>();
+		targets.add(new Target("IndexedMinimumPriorityQueue")
+		{
+			IndexedMinimumPriorityQueue<Double> pq;
+
+			void create(int n)
+			{
+				pq = new IndexedMinimumPriorityQueue<Double>(n);
+			}
+
+			boolean isEmpty()
+			{
+				return pq.isEmpty();
+			}
+
+			boolean contains(int i)
+			{
+				return pq.contains(i);
+			}
+
+			void insert(int i, double key)
+			{
+				pq.insert(i, key);
+			}
+
+			void decreaseKey(int i, double key)
+			{
+				pq.decreaseKey(i, key);
+			}
+
+			int delMin()
+			{
+				return pq.delMin();
+			}
+		});
+		for (int arity : new int[] { 2, 4, 8 })
+			targets.add(doubleTarget(arity));
+		for (int arity : new int[] { 2, 4, 8 })
+			targets.add(longTarget(arity));
+		targets.add(new Target("IndexedPairingHeap")
+		{
+			IndexedPairingHeap pq;
+
+			void create(int n)
+			{
+				pq = new IndexedPairingHeap(n);
+			}
+
+			boolean isEmpty()
+			{
+				return pq.isEmpty();
+			}
+
+			boolean contains(int i)
+			{
+				return pq.contains(i);
+			}
+
+			void insert(int i, double key)
+			{
+				pq.insert(i, key);
+			}
+
+			void decreaseKey(int i, double key)
+			{
+				pq.decreaseKey(i, key);
+			}
+
+			int delMin()
+			{
+				return pq.delMin();
+			}
+		});
+		targets.add(new Target("IndexedRadixHeap")
+		{
+			IndexedRadixHeap pq;
+
+			void create(int n)
+			{
+				pq = new IndexedRadixHeap(n);
+			}
+
+			boolean isEmpty()
+			{
+				return pq.isEmpty();
+			}
+
+			boolean contains(int i)
+			{
+				return pq.contains(i);
+			}
+
+			void insert(int i, double key)
+			{
+				pq.insert(i, (long) key);
+			}
+
+			void decreaseKey(int i, double key)
+			{
+				pq.decreaseKey(i, (long) key);
+			}
+
+			int delMin()
+			{
+				return pq.delMin();
+			}
+		});
+		return targets;
+	}
+
+	private static Benchmark.Operation operation(final Target t, Workload w, final int n)
+	{
+		final Random random = new Random(42);
+		switch (w)
+		{
+			case DIJKSTRA:
+				// adjacency arrays: the edges of v are [v * DEGREE, (v + 1) * DEGREE)
+				final int[] to = new int[n * DEGREE];
+				final int[] weight = new int[n * DEGREE];
+				for (int e = 0; e < to.length; e++)
+				{
+					to[e] = random.nextInt(n);
+					weight[e] = 1 + random.nextInt(1000);
+				}
+				final double[] dist = new double[n];
+				return new Benchmark.Operation()
+				{
+					@Override
+					public void setup()
+					{
+						t.create(n);
+						Arrays.fill(dist, Double.POSITIVE_INFINITY);
+					}
+
+					@Override
+					public long run()
+					{
+						dist[0] = 0;
+						t.insert(0, 0);
+						long sum = 0;
+						while (!t.isEmpty())
+						{
+							int v = t.delMin();
+							sum += (long) dist[v];
+							for (int e = v * DEGREE, end = e + DEGREE; e < end; e++)
+							{
+								int u = to[e];
+								double d = dist[v] + weight[e];
+								if (d < dist[u])
+								{
+									// u is either unseen or still queued
+									if (t.contains(u))
+										t.decreaseKey(u, d);
+									else
+										t.insert(u, d);
+									dist[u] = d;
+								}
+							}
+						}
+						return sum;
+					}
+				};
+			case DECREASE:
+				final double[] initial = new double[n];
+				for (int i = 0; i < n; i++)
+					initial[i] = 1000000000 + random.nextInt(1000000000);
+				final int[] indices = new int[8 * n];
+				final int[] amounts = new int[8 * n];
+				for (int j = 0; j < indices.length; j++)
+				{
+					indices[j] = random.nextInt(n);
+					amounts[j] = 1 + random.nextInt(1000);
+				}
+				final double[] current = new double[n];
+				return new Benchmark.Operation()
+				{
+					@Override
+					public void setup()
+					{
+						t.create(n);
+						System.arraycopy(initial, 0, current, 0, n);
+					}
+
+					@Override
+					public long run()
+					{
+						for (int i = 0; i < n; i++)
+							t.insert(i, current[i]);
+						for (int j = 0; j < indices.length; j++)
+						{
+							int i = indices[j];
+							current[i] -= amounts[j];
+							t.decreaseKey(i, current[i]);
+						}
+						long sum = 0;
+						for (long rank = 0; !t.isEmpty(); rank++)
+							sum += rank * (long) current[t.delMin()];
+						return sum;
+					}
+				};
+			default:
+				final double[] keys = new double[n];
+				for (int i = 0; i < n; i++)
+					keys[i] = random.nextInt(Integer.MAX_VALUE);
+				return new Benchmark.Operation()
+				{
+					@Override
+					public void setup()
+					{
+						t.create(n);
+					}
+
+					@Override
+					public long run()
+					{
+						for (int i = 0; i < n; i++)
+							t.insert(i, keys[i]);
+						long sum = 0;
+						for (long rank = 0; !t.isEmpty(); rank++)
+							sum += rank * (long) keys[t.delMin()];
+						return sum;
+					}
+				};
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		int[] sizes = { 1000000 };
+		List<String> queues = null;
+		List<Workload> workloads = Arrays.asList(Workload.values());
+		int warmup = 2, iterations = 3, millis = 500;
+
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			String value = args[i + 1];
+			if (args[i].equals("-n"))
+			{
+				String[] parts = value.split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					sizes[j] = Integer.parseInt(parts[j]);
+			}
+			else if (args[i].equals("-q"))
+				queues = Arrays.asList(value.split(","));
+			else if (args[i].equals("-l"))
+			{
+				workloads = new ArrayList<Workload>();
+				for (String l : value.split(","))
+					workloads.add(Workload.valueOf(l));
+			}
+			else if (args[i].equals("-w"))
+				warmup = Integer.parseInt(value);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (args[i].equals("-t"))
+				millis = Integer.parseInt(value);
+			else
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+		List<Target> targets = targets();
+		for (Workload w : workloads)
+		{
+			for (int n : sizes)
+			{
+				for (Target t : targets)
+				{
+					if (queues != null && !queues.contains(t.name))
+						continue;
+					Benchmark.Result r = benchmark.measure(operation(t, w, n));
+					System.out.printf("%-8s %9d  %-28s %s%n", w, n, t.name, r);
+				}
+			}
+		}
+	}
+}
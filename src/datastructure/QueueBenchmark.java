@@ -0,0 +1,327 @@
+package datastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import util.Benchmark;
+
+/**
+ * Benchmarks the bounded queues {@link SpscArrayQueue},
+ * {@link MpscArrayQueue} and {@link MpmcArrayQueue} against
+ * {@link Queue} guarded by a lock and bounded to the same capacity. One
+ * operation hands n messages from p producer threads to the consumer, the
+ * measuring thread, including the start of the producers; the reported
+ * msg/s is the throughput in messages. Workloads:
+ * <ul>
+ * <li>SINGLE moves every message with one offer and one poll;</li>
+ * <li>BATCH offers and drains batches of up to 64 messages.</li>
+ * </ul>
+ * The single producer queue only runs with one producer. Full and empty
+ * queues are waited on with the wait strategy given by -y.
+ * <p>
+ * Usage: <tt>QueueBenchmark [-p 1,2,...] [-n messages] [-c capacity]
+ * [-q SpscArrayQueue,...] [-l SINGLE,BATCH] [-y BUSY_SPIN|YIELD|PARK]
+ * [-w warmup] [-i iterations] [-t millis]</tt>
+ */
+public class QueueBenchmark
+{
+
+	public enum Workload
+	{
+		SINGLE, BATCH
+	}
+
+	private static final int BATCH_SIZE = 64;
+
+	// The queue implementations behind one interface
+	private static abstract class Target
+	{
+		final String name;
+
+		final boolean singleProducer;
+
+		Target(String name, boolean singleProducer)
+		{
+			this.name = name;
+			this.singleProducer = singleProducer;
+		}
+
+		abstract void create(int capacity, WaitStrategy waitStrategy);
+
+		abstract boolean offer(Integer e);
+
+		abstract Integer poll();
+
+		abstract int offerBatch(Integer[] a, int fromIndex, int toIndex);
+
+		abstract int drain(Consumer<Integer> c, int max);
+	}
+
+	private static abstract class BoundedTarget extends Target
+	{
+		BoundedQueue<Integer> queue;
+
+		BoundedTarget(String name, boolean singleProducer)
+		{
+			super(name, singleProducer);
+		}
+
+		boolean offer(Integer e)
+		{
+			return queue.offer(e);
+		}
+
+		Integer poll()
+		{
+			return queue.poll();
+		}
+
+		int offerBatch(Integer[] a, int fromIndex, int toIndex)
+		{
+			return queue.offerBatch(a, fromIndex, toIndex);
+		}
+
+		int drain(Consumer<Integer> c, int max)
+		{
+			return queue.drain(c, max);
+		}
+	}
+
+	private static List<Target> targets()
+	{
+		List<Target> targets = new ArrayList<Target>();
+		targets.add(new BoundedTarget("SpscArrayQueue", true)
+		{
+			void create(int capacity, WaitStrategy waitStrategy)
+			{
+				queue = new SpscArrayQueue<Integer>(capacity, waitStrategy);
+			}
+		});
+		targets.add(new BoundedTarget("MpscArrayQueue", false)
+		{
+			void create(int capacity, WaitStrategy waitStrategy)
+			{
+				queue = new MpscArrayQueue<Integer>(capacity, waitStrategy);
+			}
+		});
+		targets.add(new BoundedTarget("MpmcArrayQueue", false)
+		{
+			void create(int capacity, WaitStrategy waitStrategy)
+			{
+				queue = new MpmcArrayQueue<Integer>(capacity, waitStrategy);
+			}
+		});
+		targets.add(new Target("synchronized Queue", false)
+		{
+			final Object lock = new Object();
+
+			Queue<Integer> queue;
+
+			int capacity;
+
+			void create(int capacity, WaitStrategy waitStrategy)
+			{
+				this.queue = new Queue<Integer>();
+				this.capacity = capacity;
+			}
+
+			boolean offer(Integer e)
+			{
+				synchronized (lock)
+				{
+					if (queue.size() >= capacity)
+						return false;
+					queue.add(e);
+					return true;
+				}
+			}
+
+			Integer poll()
+			{
+				synchronized (lock)
+				{
+					return queue.isEmpty() ? null : queue.poll();
+				}
+			}
+
+			int offerBatch(Integer[] a, int fromIndex, int toIndex)
+			{
+				synchronized (lock)
+				{
+					int n = Math.min(toIndex - fromIndex, capacity - queue.size());
+					for (int i = 0; i < n; i++)
+						queue.add(a[fromIndex + i]);
+					return n;
+				}
+			}
+
+			int drain(Consumer<Integer> c, int max)
+			{
+				synchronized (lock)
+				{
+					int n = 0;
+					while (n < max && !queue.isEmpty())
+					{
+						c.accept(queue.poll());
+						n++;
+					}
+					return n;
+				}
+			}
+		});
+		return targets;
+	}
+
+	// Sums what the consumer receives
+	private static final class Sum implements Consumer<Integer>
+	{
+		long sum;
+
+		public void accept(Integer e)
+		{
+			sum += e;
+		}
+	}
+
+	private static Benchmark.Operation operation(final Target t, final Workload w, final int producers,
+			final int n, final int capacity, final WaitStrategy waitStrategy)
+	{
+		final Integer[] messages = new Integer[n];
+		for (int i = 0; i < n; i++)
+			messages[i] = Integer.valueOf(i);
+		return new Benchmark.Operation()
+		{
+			@Override
+			public void setup()
+			{
+				t.create(capacity, waitStrategy);
+			}
+
+			@Override
+			public long run()
+			{
+				Thread[] threads = new Thread[producers];
+				for (int p = 0; p < producers; p++)
+				{
+					final int from = (int) ((long) n * p / producers);
+					final int to = (int) ((long) n * (p + 1) / producers);
+					threads[p] = new Thread()
+					{
+						@Override
+						public void run()
+						{
+							produce(t, w, messages, from, to, waitStrategy);
+						}
+					};
+					threads[p].start();
+				}
+				Sum sum = new Sum();
+				int received = 0;
+				int counter = 0;
+				while (received < n)
+				{
+					int k;
+					if (w == Workload.BATCH)
+						k = t.drain(sum, BATCH_SIZE);
+					else
+					{
+						Integer e = t.poll();
+						k = (e == null) ? 0 : 1;
+						if (e != null)
+							sum.sum += e;
+					}
+					received += k;
+					counter = (k == 0) ? waitStrategy.idle(counter) : 0;
+				}
+				try
+				{
+					for (Thread thread : threads)
+						thread.join();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return sum.sum;
+			}
+		};
+	}
+
+	private static void produce(Target t, Workload w, Integer[] messages, int from, int to,
+			WaitStrategy waitStrategy)
+	{
+		int counter = 0;
+		for (int i = from; i < to;)
+		{
+			int k;
+			if (w == Workload.BATCH)
+				k = t.offerBatch(messages, i, Math.min(i + BATCH_SIZE, to));
+			else
+				k = t.offer(messages[i]) ? 1 : 0;
+			i += k;
+			counter = (k == 0) ? waitStrategy.idle(counter) : 0;
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		int[] producerCounts = { 1, 2, 4 };
+		int n = 100000;
+		int capacity = 1024;
+		List<String> queues = null;
+		List<Workload> workloads = Arrays.asList(Workload.values());
+		WaitStrategy waitStrategy = WaitStrategy.YIELD;
+		int warmup = 5, iterations = 5, millis = 500;
+
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			String value = args[i + 1];
+			if (args[i].equals("-p"))
+			{
+				String[] parts = value.split(",");
+				producerCounts = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					producerCounts[j] = Integer.parseInt(parts[j]);
+			}
+			else if (args[i].equals("-n"))
+				n = Integer.parseInt(value);
+			else if (args[i].equals("-c"))
+				capacity = Integer.parseInt(value);
+			else if (args[i].equals("-q"))
+				queues = Arrays.asList(value.split(","));
+			else if (args[i].equals("-l"))
+			{
+				workloads = new ArrayList<Workload>();
+				for (String l : value.split(","))
+					workloads.add(Workload.valueOf(l));
+			}
+			else if (args[i].equals("-y"))
+				waitStrategy = WaitStrategy.valueOf(value);
+			else if (args[i].equals("-w"))
+				warmup = Integer.parseInt(value);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (args[i].equals("-t"))
+				millis = Integer.parseInt(value);
+			else
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+		List<Target> targets = targets();
+		for (Workload w : workloads)
+		{
+			for (int p : producerCounts)
+			{
+				for (Target t : targets)
+				{
+					if ((queues != null && !queues.contains(t.name)) || (t.singleProducer && p > 1))
+						continue;
+					Benchmark.Result r = benchmark.measure(operation(t, w, p, n, capacity, waitStrategy));
+					System.out.printf("%-6s p=%-2d %-18s %12.0f msg/s  %s%n", w, p, t.name, r.throughput() * n, r);
+				}
+			}
+		}
+	}
+}
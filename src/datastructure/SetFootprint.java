@@ -0,0 +1,94 @@
+package datastructure;
+
+/**
+ * Reports the heap taken per element by the sets of this package, for one
+ * large set and for many small sets such as the adjacency sets of a graph.
+ * The elements are allocated up front and shared, so only the sets
+ * themselves are measured. Heap use is read after repeated garbage
+ * collections and is approximate; {@link CompactHashSet#footprint()} gives
+ * the estimate of a single compact set.
+ * <p>
+ * Usage: <tt>SetFootprint [elements] [small set size]</tt>
+ */
+public class SetFootprint
+{
+
+	private enum Kind
+	{
+		HASH_SET, LINKED_HASH_SET, COMPACT_HASH_SET, COMPACT_LINKED_HASH_SET;
+
+		Object create(int expectedSize)
+		{
+			switch (this)
+			{
+				case HASH_SET:
+					return new HashSet<Integer>(expectedSize, Integer.class);
+				case LINKED_HASH_SET:
+					return new LinkedHashSet<Integer>(expectedSize, Integer.class);
+				case COMPACT_HASH_SET:
+					return new HashSet<Integer>(expectedSize, true, Integer.class);
+				default:
+					return new LinkedHashSet<Integer>(expectedSize, true, Integer.class);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void add(Object set, Integer e)
+		{
+			if (set instanceof HashSet)
+				((HashSet<Integer>) set).add(e);
+			else
+				((LinkedHashSet<Integer>) set).add(e);
+		}
+	}
+
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++)
+		{
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	// Bytes per element of sets sets of setSize elements each
+	private static double bytesPerElement(Kind kind, Integer[] elements, int sets, int setSize)
+	{
+		Object[] holder = new Object[sets];
+		long before = usedHeap();
+		for (int s = 0, e = 0; s < sets; s++)
+		{
+			Object set = kind.create(0);
+			for (int i = 0; i < setSize; i++)
+				kind.add(set, elements[e++]);
+			holder[s] = set;
+		}
+		long after = usedHeap();
+		double bytes = (after - before) / (double) elements.length;
+		if (holder[sets - 1] == null)
+			throw new AssertionError();
+		return bytes;
+	}
+
+	public static void main(String[] args)
+	{
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int small = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		n -= n % small;
+
+		Integer[] elements = new Integer[n];
+		for (int i = 0; i < n; i++)
+			elements[i] = i;
+
+		System.out.printf("%-24s %14s %14s%n", "", "1 x " + n, (n / small) + " x " + small);
+		for (Kind kind : Kind.values())
+		{
+			double large = bytesPerElement(kind, elements, 1, n);
+			double many = bytesPerElement(kind, elements, n / small, small);
+			System.out.printf("%-24s %9.1f B/el %9.1f B/el%n", kind, large, many);
+		}
+	}
+}
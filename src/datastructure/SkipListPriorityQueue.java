@@ -0,0 +1,241 @@
+package datastructure;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * A lock-free concurrent priority queue on a skip list (the SkipQueue of
+ * Herlihy and Shavit). Elements are kept in order in a lock-free skip list,
+ * with ties broken by insertion order so that every node has a distinct key.
+ * poll walks the bottom level from the front and claims the first node not
+ * yet taken with one CAS on a flag of the node, then unlinks it from the
+ * list; offer inserts in expected O(log n).
+ * <p>
+ * Unlike {@link MultiQueue} this queue is strict: poll returns the minimum
+ * of the elements present when it started, or one offered while it ran. The
+ * queue is quiescently consistent rather than linearizable, since an element
+ * offered ahead of a running poll can be passed over in favour of a larger
+ * one. Threads contend on the front of the list, so poll scales worse than
+ * the relaxed queue. Null elements are not permitted.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public class SkipListPriorityQueue<E>
+{
+	private static final int MAX_LEVEL = 32;
+
+	// A node is taken, as this AtomicBoolean, before it is unlinked
+	@SuppressWarnings("serial")
+	private static final class Node<E> extends AtomicBoolean
+	{
+		final E item;
+		final long seq; // breaks ties between equal items
+		final AtomicMarkableReference<Node<E>>[] next; // marked when unlinking
+		final int topLevel;
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node(E item, long seq, int topLevel)
+		{
+			this.item = item;
+			this.seq = seq;
+			this.topLevel = topLevel;
+			next = new AtomicMarkableReference[topLevel + 1];
+			for (int level = 0; level <= topLevel; level++)
+				next[level] = new AtomicMarkableReference<>(null, false);
+		}
+	}
+
+	private final Node<E> head = new Node<>(null, Long.MIN_VALUE, MAX_LEVEL - 1);
+
+	private final Node<E> tail = new Node<>(null, Long.MAX_VALUE, MAX_LEVEL - 1);
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Comparator<? super E> comparator;
+
+	public SkipListPriorityQueue(Comparator<? super E> comparator)
+	{
+		this.comparator = comparator;
+		for (int level = 0; level < MAX_LEVEL; level++)
+			head.next[level].set(tail, false);
+	}
+
+	/**
+	 * Creates a queue of Comparable elements.
+	 */
+	public SkipListPriorityQueue()
+	{
+		this(null);
+	}
+
+	public boolean offer(E e)
+	{
+		if (e == null)
+			throw new NullPointerException();
+		Node<E> node = new Node<>(e, sequence.getAndIncrement(), randomLevel());
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] preds = new Node[MAX_LEVEL];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] succs = new Node[MAX_LEVEL];
+		do
+		{
+			find(node, preds, succs);
+			for (int level = 0; level <= node.topLevel; level++)
+				node.next[level].set(succs[level], false);
+		}
+		while (!preds[0].next[0].compareAndSet(succs[0], node, false, false));
+		// the node is in the queue; the upper levels only speed up searches
+		boolean[] marked = { false };
+		for (int level = 1; level <= node.topLevel; level++)
+		{
+			for (;;)
+			{
+				Node<E> succ = node.next[level].get(marked);
+				if (marked[0])
+					return true; // already being unlinked by a poll
+				if (succ != succs[level] && !node.next[level].compareAndSet(succ, succs[level], false, false))
+					continue;
+				if (preds[level].next[level].compareAndSet(succs[level], node, false, false))
+					break;
+				find(node, preds, succs);
+			}
+		}
+		return true;
+	}
+
+	public boolean add(E e)
+	{
+		return offer(e);
+	}
+
+	/**
+	 * Removes and returns the least element, or returns null if the queue is
+	 * empty.
+	 */
+	public E poll()
+	{
+		for (Node<E> node = head.next[0].getReference(); node != tail; node = node.next[0].getReference())
+		{
+			if (!node.get() && node.compareAndSet(false, true))
+			{
+				unlink(node);
+				return node.item;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the least element, or null if the queue is empty.
+	 */
+	public E peek()
+	{
+		for (Node<E> node = head.next[0].getReference(); node != tail; node = node.next[0].getReference())
+		{
+			if (!node.get())
+				return node.item;
+		}
+		return null;
+	}
+
+	public boolean isEmpty()
+	{
+		return peek() == null;
+	}
+
+	/**
+	 * Returns the number of elements by walking the list, which takes linear
+	 * time and may be stale while other threads offer and poll.
+	 */
+	public int size()
+	{
+		int n = 0;
+		for (Node<E> node = head.next[0].getReference(); node != tail; node = node.next[0].getReference())
+		{
+			if (!node.get())
+				n++;
+		}
+		return n;
+	}
+
+	public Comparator<? super E> comparator()
+	{
+		return comparator;
+	}
+
+	/***************************************************************************
+	 * Skip list helper functions.
+	 ***************************************************************************/
+	// Geometric level in [0, MAX_LEVEL - 1] with p = 1/2
+	private static int randomLevel()
+	{
+		long r = ThreadLocalRandom.current().nextLong();
+		return Long.numberOfTrailingZeros(r | (1L << (MAX_LEVEL - 1)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean less(Node<E> node, Node<E> key)
+	{
+		if (node == tail)
+			return false;
+		int cmp = (comparator != null) ? comparator.compare(node.item, key.item)
+				: ((Comparable<? super E>) node.item).compareTo(key.item);
+		return cmp < 0 || (cmp == 0 && node.seq < key.seq);
+	}
+
+	// Fills in the last node before key and the node after it on every level,
+	// snipping out marked nodes on the way
+	private void find(Node<E> key, Node<E>[] preds, Node<E>[] succs)
+	{
+		boolean[] marked = { false };
+		retry: for (;;)
+		{
+			Node<E> pred = head;
+			for (int level = MAX_LEVEL - 1; level >= 0; level--)
+			{
+				Node<E> curr = pred.next[level].getReference();
+				for (;;)
+				{
+					Node<E> succ = curr.next[level].get(marked);
+					while (marked[0])
+					{
+						if (!pred.next[level].compareAndSet(curr, succ, false, false))
+							continue retry;
+						curr = succ;
+						succ = curr.next[level].get(marked);
+					}
+					if (!less(curr, key))
+						break;
+					pred = curr;
+					curr = succ;
+				}
+				preds[level] = pred;
+				succs[level] = curr;
+			}
+			return;
+		}
+	}
+
+	// Marks every level of a taken node top down, then lets find snip it out
+	private void unlink(Node<E> node)
+	{
+		boolean[] marked = { false };
+		for (int level = node.topLevel; level >= 0; level--)
+		{
+			Node<E> succ = node.next[level].get(marked);
+			while (!marked[0])
+			{
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] preds = new Node[MAX_LEVEL];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<E>[] succs = new Node[MAX_LEVEL];
+		find(node, preds, succs);
+	}
+}
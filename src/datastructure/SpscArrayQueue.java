@@ -0,0 +1,113 @@
+package datastructure;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue for exactly one producer thread and one consumer thread.
+ * A slot of the buffer is free when it holds null: the producer fills the
+ * slot at the tail if it is free and the consumer empties the slot at the
+ * head if it is full, with ordered stores and no compare-and-set, so neither
+ * side reads the sequence of the other.
+ * <p>
+ * {@link #drain(Consumer, int)} and {@link #offerBatch(Object[], int, int)}
+ * publish their new head or tail once per batch.
+ *
+ * @param <E>
+ *            the type/class of elements held in this queue.
+ */
+public class SpscArrayQueue<E> extends BoundedQueue<E>
+{
+	private final AtomicReferenceArray<E> buffer;
+
+	public SpscArrayQueue(int capacity, WaitStrategy waitStrategy)
+	{
+		super(capacity, waitStrategy);
+		this.buffer = new AtomicReferenceArray<>(this.capacity);
+	}
+
+	public SpscArrayQueue(int capacity)
+	{
+		this(capacity, WaitStrategy.YIELD);
+	}
+
+	@Override
+	public boolean offer(E e)
+	{
+		if (e == null)
+			throw new NullPointerException();
+		long t = tail.get();
+		int i = (int) t & mask;
+		if (buffer.get(i) != null)
+			return false;
+		buffer.lazySet(i, e);
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	@Override
+	public E poll()
+	{
+		long h = head.get();
+		int i = (int) h & mask;
+		E e = buffer.get(i);
+		if (e == null)
+			return null;
+		buffer.lazySet(i, null);
+		head.lazySet(h + 1);
+		return e;
+	}
+
+	@Override
+	public E peek()
+	{
+		return buffer.get((int) head.get() & mask);
+	}
+
+	@Override
+	public int drain(Consumer<? super E> c, int max)
+	{
+		long h = head.get();
+		int n = 0;
+		try
+		{
+			while (n < max)
+			{
+				int i = (int) (h + n) & mask;
+				E e = buffer.get(i);
+				if (e == null)
+					break;
+				buffer.lazySet(i, null);
+				n++;
+				c.accept(e);
+			}
+		}
+		finally
+		{
+			head.lazySet(h + n);
+		}
+		return n;
+	}
+
+	@Override
+	public int offerBatch(E[] a, int fromIndex, int toIndex)
+	{
+		ArrayList.subListRangeCheck(fromIndex, toIndex, a.length);
+		for (int j = fromIndex; j < toIndex; j++)
+		{
+			if (a[j] == null)
+				throw new NullPointerException();
+		}
+		int n = Math.min(toIndex - fromIndex, capacity);
+		if (n == 0)
+			return 0;
+		long t = tail.get();
+		// the consumer frees slots in order, so if the last slot of the batch
+		// is free, so are the ones before it
+		if (buffer.get((int) (t + n - 1) & mask) != null)
+			return super.offerBatch(a, fromIndex, toIndex);
+		for (int j = 0; j < n; j++)
+			buffer.lazySet((int) (t + j) & mask, a[fromIndex + j]);
+		tail.lazySet(t + n);
+		return n;
+	}
+}
@@ -1,5 +1,10 @@
 package datastructure;
 
+/**
+ * A synchronized last-in-first-out stack on top of {@link Vector}. Code that
+ * uses a stack from a single thread should prefer {@link ArrayStack}, and
+ * concurrent producers and consumers {@link ConcurrentStack}.
+ */
 public class Stack<E> extends Vector<E>
 {
 	public Stack(Class<E> elementType)
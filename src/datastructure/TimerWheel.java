@@ -0,0 +1,139 @@
+package datastructure;
+
+/**
+ * Hierarchical timing wheel that expires the entries of a {@link Cache}.
+ * Each level is a ring of buckets, and every bucket a circular list of the
+ * entries due within it: 64 buckets of about 1 second, 64 of about 1 minute,
+ * 32 of about 1 hour, 4 of about 1.6 days and one overflow bucket.
+ * Scheduling an entry is O(1); advancing the clock visits only the buckets
+ * that the clock passed, expiring due entries and moving the others down to
+ * finer levels.
+ */
+final class TimerWheel<K, V>
+{
+	private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+
+	// Bucket widths in nanoseconds, powers of two close to a second, a
+	// minute, an hour, a day and the span of the fourth level
+	private static final long[] SPANS = { 1L << 30, 1L << 36, 1L << 42, 1L << 47, 1L << 49 };
+
+	private static final int[] SHIFT = { 30, 36, 42, 47, 49 };
+
+	private final Cache<K, V> cache;
+
+	// Sentinels of the bucket lists
+	private final Cache.Node<K, V>[][] wheel;
+
+	private long nanos;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	TimerWheel(Cache<K, V> cache, long now)
+	{
+		this.cache = cache;
+		this.nanos = now;
+		wheel = new Cache.Node[BUCKETS.length][];
+		for (int i = 0; i < BUCKETS.length; i++)
+		{
+			wheel[i] = new Cache.Node[BUCKETS[i]];
+			for (int j = 0; j < BUCKETS[i]; j++)
+			{
+				Cache.Node<K, V> sentinel = new Cache.Node<K, V>(null, null, 0);
+				sentinel.prevInTimer = sentinel.nextInTimer = sentinel;
+				wheel[i][j] = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Moves the clock to now, expiring the entries due by then.
+	 */
+	void advance(long now)
+	{
+		long previous = nanos;
+		nanos = now;
+		for (int i = 0; i < SHIFT.length; i++)
+		{
+			long previousTicks = previous >>> SHIFT[i];
+			long currentTicks = now >>> SHIFT[i];
+			if (currentTicks - previousTicks <= 0L)
+			{
+				break;
+			}
+			expire(i, previousTicks, currentTicks - previousTicks);
+		}
+	}
+
+	// Empties the buckets of the level that the clock passed
+	private void expire(int level, long previousTicks, long delta)
+	{
+		Cache.Node<K, V>[] buckets = wheel[level];
+		int mask = buckets.length - 1;
+		int steps = (int) Math.min(1 + delta, buckets.length);
+		int start = (int) (previousTicks & mask);
+		int end = start + steps;
+		for (int i = start; i < end; i++)
+		{
+			Cache.Node<K, V> sentinel = buckets[i & mask];
+			Cache.Node<K, V> node = sentinel.nextInTimer;
+			sentinel.prevInTimer = sentinel.nextInTimer = sentinel;
+			while (node != sentinel)
+			{
+				Cache.Node<K, V> next = node.nextInTimer;
+				node.prevInTimer = node.nextInTimer = null;
+				if (node.expiry - nanos > 0L)
+				{
+					schedule(node);
+				}
+				else
+				{
+					cache.expireEntry(node);
+				}
+				node = next;
+			}
+		}
+	}
+
+	/**
+	 * Adds node to the bucket of its expiry time, or moves it there.
+	 */
+	void schedule(Cache.Node<K, V> node)
+	{
+		deschedule(node);
+		Cache.Node<K, V> sentinel = findBucket(node.expiry);
+		node.prevInTimer = sentinel.prevInTimer;
+		node.nextInTimer = sentinel;
+		sentinel.prevInTimer.nextInTimer = node;
+		sentinel.prevInTimer = node;
+	}
+
+	/**
+	 * Removes node from its bucket, if it is in one.
+	 */
+	void deschedule(Cache.Node<K, V> node)
+	{
+		Cache.Node<K, V> next = node.nextInTimer;
+		if (next != null)
+		{
+			Cache.Node<K, V> prev = node.prevInTimer;
+			next.prevInTimer = prev;
+			prev.nextInTimer = next;
+			node.prevInTimer = node.nextInTimer = null;
+		}
+	}
+
+	// Entries already due go to the current bucket of the finest level
+	private Cache.Node<K, V> findBucket(long time)
+	{
+		long duration = Math.max(0L, time - nanos);
+		int last = wheel.length - 1;
+		for (int i = 0; i < last; i++)
+		{
+			if (duration < SPANS[i + 1])
+			{
+				long ticks = (nanos + duration) >>> SHIFT[i];
+				return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+			}
+		}
+		return wheel[last][0];
+	}
+}
@@ -0,0 +1,64 @@
+package datastructure;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a {@link BoundedQueue} to become non-full or
+ * non-empty in the blocking put and take methods. The strategies trade
+ * latency against the CPU burnt while waiting:
+ * <ul>
+ * <li>BUSY_SPIN keeps retrying, for the lowest latency when every thread has
+ * a core of its own;</li>
+ * <li>YIELD spins a little, then yields the processor between retries;</li>
+ * <li>PARK spins, yields, then parks for growing intervals up to a
+ * millisecond, for queues that are idle most of the time.</li>
+ * </ul>
+ */
+public enum WaitStrategy
+{
+	BUSY_SPIN
+	{
+		int idle(int counter)
+		{
+			return counter;
+		}
+	},
+
+	YIELD
+	{
+		int idle(int counter)
+		{
+			if (counter < SPINS)
+				return counter + 1;
+			Thread.yield();
+			return counter;
+		}
+	},
+
+	PARK
+	{
+		int idle(int counter)
+		{
+			if (counter < SPINS)
+				return counter + 1;
+			if (counter < SPINS + YIELDS)
+			{
+				Thread.yield();
+				return counter + 1;
+			}
+			int shift = Math.min(counter - SPINS - YIELDS, 10);
+			LockSupport.parkNanos(1000L << shift);
+			return counter + 1;
+		}
+	};
+
+	private static final int SPINS = 100;
+
+	private static final int YIELDS = 100;
+
+	/**
+	 * Waits once after counter unsuccessful retries and returns the counter
+	 * for the next retry. A wait starts with counter 0.
+	 */
+	abstract int idle(int counter);
+}
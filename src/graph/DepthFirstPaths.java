@@ -1,10 +1,11 @@
 package graph;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.util.Scanner;
 
+import datastructure.ArrayStack;
 import datastructure.HashMap;
-import datastructure.Stack;
 
 public class DepthFirstPaths<T>
 {
@@ -79,11 +80,11 @@ public class DepthFirstPaths<T>
 	 * @return the sequence of vertices on a directed path from the source
 	 *         vertex <tt>s</tt> to vertex <tt>v</tt>, as an Iterable
 	 */
-	public Stack<T> pathTo(T vertex)
+	public ArrayStack<T> pathTo(T vertex)
 	{
 		if (!hasPathTo(vertex))
 			return null;
-		Stack<T> path = new Stack<T>();
+		ArrayStack<T> path = new ArrayStack<T>();
 		for (T x = vertex; !x.equals(sourceVertex); x = edgeTo.get(x))
 			path.push(x);
 		path.push(sourceVertex);
@@ -93,7 +94,7 @@ public class DepthFirstPaths<T>
 	/**
 	 * Unit tests the <tt>DepthFirstDirectedPaths</tt> data type.
 	 */
-	public static void main(String[] args)
+	public static void main(String[] args) throws FileNotFoundException
 	{
 		File file = new File("data/directedgraph/tinyDAG.txt");
 		Scanner in = new Scanner(file);
@@ -120,7 +121,7 @@ public class DepthFirstPaths<T>
 		int s = 0;
 		DepthFirstPaths<Integer> dfs = new DepthFirstPaths<>(graph, s);
 
-		for (int v = 0; v < G.V(); v++)
+		for (int v : graph.getVertices().toArray())
 		{
 			if (dfs.hasPathTo(v))
 			{
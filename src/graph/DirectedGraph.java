@@ -12,16 +12,28 @@ public class DirectedGraph<T>
 {
 	private final Class<T> dataType;
 	private final Class<LinkedHashSet<T>> adjacencyType;
+	private final boolean compactAdjacency;
 	
 	private int totalEdges;
 	private LinkedList<T> vertices;
 	private HashMap<T, LinkedHashSet<T>> adjacency;
 	
 
-	@SuppressWarnings("unchecked")
 	public DirectedGraph(Class<T> dataType)
+	{
+		this(dataType, false);
+	}
+
+	/**
+	 * Creates a graph that, if compactAdjacency is set, keeps the adjacency
+	 * set of every vertex in a compact LinkedHashSet, which saves most of
+	 * the memory of large graphs.
+	 */
+	@SuppressWarnings("unchecked")
+	public DirectedGraph(Class<T> dataType, boolean compactAdjacency)
 	{
 		this.dataType = dataType;
+		this.compactAdjacency = compactAdjacency;
 		adjacencyType = (Class<LinkedHashSet<T>>) new LinkedHashSet<T>(dataType).getClass();
 		
 		totalEdges = 0;
@@ -33,6 +45,7 @@ public class DirectedGraph<T>
 	{
 		dataType = graph.getDataType();
 		adjacencyType = graph.getAdjacencyType();
+		compactAdjacency = graph.compactAdjacency;
 		
 		totalEdges = graph.getTotalEdges();
 		vertices = graph.getVertices().clone();
@@ -83,7 +96,8 @@ public class DirectedGraph<T>
 		if (!adjacency.containsKey(vertex))
 		{
 			vertices.add(vertex);
-			adjacency.put(vertex, new LinkedHashSet<T>(dataType));
+			adjacency.put(vertex, compactAdjacency ? new LinkedHashSet<T>(0, true, dataType)
+					: new LinkedHashSet<T>(dataType));
 		}
 	}
 
@@ -2,15 +2,15 @@ package numbertheory;
 
 import java.util.Scanner;
 
-import datastructure.ArrayList;
+import datastructure.IntArrayList;
 
 public class FibonacciHugeModulo
 {
 	private static long getFibonacciHuge(long n, int m)
 	{
 
-		ArrayList<Integer> fibs = new ArrayList<>();
-		ArrayList<Integer> mods = new ArrayList<>();
+		IntArrayList fibs = new IntArrayList();
+		IntArrayList mods = new IntArrayList();
 
 		// Nothing to do if n = 0
 		if (n == 0)
@@ -1,5 +1,7 @@
 package sorting;
 
+import java.util.concurrent.RecursiveAction;
+
 public class CharArray
 {
 
@@ -14,6 +16,112 @@ public class CharArray
 		sort(a, fromIndex, toIndex - 1, null, 0, 0);
 	}
 
+	public static void parallelSort(char[] a)
+	{
+		parallelSort(a, 0, a.length, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	public static void parallelSort(char[] a, int fromIndex, int toIndex)
+	{
+		parallelSort(a, fromIndex, toIndex, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	/**
+	 * Sorts the range a[fromIndex..toIndex) using the shared fork/join pool.
+	 * The range is cut into leaves that are sorted sequentially and then
+	 * merged pairwise through a single work array of the same length.
+	 * 
+	 * @param granularity
+	 *            ranges of at most this many elements are sorted sequentially
+	 */
+	public static void parallelSort(char[] a, int fromIndex, int toIndex, int granularity)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		ParallelSort.checkGranularity(granularity);
+		int n = toIndex - fromIndex;
+		if (n <= granularity || ParallelSort.parallelism() == 1)
+		{
+			sort(a, fromIndex, fromIndex + n - 1, null, 0, 0);
+		}
+		else
+		{
+			ParallelSort.pool().invoke(
+					new Sorter(a, new char[n], fromIndex, n, 0, ParallelSort.leafSize(n, granularity)));
+		}
+	}
+
+	/**
+	 * Rearranges a so that a[k] holds the value it would have if a were
+	 * sorted, with no greater element before it and no smaller element after
+	 * it, and returns that value. Uses dual-pivot quickselect, which runs in
+	 * expected linear time, and switches to heap selection after too many
+	 * unbalanced partitions, which bounds the worst case by O(n log k).
+	 */
+	public static char select(char[] a, int k)
+	{
+		if (k < 0 || k >= a.length)
+		{
+			throw new ArrayIndexOutOfBoundsException(k);
+		}
+		select(a, 0, a.length - 1, k);
+		return a[k];
+	}
+
+	/**
+	 * Rearranges a so that a[0..k) holds its k smallest elements in ascending
+	 * order. The order of the remaining elements is unspecified.
+	 */
+	public static void partialSort(char[] a, int k)
+	{
+		checkK(a.length, k);
+		if (k == 0)
+		{
+			return;
+		}
+		if (k < a.length)
+		{
+			select(a, 0, a.length - 1, k - 1);
+		}
+		sort(a, 0, k - 1, null, 0, 0);
+	}
+
+	/**
+	 * Copies the k smallest elements of a into out[0..k) in ascending order
+	 * and leaves a unchanged. out serves as a bounded max-heap, so this takes
+	 * a single pass over a and O(n log k) time.
+	 */
+	public static void topK(char[] a, int k, char[] out)
+	{
+		checkK(a.length, k);
+		if (out.length < k)
+		{
+			throw new IllegalArgumentException("out.length(" + out.length + ") < k(" + k + ")");
+		}
+		if (k == 0)
+		{
+			return;
+		}
+		System.arraycopy(a, 0, out, 0, k);
+		for (int i = (k >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(out, 0, i, out[i], k);
+		}
+		for (int i = k; i < a.length; ++i)
+		{
+			char x = a[i];
+			if (x < out[0])
+			{
+				siftDown(out, 0, 0, x, k);
+			}
+		}
+		for (int n = k - 1; n > 0; --n)
+		{ // Heap sort: move the maximum behind the shrinking heap
+			char max = out[0];
+			siftDown(out, 0, 0, out[n], n);
+			out[n] = max;
+		}
+	}
+
 	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
 	{
 		if (fromIndex > toIndex)
@@ -30,6 +138,285 @@ public class CharArray
 		}
 	}
 
+	private static void checkK(int arrayLength, int k)
+	{
+		if (k < 0 || k > arrayLength)
+		{
+			throw new IllegalArgumentException("k(" + k + ") not in [0, " + arrayLength + "]");
+		}
+	}
+
+	// Dual-pivot quickselect: places the k-th smallest element of a[left..right]
+	// at a[k], partitioned around it
+	private static void select(char[] a, int left, int right, int k)
+	{
+		// Allow about two partitions per halving of the range
+		int budget = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+
+		while (right - left >= 47)
+		{
+			if (--budget < 0)
+			{
+				heapSelect(a, left, right, k);
+				return;
+			}
+
+			// Same pivot sampling as the dual-pivot quicksort
+			int length = right - left + 1;
+			int seventh = (length >> 3) + (length >> 6) + 1;
+			int e3 = (left + right) >>> 1;
+			int e2 = e3 - seventh;
+			int e1 = e2 - seventh;
+			int e4 = e3 + seventh;
+			int e5 = e4 + seventh;
+
+			if (a[e2] < a[e1])
+			{
+				char t = a[e2];
+				a[e2] = a[e1];
+				a[e1] = t;
+			}
+			if (a[e3] < a[e2])
+			{
+				char t = a[e3];
+				a[e3] = a[e2];
+				a[e2] = t;
+				if (t < a[e1])
+				{
+					a[e2] = a[e1];
+					a[e1] = t;
+				}
+			}
+			if (a[e4] < a[e3])
+			{
+				char t = a[e4];
+				a[e4] = a[e3];
+				a[e3] = t;
+				if (t < a[e2])
+				{
+					a[e3] = a[e2];
+					a[e2] = t;
+					if (t < a[e1])
+					{
+						a[e2] = a[e1];
+						a[e1] = t;
+					}
+				}
+			}
+			if (a[e5] < a[e4])
+			{
+				char t = a[e5];
+				a[e5] = a[e4];
+				a[e4] = t;
+				if (t < a[e3])
+				{
+					a[e4] = a[e3];
+					a[e3] = t;
+					if (t < a[e2])
+					{
+						a[e3] = a[e2];
+						a[e2] = t;
+						if (t < a[e1])
+						{
+							a[e2] = a[e1];
+							a[e1] = t;
+						}
+					}
+				}
+			}
+
+			int less = left; // The index of the first element of center part
+			int great = right; // The index before the first element of right part
+
+			if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5])
+			{
+				char pivot1 = a[e2];
+				char pivot2 = a[e4];
+
+				a[e2] = a[left];
+				a[e4] = a[right];
+
+				while (a[++less] < pivot1)
+					;
+				while (pivot2 < a[--great])
+					;
+
+				outer: for (int j = less - 1; ++j <= great;)
+				{
+					char aj = a[j];
+					if (aj < pivot1)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else if (pivot2 < aj)
+					{ // Move a[j] to right part
+						while (pivot2 < a[great])
+						{
+							if (great-- == j)
+							{
+								break outer;
+							}
+						}
+						if (a[great] < pivot1)
+						{ // a[great] <= pivot2
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // pivot1 <= a[great] <= pivot2
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// Swap pivots into their final positions
+				a[left] = a[less - 1];
+				a[less - 1] = pivot1;
+				a[right] = a[great + 1];
+				a[great + 1] = pivot2;
+
+				// Continue in the part that contains k
+				if (k < less - 1)
+				{
+					right = less - 2;
+				}
+				else if (k > great + 1)
+				{
+					left = great + 2;
+				}
+				else if (k == less - 1 || k == great + 1)
+				{
+					return;
+				}
+				else
+				{
+					left = less;
+					right = great;
+				}
+			}
+			else
+			{ // Partitioning with one pivot
+				char pivot = a[e3];
+
+				for (int j = less; j <= great; ++j)
+				{
+					if (a[j] == pivot)
+					{
+						continue;
+					}
+					char aj = a[j];
+					if (aj < pivot)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else
+					{ // a[j] > pivot - Move a[j] to right part
+						while (pivot < a[great])
+						{
+							--great;
+						}
+						if (a[great] < pivot)
+						{ // a[great] <= pivot
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // a[great] == pivot
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// a[less..great] are equal to the pivot
+				if (k < less)
+				{
+					right = less - 1;
+				}
+				else if (k > great)
+				{
+					left = great + 1;
+				}
+				else
+				{
+					return;
+				}
+			}
+		}
+
+		// Use insertion sort on tiny ranges
+		for (int i = left, j = i; i < right; j = ++i)
+		{
+			char ai = a[i + 1];
+			while (ai < a[j])
+			{
+				a[j + 1] = a[j];
+				if (j-- == left)
+				{
+					break;
+				}
+			}
+			a[j + 1] = ai;
+		}
+	}
+
+	// Heap selection in O(n log k): keeps the k - left + 1 smallest elements of
+	// a[left..right] in a max-heap at a[left..k], then moves its top to a[k]
+	private static void heapSelect(char[] a, int left, int right, int k)
+	{
+		int m = k - left + 1;
+		for (int i = (m >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(a, left, i, a[left + i], m);
+		}
+		for (int i = k + 1; i <= right; ++i)
+		{
+			char x = a[i];
+			if (x < a[left])
+			{
+				a[i] = a[left];
+				siftDown(a, left, 0, x, m);
+			}
+		}
+		char top = a[left];
+		a[left] = a[k];
+		a[k] = top;
+	}
+
+	// Sifts x down from slot i of the max-heap h[base..base+n)
+	private static void siftDown(char[] h, int base, int i, char x, int n)
+	{
+		for (int half = n >>> 1; i < half;)
+		{
+			int child = (i << 1) + 1;
+			char c = h[base + child];
+			int right = child + 1;
+			if (right < n && c < h[base + right])
+			{
+				c = h[base + (child = right)];
+			}
+			if (x < c)
+			{
+				h[base + i] = c;
+				i = child;
+			}
+			else
+			{
+				break;
+			}
+		}
+		h[base + i] = x;
+	}
+
 	private static void sort(char[] a, int left, int right, char[] work, int workBase, int workLen)
 	{
 		// Use counting sort on large arrays
@@ -480,4 +867,138 @@ public class CharArray
 		}
 	}
 
+	/**
+	 * Sorts a[base..base+size) in four quarters, merges the quarters pairwise
+	 * into w and merges the two halves back into a. Leaves use the sequential
+	 * sort with their slice of w as its work buffer.
+	 */
+	private static final class Sorter extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final char[] a, w;
+		private final int base, size, wbase, gran;
+
+		Sorter(char[] a, char[] w, int base, int size, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.base = base;
+			this.size = size;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			char[] a = this.a, w = this.w;
+			int b = base, n = size, wb = wbase, g = gran;
+			if (n <= g)
+			{
+				sort(a, b, b + n - 1, w, wb, n);
+				return;
+			}
+			int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+			invokeAll(new Sorter(a, w, b, q, wb, g), new Sorter(a, w, b + q, h - q, wb + q, g),
+					new Sorter(a, w, b + h, q, wb + h, g), new Sorter(a, w, b + u, n - u, wb + u, g));
+			invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+					new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+			new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+		}
+	}
+
+	/**
+	 * Merges the sorted ranges a[lbase..lbase+lsize) and a[rbase..rbase+rsize)
+	 * into w starting at wbase. Large merges split the longer range at its
+	 * midpoint, binary search the split value in the other range and merge
+	 * both halves in parallel.
+	 */
+	private static final class Merger extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final char[] a, w;
+		private final int lbase, lsize, rbase, rsize, wbase, gran;
+
+		Merger(char[] a, char[] w, int lbase, int lsize, int rbase, int rsize, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.lbase = lbase;
+			this.lsize = lsize;
+			this.rbase = rbase;
+			this.rsize = rsize;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			char[] a = this.a, w = this.w;
+			int lb = lbase, ln = lsize, rb = rbase, rn = rsize, k = wbase, g = gran;
+			if (ln + rn > g && (ln > 1 || rn > 1))
+			{
+				int lh, rh;
+				if (ln >= rn)
+				{ // a[lb..lb+lh) and the right elements < split go first
+					lh = ln >>> 1;
+					char split = a[lb + lh];
+					int lo = 0;
+					for (int hi = rn; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[rb + mid] < split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					rh = lo;
+				}
+				else
+				{ // a[rb..rb+rh) and the left elements <= split go first
+					rh = rn >>> 1;
+					char split = a[rb + rh];
+					int lo = 0;
+					for (int hi = ln; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[lb + mid] <= split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					lh = lo;
+				}
+				invokeAll(new Merger(a, w, lb, lh, rb, rh, k, g),
+						new Merger(a, w, lb + lh, ln - lh, rb + rh, rn - rh, k + lh + rh, g));
+				return;
+			}
+
+			int lf = lb + ln, rf = rb + rn;
+			while (lb < lf && rb < rf)
+			{
+				char al = a[lb], ar = a[rb];
+				if (al <= ar)
+				{
+					w[k++] = al;
+					++lb;
+				}
+				else
+				{
+					w[k++] = ar;
+					++rb;
+				}
+			}
+			if (rb < rf)
+			{
+				System.arraycopy(a, rb, w, k, rf - rb);
+			}
+			else if (lb < lf)
+			{
+				System.arraycopy(a, lb, w, k, lf - lb);
+			}
+		}
+	}
 }
@@ -1,8 +1,16 @@
 package sorting;
 
+import java.util.concurrent.RecursiveAction;
+
 public class DoubleArray
 {
 
+	/**
+	 * Ranges of at least this length that are not nearly sorted are radix
+	 * sorted instead of quicksorted.
+	 */
+	private static final int RADIX_SORT_THRESHOLD = 4096;
+
 	public static void sort(double[] a)
 	{
 		sort(a, 0, a.length - 1, null, 0, 0);
@@ -14,6 +22,182 @@ public class DoubleArray
 		sort(a, fromIndex, toIndex - 1, null, 0, 0);
 	}
 
+	public static void parallelSort(double[] a)
+	{
+		parallelSort(a, 0, a.length, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	public static void parallelSort(double[] a, int fromIndex, int toIndex)
+	{
+		parallelSort(a, fromIndex, toIndex, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	/**
+	 * Sorts the range a[fromIndex..toIndex) using the shared fork/join pool.
+	 * The range is cut into leaves that are sorted sequentially and then
+	 * merged pairwise through a single work array of the same length.
+	 * 
+	 * @param granularity
+	 *            ranges of at most this many elements are sorted sequentially
+	 */
+	public static void parallelSort(double[] a, int fromIndex, int toIndex, int granularity)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		ParallelSort.checkGranularity(granularity);
+		int right = moveNaNsToEnd(a, fromIndex, toIndex - 1);
+		int n = right + 1 - fromIndex;
+		if (n <= granularity || ParallelSort.parallelism() == 1)
+		{
+			doSort(a, fromIndex, right, null, 0, 0);
+		}
+		else
+		{
+			ParallelSort.pool().invoke(
+					new Sorter(a, new double[n], fromIndex, n, 0, ParallelSort.leafSize(n, granularity)));
+		}
+		placeNegativeZeros(a, fromIndex, right);
+	}
+
+	public static void radixSort(double[] a)
+	{
+		radixSort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts the range a[fromIndex..toIndex) with an LSD radix sort on 8-bit
+	 * digits. Runs in linear time but needs a buffer of toIndex - fromIndex
+	 * elements; {@link #sort(double[], int, int)} switches to it automatically for
+	 * large ranges that are not nearly sorted.
+	 */
+	public static void radixSort(double[] a, int fromIndex, int toIndex)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		int right = moveNaNsToEnd(a, fromIndex, toIndex - 1);
+		if (right > fromIndex)
+		{
+			radixSort(a, fromIndex, right, null, 0, 0);
+		}
+	}
+
+	/**
+	 * Sorts keys into ascending order and applies the same permutation to
+	 * payload. The sort is stable: equal keys keep the relative order of their
+	 * payloads.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length
+	 */
+	public static void sortWithPayload(double[] keys, int[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	public static void sortWithPayload(double[] keys, long[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	public static void sortWithPayload(double[] keys, Object[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	/**
+	 * Returns the permutation that sorts keys, leaving keys unchanged:
+	 * keys[result[0]] <= keys[result[1]] <= ... Equal keys appear in index
+	 * order.
+	 */
+	public static int[] argsort(double[] keys)
+	{
+		int[] perm = identity(keys.length);
+		coSort(keys.clone(), perm, 0, keys.length - 1);
+		return perm;
+	}
+
+	/**
+	 * Rearranges a so that a[k] holds the value it would have if a were
+	 * sorted, with no greater element before it and no smaller element after
+	 * it, and returns that value. Uses dual-pivot quickselect, which runs in
+	 * expected linear time, and switches to heap selection after too many
+	 * unbalanced partitions, which bounds the worst case by O(n log k).
+	 */
+	public static double select(double[] a, int k)
+	{
+		if (k < 0 || k >= a.length)
+		{
+			throw new ArrayIndexOutOfBoundsException(k);
+		}
+		int right = moveNaNsToEnd(a, 0, a.length - 1);
+		if (k <= right)
+		{
+			select(a, 0, right, k);
+			signZeros(a, 0, right, k);
+		}
+		return a[k];
+	}
+
+	/**
+	 * Rearranges a so that a[0..k) holds its k smallest elements in ascending
+	 * order. The order of the remaining elements is unspecified.
+	 */
+	public static void partialSort(double[] a, int k)
+	{
+		checkK(a.length, k);
+		if (k == 0)
+		{
+			return;
+		}
+		int right = moveNaNsToEnd(a, 0, a.length - 1);
+		if (k - 1 < right)
+		{
+			select(a, 0, right, k - 1);
+			signZeros(a, 0, right, k - 1);
+			right = k - 1;
+		}
+		doSort(a, 0, right, null, 0, 0);
+		placeNegativeZeros(a, 0, right);
+	}
+
+	/**
+	 * Copies the k smallest elements of a into out[0..k) in ascending order
+	 * and leaves a unchanged. out serves as a bounded max-heap, so this takes
+	 * a single pass over a and O(n log k) time.
+	 */
+	public static void topK(double[] a, int k, double[] out)
+	{
+		checkK(a.length, k);
+		if (out.length < k)
+		{
+			throw new IllegalArgumentException("out.length(" + out.length + ") < k(" + k + ")");
+		}
+		if (k == 0)
+		{
+			return;
+		}
+		System.arraycopy(a, 0, out, 0, k);
+		for (int i = (k >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(out, 0, i, out[i], k);
+		}
+		for (int i = k; i < a.length; ++i)
+		{
+			double x = a[i];
+			if (Double.compare(x, out[0]) < 0)
+			{
+				siftDown(out, 0, 0, x, k);
+			}
+		}
+		for (int n = k - 1; n > 0; --n)
+		{ // Heap sort: move the maximum behind the shrinking heap
+			double max = out[0];
+			siftDown(out, 0, 0, out[n], n);
+			out[n] = max;
+		}
+	}
+
 	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
 	{
 		if (fromIndex > toIndex)
@@ -30,9 +214,320 @@ public class DoubleArray
 		}
 	}
 
+	private static void checkK(int arrayLength, int k)
+	{
+		if (k < 0 || k > arrayLength)
+		{
+			throw new IllegalArgumentException("k(" + k + ") not in [0, " + arrayLength + "]");
+		}
+	}
+
+	// Dual-pivot quickselect: places the k-th smallest element of a[left..right]
+	// at a[k], partitioned around it
+	private static void select(double[] a, int left, int right, int k)
+	{
+		// Allow about two partitions per halving of the range
+		int budget = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+
+		while (right - left >= 47)
+		{
+			if (--budget < 0)
+			{
+				heapSelect(a, left, right, k);
+				return;
+			}
+
+			// Same pivot sampling as the dual-pivot quicksort
+			int length = right - left + 1;
+			int seventh = (length >> 3) + (length >> 6) + 1;
+			int e3 = (left + right) >>> 1;
+			int e2 = e3 - seventh;
+			int e1 = e2 - seventh;
+			int e4 = e3 + seventh;
+			int e5 = e4 + seventh;
+
+			if (a[e2] < a[e1])
+			{
+				double t = a[e2];
+				a[e2] = a[e1];
+				a[e1] = t;
+			}
+			if (a[e3] < a[e2])
+			{
+				double t = a[e3];
+				a[e3] = a[e2];
+				a[e2] = t;
+				if (t < a[e1])
+				{
+					a[e2] = a[e1];
+					a[e1] = t;
+				}
+			}
+			if (a[e4] < a[e3])
+			{
+				double t = a[e4];
+				a[e4] = a[e3];
+				a[e3] = t;
+				if (t < a[e2])
+				{
+					a[e3] = a[e2];
+					a[e2] = t;
+					if (t < a[e1])
+					{
+						a[e2] = a[e1];
+						a[e1] = t;
+					}
+				}
+			}
+			if (a[e5] < a[e4])
+			{
+				double t = a[e5];
+				a[e5] = a[e4];
+				a[e4] = t;
+				if (t < a[e3])
+				{
+					a[e4] = a[e3];
+					a[e3] = t;
+					if (t < a[e2])
+					{
+						a[e3] = a[e2];
+						a[e2] = t;
+						if (t < a[e1])
+						{
+							a[e2] = a[e1];
+							a[e1] = t;
+						}
+					}
+				}
+			}
+
+			int less = left; // The index of the first element of center part
+			int great = right; // The index before the first element of right part
+
+			if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5])
+			{
+				double pivot1 = a[e2];
+				double pivot2 = a[e4];
+
+				a[e2] = a[left];
+				a[e4] = a[right];
+
+				while (a[++less] < pivot1)
+					;
+				while (pivot2 < a[--great])
+					;
+
+				outer: for (int j = less - 1; ++j <= great;)
+				{
+					double aj = a[j];
+					if (aj < pivot1)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else if (pivot2 < aj)
+					{ // Move a[j] to right part
+						while (pivot2 < a[great])
+						{
+							if (great-- == j)
+							{
+								break outer;
+							}
+						}
+						if (a[great] < pivot1)
+						{ // a[great] <= pivot2
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // pivot1 <= a[great] <= pivot2
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// Swap pivots into their final positions
+				a[left] = a[less - 1];
+				a[less - 1] = pivot1;
+				a[right] = a[great + 1];
+				a[great + 1] = pivot2;
+
+				// Continue in the part that contains k
+				if (k < less - 1)
+				{
+					right = less - 2;
+				}
+				else if (k > great + 1)
+				{
+					left = great + 2;
+				}
+				else if (k == less - 1 || k == great + 1)
+				{
+					return;
+				}
+				else
+				{
+					left = less;
+					right = great;
+				}
+			}
+			else
+			{ // Partitioning with one pivot
+				double pivot = a[e3];
+
+				for (int j = less; j <= great; ++j)
+				{
+					if (a[j] == pivot)
+					{
+						continue;
+					}
+					double aj = a[j];
+					if (aj < pivot)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else
+					{ // a[j] > pivot - Move a[j] to right part
+						while (pivot < a[great])
+						{
+							--great;
+						}
+						if (a[great] < pivot)
+						{ // a[great] <= pivot
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // a[great] == pivot
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// a[less..great] are equal to the pivot
+				if (k < less)
+				{
+					right = less - 1;
+				}
+				else if (k > great)
+				{
+					left = great + 1;
+				}
+				else
+				{
+					return;
+				}
+			}
+		}
+
+		// Use insertion sort on tiny ranges
+		for (int i = left, j = i; i < right; j = ++i)
+		{
+			double ai = a[i + 1];
+			while (ai < a[j])
+			{
+				a[j + 1] = a[j];
+				if (j-- == left)
+				{
+					break;
+				}
+			}
+			a[j + 1] = ai;
+		}
+	}
+
+	// Heap selection in O(n log k): keeps the k - left + 1 smallest elements of
+	// a[left..right] in a max-heap at a[left..k], then moves its top to a[k]
+	private static void heapSelect(double[] a, int left, int right, int k)
+	{
+		int m = k - left + 1;
+		for (int i = (m >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(a, left, i, a[left + i], m);
+		}
+		for (int i = k + 1; i <= right; ++i)
+		{
+			double x = a[i];
+			if (Double.compare(x, a[left]) < 0)
+			{
+				a[i] = a[left];
+				siftDown(a, left, 0, x, m);
+			}
+		}
+		double top = a[left];
+		a[left] = a[k];
+		a[k] = top;
+	}
+
+	// Sifts x down from slot i of the max-heap h[base..base+n)
+	private static void siftDown(double[] h, int base, int i, double x, int n)
+	{
+		for (int half = n >>> 1; i < half;)
+		{
+			int child = (i << 1) + 1;
+			double c = h[base + child];
+			int right = child + 1;
+			if (right < n && Double.compare(c, h[base + right]) < 0)
+			{
+				c = h[base + (child = right)];
+			}
+			if (Double.compare(x, c) < 0)
+			{
+				h[base + i] = c;
+				i = child;
+			}
+			else
+			{
+				break;
+			}
+		}
+		h[base + i] = x;
+	}
+
+	// The partition treats -0.0 and 0.0 as equal. If a[k] is a zero, hand the
+	// negative signs to the zeros nearest the front, as a full sort would
+	private static void signZeros(double[] a, int left, int right, int k)
+	{
+		if (a[k] != 0.0d)
+		{
+			return;
+		}
+		int negative = 0;
+		for (int i = left; i <= right; ++i)
+		{
+			if (a[i] == 0.0d && Double.doubleToRawLongBits(a[i]) < 0)
+			{
+				++negative;
+			}
+		}
+		for (int i = left; i <= right; ++i)
+		{
+			if (a[i] == 0.0d)
+			{
+				a[i] = (--negative >= 0) ? -0.0d : 0.0d;
+			}
+		}
+	}
+
 	private static void sort(double[] a, int left, int right, double[] work, int workBase, int workLen)
 	{
+		right = moveNaNsToEnd(a, left, right);
+		doSort(a, left, right, work, workBase, workLen);
+		placeNegativeZeros(a, left, right);
+	}
 
+	// Moves NaNs to the end of a[left..right], returns the index of the last non-NaN
+	private static int moveNaNsToEnd(double[] a, int left, int right)
+	{
 		while (left <= right && Double.isNaN(a[right]))
 		{
 			--right;
@@ -47,9 +542,12 @@ public class DoubleArray
 				--right;
 			}
 		}
+		return right;
+	}
 
-		doSort(a, left, right, work, workBase, workLen);
-
+	// Moves -0.0 ahead of 0.0 in the sorted, NaN-free range a[left..right]
+	private static void placeNegativeZeros(double[] a, int left, int right)
+	{
 		int hi = right;
 
 		while (left < hi)
@@ -132,8 +630,15 @@ public class DoubleArray
 			}
 
 			if (++count == 67)
-			{
-				sort(a, left, right, true);
+			{ // Not nearly sorted: use radix sort on large arrays
+				if (right - left >= RADIX_SORT_THRESHOLD)
+				{
+					radixSort(a, left, right, work, workBase, workLen);
+				}
+				else
+				{
+					sort(a, left, right, true);
+				}
 				return;
 			}
 		}
@@ -212,6 +717,343 @@ public class DoubleArray
 		}
 	}
 
+	private static void radixSort(double[] a, int left, int right, double[] work, int workBase, int workLen)
+	{
+		int n = right - left + 1;
+		if (work == null || workLen < n || workBase + n > work.length)
+		{
+			work = new double[n];
+			workBase = 0;
+		}
+
+		// Histograms of all 8 digits in a single pass
+		int[] count = new int[8 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			long key = radixKey(a[i]);
+			++count[(int) key & 0xFF];
+			++count[256 + ((int) (key >>> 8) & 0xFF)];
+			++count[512 + ((int) (key >>> 16) & 0xFF)];
+			++count[768 + ((int) (key >>> 24) & 0xFF)];
+			++count[1024 + ((int) (key >>> 32) & 0xFF)];
+			++count[1280 + ((int) (key >>> 40) & 0xFF)];
+			++count[1536 + ((int) (key >>> 48) & 0xFF)];
+			++count[1792 + ((int) (key >>> 56) & 0xFF)];
+		}
+
+		double[] src = a, dst = work;
+		int so = left, wo = workBase; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 64; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((int) (radixKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				double x = src[i];
+				dst[wo + count[c + ((int) (radixKey(x) >>> shift) & 0xFF)]++] = x;
+			}
+			double[] t = src;
+			src = dst;
+			dst = t;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != a)
+		{
+			System.arraycopy(src, so, a, left, n);
+		}
+	}
+
+	// Maps the IEEE-754 bits of x to a key whose unsigned order is the numeric
+	// order with -0.0 before 0.0: negative values have all bits flipped, the
+	// others only the sign bit
+	private static long radixKey(double x)
+	{
+		long bits = Double.doubleToRawLongBits(x);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+
+	private static void checkPayload(int keysLength, int payloadLength)
+	{
+		if (keysLength != payloadLength)
+		{
+			throw new IllegalArgumentException("keys.length(" + keysLength + ") != payload.length(" + payloadLength
+					+ ")");
+		}
+	}
+
+	private static int[] identity(int n)
+	{
+		int[] perm = new int[n];
+		for (int i = 0; i < n; ++i)
+		{
+			perm[i] = i;
+		}
+		return perm;
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on perm
+	private static void coSort(double[] keys, int[] perm, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				double ai = keys[i + 1];
+				int pi = perm[i + 1];
+				while (Double.compare(ai, keys[j]) < 0)
+				{
+					keys[j + 1] = keys[j];
+					perm[j + 1] = perm[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				perm[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 8 digits in a single pass
+		int[] count = new int[8 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			long key = coSortKey(keys[i]);
+			++count[(int) key & 0xFF];
+			++count[256 + ((int) (key >>> 8) & 0xFF)];
+			++count[512 + ((int) (key >>> 16) & 0xFF)];
+			++count[768 + ((int) (key >>> 24) & 0xFF)];
+			++count[1024 + ((int) (key >>> 32) & 0xFF)];
+			++count[1280 + ((int) (key >>> 40) & 0xFF)];
+			++count[1536 + ((int) (key >>> 48) & 0xFF)];
+			++count[1792 + ((int) (key >>> 56) & 0xFF)];
+		}
+
+		double[] src = keys, dst = new double[n];
+		int[] psrc = perm, pdst = new int[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 64; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((int) (coSortKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				double x = src[i];
+				int d = wo + count[c + ((int) (coSortKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			double[] t = src;
+			src = dst;
+			dst = t;
+			int[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, perm, left, n);
+		}
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on payload
+	private static void coSort(double[] keys, long[] payload, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				double ai = keys[i + 1];
+				long pi = payload[i + 1];
+				while (Double.compare(ai, keys[j]) < 0)
+				{
+					keys[j + 1] = keys[j];
+					payload[j + 1] = payload[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				payload[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 8 digits in a single pass
+		int[] count = new int[8 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			long key = coSortKey(keys[i]);
+			++count[(int) key & 0xFF];
+			++count[256 + ((int) (key >>> 8) & 0xFF)];
+			++count[512 + ((int) (key >>> 16) & 0xFF)];
+			++count[768 + ((int) (key >>> 24) & 0xFF)];
+			++count[1024 + ((int) (key >>> 32) & 0xFF)];
+			++count[1280 + ((int) (key >>> 40) & 0xFF)];
+			++count[1536 + ((int) (key >>> 48) & 0xFF)];
+			++count[1792 + ((int) (key >>> 56) & 0xFF)];
+		}
+
+		double[] src = keys, dst = new double[n];
+		long[] psrc = payload, pdst = new long[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 64; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((int) (coSortKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				double x = src[i];
+				int d = wo + count[c + ((int) (coSortKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			double[] t = src;
+			src = dst;
+			dst = t;
+			long[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, payload, left, n);
+		}
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on payload
+	private static void coSort(double[] keys, Object[] payload, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				double ai = keys[i + 1];
+				Object pi = payload[i + 1];
+				while (Double.compare(ai, keys[j]) < 0)
+				{
+					keys[j + 1] = keys[j];
+					payload[j + 1] = payload[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				payload[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 8 digits in a single pass
+		int[] count = new int[8 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			long key = coSortKey(keys[i]);
+			++count[(int) key & 0xFF];
+			++count[256 + ((int) (key >>> 8) & 0xFF)];
+			++count[512 + ((int) (key >>> 16) & 0xFF)];
+			++count[768 + ((int) (key >>> 24) & 0xFF)];
+			++count[1024 + ((int) (key >>> 32) & 0xFF)];
+			++count[1280 + ((int) (key >>> 40) & 0xFF)];
+			++count[1536 + ((int) (key >>> 48) & 0xFF)];
+			++count[1792 + ((int) (key >>> 56) & 0xFF)];
+		}
+
+		double[] src = keys, dst = new double[n];
+		Object[] psrc = payload, pdst = new Object[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 64; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((int) (coSortKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				double x = src[i];
+				int d = wo + count[c + ((int) (coSortKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			double[] t = src;
+			src = dst;
+			dst = t;
+			Object[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, payload, left, n);
+		}
+	}
+
+	// radixKey with every NaN mapped to the largest key, so NaNs sort last
+	private static long coSortKey(double x)
+	{
+		return (x != x) ? -1L : radixKey(x);
+	}
+
 	private static void sort(double[] a, int left, int right, boolean leftmost)
 	{
 		int length = right - left + 1;
@@ -505,4 +1347,139 @@ public class DoubleArray
 			sort(a, great + 1, right, false);
 		}
 	}
+
+	/**
+	 * Sorts a[base..base+size) in four quarters, merges the quarters pairwise
+	 * into w and merges the two halves back into a. Leaves use the sequential
+	 * sort with their slice of w as its work buffer.
+	 */
+	private static final class Sorter extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final double[] a, w;
+		private final int base, size, wbase, gran;
+
+		Sorter(double[] a, double[] w, int base, int size, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.base = base;
+			this.size = size;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			double[] a = this.a, w = this.w;
+			int b = base, n = size, wb = wbase, g = gran;
+			if (n <= g)
+			{
+				doSort(a, b, b + n - 1, w, wb, n);
+				return;
+			}
+			int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+			invokeAll(new Sorter(a, w, b, q, wb, g), new Sorter(a, w, b + q, h - q, wb + q, g),
+					new Sorter(a, w, b + h, q, wb + h, g), new Sorter(a, w, b + u, n - u, wb + u, g));
+			invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+					new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+			new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+		}
+	}
+
+	/**
+	 * Merges the sorted ranges a[lbase..lbase+lsize) and a[rbase..rbase+rsize)
+	 * into w starting at wbase. Large merges split the longer range at its
+	 * midpoint, binary search the split value in the other range and merge
+	 * both halves in parallel.
+	 */
+	private static final class Merger extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final double[] a, w;
+		private final int lbase, lsize, rbase, rsize, wbase, gran;
+
+		Merger(double[] a, double[] w, int lbase, int lsize, int rbase, int rsize, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.lbase = lbase;
+			this.lsize = lsize;
+			this.rbase = rbase;
+			this.rsize = rsize;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			double[] a = this.a, w = this.w;
+			int lb = lbase, ln = lsize, rb = rbase, rn = rsize, k = wbase, g = gran;
+			if (ln + rn > g && (ln > 1 || rn > 1))
+			{
+				int lh, rh;
+				if (ln >= rn)
+				{ // a[lb..lb+lh) and the right elements < split go first
+					lh = ln >>> 1;
+					double split = a[lb + lh];
+					int lo = 0;
+					for (int hi = rn; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[rb + mid] < split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					rh = lo;
+				}
+				else
+				{ // a[rb..rb+rh) and the left elements <= split go first
+					rh = rn >>> 1;
+					double split = a[rb + rh];
+					int lo = 0;
+					for (int hi = ln; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[lb + mid] <= split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					lh = lo;
+				}
+				invokeAll(new Merger(a, w, lb, lh, rb, rh, k, g),
+						new Merger(a, w, lb + lh, ln - lh, rb + rh, rn - rh, k + lh + rh, g));
+				return;
+			}
+
+			int lf = lb + ln, rf = rb + rn;
+			while (lb < lf && rb < rf)
+			{
+				double al = a[lb], ar = a[rb];
+				if (al <= ar)
+				{
+					w[k++] = al;
+					++lb;
+				}
+				else
+				{
+					w[k++] = ar;
+					++rb;
+				}
+			}
+			if (rb < rf)
+			{
+				System.arraycopy(a, rb, w, k, rf - rb);
+			}
+			else if (lb < lf)
+			{
+				System.arraycopy(a, lb, w, k, lf - lb);
+			}
+		}
+	}
 }
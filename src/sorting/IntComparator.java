@@ -0,0 +1,14 @@
+package sorting;
+
+/**
+ * Comparison function on primitive <tt>int</tt> values, used to sort
+ * <tt>int[]</tt> arrays in orders other than the natural one without boxing.
+ */
+public interface IntComparator
+{
+	/**
+	 * Returns a negative integer, zero, or a positive integer as the first
+	 * argument is less than, equal to, or greater than the second.
+	 */
+	int compare(int a, int b);
+}
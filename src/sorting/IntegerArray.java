@@ -1,5 +1,7 @@
 package sorting;
 
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Class to sort and array of Integers. Example
  * 
@@ -8,39 +10,1244 @@ package sorting;
 public class IntegerArray
 {
 
-	public static void sort(int[] a)
-	{
-		sort(a, 0, a.length - 1, null, 0, 0);
-	}
+	/**
+	 * Ranges of at least this length that are not nearly sorted are radix
+	 * sorted instead of quicksorted.
+	 */
+	private static final int RADIX_SORT_THRESHOLD = 4096;
+
+	public static void sort(int[] a)
+	{
+		sort(a, 0, a.length - 1, null, 0, 0);
+	}
+
+	public static void sort(int[] a, int fromIndex, int toIndex)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		sort(a, fromIndex, toIndex - 1, null, 0, 0);
+	}
+
+	/**
+	 * Sorts a into the order induced by c. Uses the same merge/dual-pivot
+	 * engine as {@link #sort(int[])} with every comparison going through c.
+	 * All callers share that engine, so the JIT inlines c only while no more
+	 * than two comparator classes have been passed to it anywhere in the
+	 * process; beyond that every comparison is a virtual call. The sort is not stable.
+	 */
+	public static void sort(int[] a, IntComparator c)
+	{
+		sort(a, 0, a.length - 1, null, 0, 0, c);
+	}
+
+	public static void sort(int[] a, int fromIndex, int toIndex, IntComparator c)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		sort(a, fromIndex, toIndex - 1, null, 0, 0, c);
+	}
+
+	public static void parallelSort(int[] a)
+	{
+		parallelSort(a, 0, a.length, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	public static void parallelSort(int[] a, int fromIndex, int toIndex)
+	{
+		parallelSort(a, fromIndex, toIndex, ParallelSort.MIN_ARRAY_SORT_GRAN);
+	}
+
+	/**
+	 * Sorts the range a[fromIndex..toIndex) using the shared fork/join pool.
+	 * The range is cut into leaves that are sorted sequentially and then
+	 * merged pairwise through a single work array of the same length.
+	 * 
+	 * @param granularity
+	 *            ranges of at most this many elements are sorted sequentially
+	 */
+	public static void parallelSort(int[] a, int fromIndex, int toIndex, int granularity)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		ParallelSort.checkGranularity(granularity);
+		int n = toIndex - fromIndex;
+		if (n <= granularity || ParallelSort.parallelism() == 1)
+		{
+			sort(a, fromIndex, fromIndex + n - 1, null, 0, 0);
+		}
+		else
+		{
+			ParallelSort.pool().invoke(
+					new Sorter(a, new int[n], fromIndex, n, 0, ParallelSort.leafSize(n, granularity)));
+		}
+	}
+
+	public static void radixSort(int[] a)
+	{
+		radixSort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts the range a[fromIndex..toIndex) with an LSD radix sort on 8-bit
+	 * digits. Runs in linear time but needs a buffer of toIndex - fromIndex
+	 * elements; {@link #sort(int[], int, int)} switches to it automatically for
+	 * large ranges that are not nearly sorted.
+	 */
+	public static void radixSort(int[] a, int fromIndex, int toIndex)
+	{
+		rangeCheck(a.length, fromIndex, toIndex);
+		if (toIndex - fromIndex > 1)
+		{
+			radixSort(a, fromIndex, toIndex - 1, null, 0, 0);
+		}
+	}
+
+	/**
+	 * Sorts keys into ascending order and applies the same permutation to
+	 * payload. The sort is stable: equal keys keep the relative order of their
+	 * payloads.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the arrays differ in length
+	 */
+	public static void sortWithPayload(int[] keys, int[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	public static void sortWithPayload(int[] keys, long[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	public static void sortWithPayload(int[] keys, Object[] payload)
+	{
+		checkPayload(keys.length, payload.length);
+		coSort(keys, payload, 0, keys.length - 1);
+	}
+
+	/**
+	 * Returns the permutation that sorts keys, leaving keys unchanged:
+	 * keys[result[0]] <= keys[result[1]] <= ... Equal keys appear in index
+	 * order.
+	 */
+	public static int[] argsort(int[] keys)
+	{
+		int[] perm = identity(keys.length);
+		coSort(keys.clone(), perm, 0, keys.length - 1);
+		return perm;
+	}
+
+	/**
+	 * Rearranges a so that a[k] holds the value it would have if a were
+	 * sorted, with no greater element before it and no smaller element after
+	 * it, and returns that value. Uses dual-pivot quickselect, which runs in
+	 * expected linear time, and switches to heap selection after too many
+	 * unbalanced partitions, which bounds the worst case by O(n log k).
+	 */
+	public static int select(int[] a, int k)
+	{
+		if (k < 0 || k >= a.length)
+		{
+			throw new ArrayIndexOutOfBoundsException(k);
+		}
+		select(a, 0, a.length - 1, k);
+		return a[k];
+	}
+
+	/**
+	 * Rearranges a so that a[0..k) holds its k smallest elements in ascending
+	 * order. The order of the remaining elements is unspecified.
+	 */
+	public static void partialSort(int[] a, int k)
+	{
+		checkK(a.length, k);
+		if (k == 0)
+		{
+			return;
+		}
+		if (k < a.length)
+		{
+			select(a, 0, a.length - 1, k - 1);
+		}
+		sort(a, 0, k - 1, null, 0, 0);
+	}
+
+	/**
+	 * Copies the k smallest elements of a into out[0..k) in ascending order
+	 * and leaves a unchanged. out serves as a bounded max-heap, so this takes
+	 * a single pass over a and O(n log k) time.
+	 */
+	public static void topK(int[] a, int k, int[] out)
+	{
+		checkK(a.length, k);
+		if (out.length < k)
+		{
+			throw new IllegalArgumentException("out.length(" + out.length + ") < k(" + k + ")");
+		}
+		if (k == 0)
+		{
+			return;
+		}
+		System.arraycopy(a, 0, out, 0, k);
+		for (int i = (k >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(out, 0, i, out[i], k);
+		}
+		for (int i = k; i < a.length; ++i)
+		{
+			int x = a[i];
+			if (x < out[0])
+			{
+				siftDown(out, 0, 0, x, k);
+			}
+		}
+		for (int n = k - 1; n > 0; --n)
+		{ // Heap sort: move the maximum behind the shrinking heap
+			int max = out[0];
+			siftDown(out, 0, 0, out[n], n);
+			out[n] = max;
+		}
+	}
+
+	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
+	{
+		if (fromIndex > toIndex)
+		{
+			throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+		}
+		if (fromIndex < 0)
+		{
+			throw new ArrayIndexOutOfBoundsException(fromIndex);
+		}
+		if (toIndex > arrayLength)
+		{
+			throw new ArrayIndexOutOfBoundsException(toIndex);
+		}
+	}
+
+	private static void checkK(int arrayLength, int k)
+	{
+		if (k < 0 || k > arrayLength)
+		{
+			throw new IllegalArgumentException("k(" + k + ") not in [0, " + arrayLength + "]");
+		}
+	}
+
+	// Dual-pivot quickselect: places the k-th smallest element of a[left..right]
+	// at a[k], partitioned around it
+	private static void select(int[] a, int left, int right, int k)
+	{
+		// Allow about two partitions per halving of the range
+		int budget = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
+
+		while (right - left >= 47)
+		{
+			if (--budget < 0)
+			{
+				heapSelect(a, left, right, k);
+				return;
+			}
+
+			// Same pivot sampling as the dual-pivot quicksort
+			int length = right - left + 1;
+			int seventh = (length >> 3) + (length >> 6) + 1;
+			int e3 = (left + right) >>> 1;
+			int e2 = e3 - seventh;
+			int e1 = e2 - seventh;
+			int e4 = e3 + seventh;
+			int e5 = e4 + seventh;
+
+			if (a[e2] < a[e1])
+			{
+				int t = a[e2];
+				a[e2] = a[e1];
+				a[e1] = t;
+			}
+			if (a[e3] < a[e2])
+			{
+				int t = a[e3];
+				a[e3] = a[e2];
+				a[e2] = t;
+				if (t < a[e1])
+				{
+					a[e2] = a[e1];
+					a[e1] = t;
+				}
+			}
+			if (a[e4] < a[e3])
+			{
+				int t = a[e4];
+				a[e4] = a[e3];
+				a[e3] = t;
+				if (t < a[e2])
+				{
+					a[e3] = a[e2];
+					a[e2] = t;
+					if (t < a[e1])
+					{
+						a[e2] = a[e1];
+						a[e1] = t;
+					}
+				}
+			}
+			if (a[e5] < a[e4])
+			{
+				int t = a[e5];
+				a[e5] = a[e4];
+				a[e4] = t;
+				if (t < a[e3])
+				{
+					a[e4] = a[e3];
+					a[e3] = t;
+					if (t < a[e2])
+					{
+						a[e3] = a[e2];
+						a[e2] = t;
+						if (t < a[e1])
+						{
+							a[e2] = a[e1];
+							a[e1] = t;
+						}
+					}
+				}
+			}
+
+			int less = left; // The index of the first element of center part
+			int great = right; // The index before the first element of right part
+
+			if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5])
+			{
+				int pivot1 = a[e2];
+				int pivot2 = a[e4];
+
+				a[e2] = a[left];
+				a[e4] = a[right];
+
+				while (a[++less] < pivot1)
+					;
+				while (pivot2 < a[--great])
+					;
+
+				outer: for (int j = less - 1; ++j <= great;)
+				{
+					int aj = a[j];
+					if (aj < pivot1)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else if (pivot2 < aj)
+					{ // Move a[j] to right part
+						while (pivot2 < a[great])
+						{
+							if (great-- == j)
+							{
+								break outer;
+							}
+						}
+						if (a[great] < pivot1)
+						{ // a[great] <= pivot2
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // pivot1 <= a[great] <= pivot2
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// Swap pivots into their final positions
+				a[left] = a[less - 1];
+				a[less - 1] = pivot1;
+				a[right] = a[great + 1];
+				a[great + 1] = pivot2;
+
+				// Continue in the part that contains k
+				if (k < less - 1)
+				{
+					right = less - 2;
+				}
+				else if (k > great + 1)
+				{
+					left = great + 2;
+				}
+				else if (k == less - 1 || k == great + 1)
+				{
+					return;
+				}
+				else
+				{
+					left = less;
+					right = great;
+				}
+			}
+			else
+			{ // Partitioning with one pivot
+				int pivot = a[e3];
+
+				for (int j = less; j <= great; ++j)
+				{
+					if (a[j] == pivot)
+					{
+						continue;
+					}
+					int aj = a[j];
+					if (aj < pivot)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else
+					{ // a[j] > pivot - Move a[j] to right part
+						while (pivot < a[great])
+						{
+							--great;
+						}
+						if (a[great] < pivot)
+						{ // a[great] <= pivot
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // a[great] == pivot
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
+
+				// a[less..great] are equal to the pivot
+				if (k < less)
+				{
+					right = less - 1;
+				}
+				else if (k > great)
+				{
+					left = great + 1;
+				}
+				else
+				{
+					return;
+				}
+			}
+		}
+
+		// Use insertion sort on tiny ranges
+		for (int i = left, j = i; i < right; j = ++i)
+		{
+			int ai = a[i + 1];
+			while (ai < a[j])
+			{
+				a[j + 1] = a[j];
+				if (j-- == left)
+				{
+					break;
+				}
+			}
+			a[j + 1] = ai;
+		}
+	}
+
+	// Heap selection in O(n log k): keeps the k - left + 1 smallest elements of
+	// a[left..right] in a max-heap at a[left..k], then moves its top to a[k]
+	private static void heapSelect(int[] a, int left, int right, int k)
+	{
+		int m = k - left + 1;
+		for (int i = (m >>> 1) - 1; i >= 0; --i)
+		{
+			siftDown(a, left, i, a[left + i], m);
+		}
+		for (int i = k + 1; i <= right; ++i)
+		{
+			int x = a[i];
+			if (x < a[left])
+			{
+				a[i] = a[left];
+				siftDown(a, left, 0, x, m);
+			}
+		}
+		int top = a[left];
+		a[left] = a[k];
+		a[k] = top;
+	}
+
+	// Sifts x down from slot i of the max-heap h[base..base+n)
+	private static void siftDown(int[] h, int base, int i, int x, int n)
+	{
+		for (int half = n >>> 1; i < half;)
+		{
+			int child = (i << 1) + 1;
+			int c = h[base + child];
+			int right = child + 1;
+			if (right < n && c < h[base + right])
+			{
+				c = h[base + (child = right)];
+			}
+			if (x < c)
+			{
+				h[base + i] = c;
+				i = child;
+			}
+			else
+			{
+				break;
+			}
+		}
+		h[base + i] = x;
+	}
+
+	private static void sort(int[] a, int left, int right, int[] work, int workBase, int workLen)
+	{
+		// Use Quicksort on small arrays
+		if (right - left < 286)
+		{
+			sort(a, left, right, true);
+			return;
+		}
+
+		int[] run = new int[67 + 1];
+		int count = 0;
+		run[0] = left;
+
+		// Check if the array is nearly sorted
+		for (int k = left; k < right; run[count] = k)
+		{
+			if (a[k] < a[k + 1])
+			{ // ascending
+				while (++k <= right && a[k - 1] <= a[k])
+					;
+			}
+			else if (a[k] > a[k + 1])
+			{ // descending
+				while (++k <= right && a[k - 1] >= a[k])
+					;
+				for (int lo = run[count] - 1, hi = k; ++lo < --hi;)
+				{
+					int t = a[lo];
+					a[lo] = a[hi];
+					a[hi] = t;
+				}
+			}
+			else
+			{ // equal
+				for (int m = 33; ++k <= right && a[k - 1] == a[k];)
+				{
+					if (--m == 0)
+					{
+						sort(a, left, right, true);
+						return;
+					}
+				}
+			}
+
+			if (++count == 67)
+			{ // Not nearly sorted: use radix sort on large arrays
+				if (right - left >= RADIX_SORT_THRESHOLD)
+				{
+					radixSort(a, left, right, work, workBase, workLen);
+				}
+				else
+				{
+					sort(a, left, right, true);
+				}
+				return;
+			}
+		}
+
+		// Check special cases
+		// Implementation note: variable "right" is increased by 1.
+		if (run[count] == right++)
+		{ // The last run contains one element
+			run[++count] = right;
+		}
+		else if (count == 1)
+		{ // The array is already sorted
+			return;
+		}
+
+		// Determine alternation base for merge
+		byte odd = 0;
+		for (int n = 1; (n <<= 1) < count; odd ^= 1)
+			;
+
+		// Use or create temporary array b for merging
+		int[] b; // temp array; alternates with a
+		int ao, bo; // array offsets from 'left'
+		int blen = right - left; // space needed for b
+		if (work == null || workLen < blen || workBase + blen > work.length)
+		{
+			work = new int[blen];
+			workBase = 0;
+		}
+		if (odd == 0)
+		{
+			System.arraycopy(a, left, work, workBase, blen);
+			b = a;
+			bo = 0;
+			a = work;
+			ao = workBase - left;
+		}
+		else
+		{
+			b = work;
+			ao = 0;
+			bo = workBase - left;
+		}
+
+		// Merging
+		for (int last; count > 1; count = last)
+		{
+			for (int k = (last = 0) + 2; k <= count; k += 2)
+			{
+				int hi = run[k], mi = run[k - 1];
+				for (int i = run[k - 2], p = i, q = mi; i < hi; ++i)
+				{
+					if (q >= hi || p < mi && a[p + ao] <= a[q + ao])
+					{
+						b[i + bo] = a[p++ + ao];
+					}
+					else
+					{
+						b[i + bo] = a[q++ + ao];
+					}
+				}
+				run[++last] = hi;
+			}
+			if ((count & 1) != 0)
+			{
+				for (int i = right, lo = run[count - 1]; --i >= lo; b[i + bo] = a[i + ao])
+					;
+				run[++last] = right;
+			}
+			int[] t = a;
+			a = b;
+			b = t;
+			int o = ao;
+			ao = bo;
+			bo = o;
+		}
+	}
+
+	private static void radixSort(int[] a, int left, int right, int[] work, int workBase, int workLen)
+	{
+		int n = right - left + 1;
+		if (work == null || workLen < n || workBase + n > work.length)
+		{
+			work = new int[n];
+			workBase = 0;
+		}
+
+		// Histograms of all 4 digits in a single pass
+		int[] count = new int[4 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			int key = radixKey(a[i]);
+			++count[key & 0xFF];
+			++count[256 + ((key >>> 8) & 0xFF)];
+			++count[512 + ((key >>> 16) & 0xFF)];
+			++count[768 + ((key >>> 24) & 0xFF)];
+		}
+
+		int[] src = a, dst = work;
+		int so = left, wo = workBase; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 32; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((radixKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				int x = src[i];
+				dst[wo + count[c + ((radixKey(x) >>> shift) & 0xFF)]++] = x;
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != a)
+		{
+			System.arraycopy(src, so, a, left, n);
+		}
+	}
+
+	// Maps x to a key whose unsigned order is the signed order of x
+	private static int radixKey(int x)
+	{
+		return x ^ Integer.MIN_VALUE;
+	}
+
+	private static void checkPayload(int keysLength, int payloadLength)
+	{
+		if (keysLength != payloadLength)
+		{
+			throw new IllegalArgumentException("keys.length(" + keysLength + ") != payload.length(" + payloadLength
+					+ ")");
+		}
+	}
+
+	private static int[] identity(int n)
+	{
+		int[] perm = new int[n];
+		for (int i = 0; i < n; ++i)
+		{
+			perm[i] = i;
+		}
+		return perm;
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on perm
+	private static void coSort(int[] keys, int[] perm, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				int ai = keys[i + 1];
+				int pi = perm[i + 1];
+				while (ai < keys[j])
+				{
+					keys[j + 1] = keys[j];
+					perm[j + 1] = perm[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				perm[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 4 digits in a single pass
+		int[] count = new int[4 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			int key = radixKey(keys[i]);
+			++count[key & 0xFF];
+			++count[256 + ((key >>> 8) & 0xFF)];
+			++count[512 + ((key >>> 16) & 0xFF)];
+			++count[768 + ((key >>> 24) & 0xFF)];
+		}
+
+		int[] src = keys, dst = new int[n];
+		int[] psrc = perm, pdst = new int[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 32; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((radixKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				int x = src[i];
+				int d = wo + count[c + ((radixKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			int[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, perm, left, n);
+		}
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on payload
+	private static void coSort(int[] keys, long[] payload, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				int ai = keys[i + 1];
+				long pi = payload[i + 1];
+				while (ai < keys[j])
+				{
+					keys[j + 1] = keys[j];
+					payload[j + 1] = payload[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				payload[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 4 digits in a single pass
+		int[] count = new int[4 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			int key = radixKey(keys[i]);
+			++count[key & 0xFF];
+			++count[256 + ((key >>> 8) & 0xFF)];
+			++count[512 + ((key >>> 16) & 0xFF)];
+			++count[768 + ((key >>> 24) & 0xFF)];
+		}
+
+		int[] src = keys, dst = new int[n];
+		long[] psrc = payload, pdst = new long[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 32; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((radixKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				int x = src[i];
+				int d = wo + count[c + ((radixKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			long[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, payload, left, n);
+		}
+	}
+
+	// Stable sort of keys[left..right] that repeats every move on payload
+	private static void coSort(int[] keys, Object[] payload, int left, int right)
+	{
+		int n = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (n < 47)
+		{
+			for (int i = left, j = i; i < right; j = ++i)
+			{
+				int ai = keys[i + 1];
+				Object pi = payload[i + 1];
+				while (ai < keys[j])
+				{
+					keys[j + 1] = keys[j];
+					payload[j + 1] = payload[j];
+					if (j-- == left)
+					{
+						break;
+					}
+				}
+				keys[j + 1] = ai;
+				payload[j + 1] = pi;
+			}
+			return;
+		}
+
+		// Histograms of all 4 digits in a single pass
+		int[] count = new int[4 << 8];
+		for (int i = left; i <= right; ++i)
+		{
+			int key = radixKey(keys[i]);
+			++count[key & 0xFF];
+			++count[256 + ((key >>> 8) & 0xFF)];
+			++count[512 + ((key >>> 16) & 0xFF)];
+			++count[768 + ((key >>> 24) & 0xFF)];
+		}
+
+		int[] src = keys, dst = new int[n];
+		Object[] psrc = payload, pdst = new Object[n];
+		int so = left, wo = 0; // offsets of the ranges in src and dst
+		for (int shift = 0, c = 0; shift < 32; shift += 8, c += 256)
+		{
+			// Skip digits shared by every element
+			if (count[c + ((radixKey(src[so]) >>> shift) & 0xFF)] == n)
+			{
+				continue;
+			}
+			for (int i = c, end = c + 256, sum = 0; i < end; ++i)
+			{
+				int t = count[i];
+				count[i] = sum;
+				sum += t;
+			}
+			for (int i = so, end = so + n; i < end; ++i)
+			{
+				int x = src[i];
+				int d = wo + count[c + ((radixKey(x) >>> shift) & 0xFF)]++;
+				dst[d] = x;
+				pdst[d] = psrc[i];
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			Object[] pt = psrc;
+			psrc = pdst;
+			pdst = pt;
+			int o = so;
+			so = wo;
+			wo = o;
+		}
+		if (src != keys)
+		{
+			System.arraycopy(src, so, keys, left, n);
+			System.arraycopy(psrc, so, payload, left, n);
+		}
+	}
+
+	private static void sort(int[] a, int left, int right, boolean leftmost)
+	{
+		int length = right - left + 1;
+
+		// Use insertion sort on tiny arrays
+		if (length < 47)
+		{
+			if (leftmost)
+			{
+
+				for (int i = left, j = i; i < right; j = ++i)
+				{
+					int ai = a[i + 1];
+					while (ai < a[j])
+					{
+						a[j + 1] = a[j];
+						if (j-- == left)
+						{
+							break;
+						}
+					}
+					a[j + 1] = ai;
+				}
+			}
+			else
+			{
+
+				do
+				{
+					if (left >= right)
+					{
+						return;
+					}
+				}
+				while (a[++left] >= a[left - 1]);
+
+				for (int k = left; ++left <= right; k = ++left)
+				{
+					int a1 = a[k], a2 = a[left];
+
+					if (a1 < a2)
+					{
+						a2 = a1;
+						a1 = a[left];
+					}
+					while (a1 < a[--k])
+					{
+						a[k + 2] = a[k];
+					}
+					a[++k + 1] = a1;
+
+					while (a2 < a[--k])
+					{
+						a[k + 1] = a[k];
+					}
+					a[k + 1] = a2;
+				}
+				int last = a[right];
+
+				while (last < a[--right])
+				{
+					a[right + 1] = a[right];
+				}
+				a[right + 1] = last;
+			}
+			return;
+		}
+
+		// Inexpensive approximation of length / 7
+		int seventh = (length >> 3) + (length >> 6) + 1;
+
+		int e3 = (left + right) >>> 1; // The midpoint
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+
+		// Sort these elements using insertion sort
+		if (a[e2] < a[e1])
+		{
+			int t = a[e2];
+			a[e2] = a[e1];
+			a[e1] = t;
+		}
+
+		if (a[e3] < a[e2])
+		{
+			int t = a[e3];
+			a[e3] = a[e2];
+			a[e2] = t;
+			if (t < a[e1])
+			{
+				a[e2] = a[e1];
+				a[e1] = t;
+			}
+		}
+		if (a[e4] < a[e3])
+		{
+			int t = a[e4];
+			a[e4] = a[e3];
+			a[e3] = t;
+			if (t < a[e2])
+			{
+				a[e3] = a[e2];
+				a[e2] = t;
+				if (t < a[e1])
+				{
+					a[e2] = a[e1];
+					a[e1] = t;
+				}
+			}
+		}
+		if (a[e5] < a[e4])
+		{
+			int t = a[e5];
+			a[e5] = a[e4];
+			a[e4] = t;
+			if (t < a[e3])
+			{
+				a[e4] = a[e3];
+				a[e3] = t;
+				if (t < a[e2])
+				{
+					a[e3] = a[e2];
+					a[e2] = t;
+					if (t < a[e1])
+					{
+						a[e2] = a[e1];
+						a[e1] = t;
+					}
+				}
+			}
+		}
+
+		// Pointers
+		int less = left; // The index of the first element of center part
+		int great = right; // The index before the first element of right part
+
+		if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5])
+		{
+
+			int pivot1 = a[e2];
+			int pivot2 = a[e4];
+
+			a[e2] = a[left];
+			a[e4] = a[right];
+
+			while (a[++less] < pivot1)
+				;
+			while (a[--great] > pivot2)
+				;
+
+			outer: for (int k = less - 1; ++k <= great;)
+			{
+				int ak = a[k];
+				if (ak < pivot1)
+				{ // Move a[k] to left part
+					a[k] = a[less];
 
-	public static void sort(int[] a, int fromIndex, int toIndex)
-	{
-		rangeCheck(a.length, fromIndex, toIndex);
-		sort(a, fromIndex, toIndex - 1, null, 0, 0);
-	}
+					a[less] = ak;
+					++less;
+				}
+				else if (ak > pivot2)
+				{ // Move a[k] to right part
+					while (a[great] > pivot2)
+					{
+						if (great-- == k)
+						{
+							break outer;
+						}
+					}
+					if (a[great] < pivot1)
+					{ // a[great] <= pivot2
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					}
+					else
+					{ // pivot1 <= a[great] <= pivot2
+						a[k] = a[great];
+					}
+
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			// Swap pivots into their final positions
+			a[left] = a[less - 1];
+			a[less - 1] = pivot1;
+			a[right] = a[great + 1];
+			a[great + 1] = pivot2;
+
+			// Sort left and right parts recursively, excluding known pivots
+			sort(a, left, less - 2, leftmost);
+			sort(a, great + 2, right, false);
+
+			if (less < e1 && e5 < great)
+			{
+
+				while (a[less] == pivot1)
+				{
+					++less;
+				}
+
+				while (a[great] == pivot2)
+				{
+					--great;
+				}
+
+				outer: for (int k = less - 1; ++k <= great;)
+				{
+					int ak = a[k];
+					if (ak == pivot1)
+					{ // Move a[k] to left part
+						a[k] = a[less];
+						a[less] = ak;
+						++less;
+					}
+					else if (ak == pivot2)
+					{ // Move a[k] to right part
+						while (a[great] == pivot2)
+						{
+							if (great-- == k)
+							{
+								break outer;
+							}
+						}
+						if (a[great] == pivot1)
+						{ // a[great] < pivot2
+							a[k] = a[less];
+
+							a[less] = pivot1;
+							++less;
+						}
+						else
+						{ // pivot1 < a[great] < pivot2
+							a[k] = a[great];
+						}
+						a[great] = ak;
+						--great;
+					}
+				}
+			}
+
+			// Sort center part recursively
+			sort(a, less, great, false);
 
-	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
-	{
-		if (fromIndex > toIndex)
-		{
-			throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
-		}
-		if (fromIndex < 0)
-		{
-			throw new ArrayIndexOutOfBoundsException(fromIndex);
 		}
-		if (toIndex > arrayLength)
-		{
-			throw new ArrayIndexOutOfBoundsException(toIndex);
+		else
+		{ // Partitioning with one pivot
+
+			int pivot = a[e3];
+
+			for (int k = less; k <= great; ++k)
+			{
+				if (a[k] == pivot)
+				{
+					continue;
+				}
+				int ak = a[k];
+				if (ak < pivot)
+				{ // Move a[k] to left part
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				}
+				else
+				{ // a[k] > pivot - Move a[k] to right part
+					while (a[great] > pivot)
+					{
+						--great;
+					}
+					if (a[great] < pivot)
+					{ // a[great] <= pivot
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					}
+					else
+					{ // a[great] == pivot
+
+						a[k] = pivot;
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			sort(a, left, less - 1, leftmost);
+			sort(a, great + 1, right, false);
 		}
 	}
 
-	private static void sort(int[] a, int left, int right, int[] work, int workBase, int workLen)
+	private static void sort(int[] a, int left, int right, int[] work, int workBase, int workLen, IntComparator c)
 	{
 		// Use Quicksort on small arrays
 		if (right - left < 286)
 		{
-			sort(a, left, right, true);
+			sort(a, left, right, true, c);
 			return;
 		}
 
@@ -51,14 +1258,14 @@ public class IntegerArray
 		// Check if the array is nearly sorted
 		for (int k = left; k < right; run[count] = k)
 		{
-			if (a[k] < a[k + 1])
+			if (c.compare(a[k], a[k + 1]) < 0)
 			{ // ascending
-				while (++k <= right && a[k - 1] <= a[k])
+				while (++k <= right && c.compare(a[k - 1], a[k]) <= 0)
 					;
 			}
-			else if (a[k] > a[k + 1])
+			else if (c.compare(a[k], a[k + 1]) > 0)
 			{ // descending
-				while (++k <= right && a[k - 1] >= a[k])
+				while (++k <= right && c.compare(a[k - 1], a[k]) >= 0)
 					;
 				for (int lo = run[count] - 1, hi = k; ++lo < --hi;)
 				{
@@ -69,11 +1276,11 @@ public class IntegerArray
 			}
 			else
 			{ // equal
-				for (int m = 33; ++k <= right && a[k - 1] == a[k];)
+				for (int m = 33; ++k <= right && c.compare(a[k - 1], a[k]) == 0;)
 				{
 					if (--m == 0)
 					{
-						sort(a, left, right, true);
+						sort(a, left, right, true, c);
 						return;
 					}
 				}
@@ -81,7 +1288,7 @@ public class IntegerArray
 
 			if (++count == 67)
 			{
-				sort(a, left, right, true);
+				sort(a, left, right, true, c);
 				return;
 			}
 		}
@@ -134,7 +1341,7 @@ public class IntegerArray
 				int hi = run[k], mi = run[k - 1];
 				for (int i = run[k - 2], p = i, q = mi; i < hi; ++i)
 				{
-					if (q >= hi || p < mi && a[p + ao] <= a[q + ao])
+					if (q >= hi || p < mi && c.compare(a[p + ao], a[q + ao]) <= 0)
 					{
 						b[i + bo] = a[p++ + ao];
 					}
@@ -160,7 +1367,7 @@ public class IntegerArray
 		}
 	}
 
-	private static void sort(int[] a, int left, int right, boolean leftmost)
+	private static void sort(int[] a, int left, int right, boolean leftmost, IntComparator c)
 	{
 		int length = right - left + 1;
 
@@ -173,7 +1380,7 @@ public class IntegerArray
 				for (int i = left, j = i; i < right; j = ++i)
 				{
 					int ai = a[i + 1];
-					while (ai < a[j])
+					while (c.compare(ai, a[j]) < 0)
 					{
 						a[j + 1] = a[j];
 						if (j-- == left)
@@ -194,24 +1401,24 @@ public class IntegerArray
 						return;
 					}
 				}
-				while (a[++left] >= a[left - 1]);
+				while (c.compare(a[++left], a[left - 1]) >= 0);
 
 				for (int k = left; ++left <= right; k = ++left)
 				{
 					int a1 = a[k], a2 = a[left];
 
-					if (a1 < a2)
+					if (c.compare(a1, a2) < 0)
 					{
 						a2 = a1;
 						a1 = a[left];
 					}
-					while (a1 < a[--k])
+					while (c.compare(a1, a[--k]) < 0)
 					{
 						a[k + 2] = a[k];
 					}
 					a[++k + 1] = a1;
 
-					while (a2 < a[--k])
+					while (c.compare(a2, a[--k]) < 0)
 					{
 						a[k + 1] = a[k];
 					}
@@ -219,7 +1426,7 @@ public class IntegerArray
 				}
 				int last = a[right];
 
-				while (last < a[--right])
+				while (c.compare(last, a[--right]) < 0)
 				{
 					a[right + 1] = a[right];
 				}
@@ -238,54 +1445,54 @@ public class IntegerArray
 		int e5 = e4 + seventh;
 
 		// Sort these elements using insertion sort
-		if (a[e2] < a[e1])
+		if (c.compare(a[e2], a[e1]) < 0)
 		{
 			int t = a[e2];
 			a[e2] = a[e1];
 			a[e1] = t;
 		}
 
-		if (a[e3] < a[e2])
+		if (c.compare(a[e3], a[e2]) < 0)
 		{
 			int t = a[e3];
 			a[e3] = a[e2];
 			a[e2] = t;
-			if (t < a[e1])
+			if (c.compare(t, a[e1]) < 0)
 			{
 				a[e2] = a[e1];
 				a[e1] = t;
 			}
 		}
-		if (a[e4] < a[e3])
+		if (c.compare(a[e4], a[e3]) < 0)
 		{
 			int t = a[e4];
 			a[e4] = a[e3];
 			a[e3] = t;
-			if (t < a[e2])
+			if (c.compare(t, a[e2]) < 0)
 			{
 				a[e3] = a[e2];
 				a[e2] = t;
-				if (t < a[e1])
+				if (c.compare(t, a[e1]) < 0)
 				{
 					a[e2] = a[e1];
 					a[e1] = t;
 				}
 			}
 		}
-		if (a[e5] < a[e4])
+		if (c.compare(a[e5], a[e4]) < 0)
 		{
 			int t = a[e5];
 			a[e5] = a[e4];
 			a[e4] = t;
-			if (t < a[e3])
+			if (c.compare(t, a[e3]) < 0)
 			{
 				a[e4] = a[e3];
 				a[e3] = t;
-				if (t < a[e2])
+				if (c.compare(t, a[e2]) < 0)
 				{
 					a[e3] = a[e2];
 					a[e2] = t;
-					if (t < a[e1])
+					if (c.compare(t, a[e1]) < 0)
 					{
 						a[e2] = a[e1];
 						a[e1] = t;
@@ -298,7 +1505,8 @@ public class IntegerArray
 		int less = left; // The index of the first element of center part
 		int great = right; // The index before the first element of right part
 
-		if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5])
+		if (c.compare(a[e1], a[e2]) != 0 && c.compare(a[e2], a[e3]) != 0 && c.compare(a[e3], a[e4]) != 0
+				&& c.compare(a[e4], a[e5]) != 0)
 		{
 
 			int pivot1 = a[e2];
@@ -307,31 +1515,31 @@ public class IntegerArray
 			a[e2] = a[left];
 			a[e4] = a[right];
 
-			while (a[++less] < pivot1)
+			while (c.compare(a[++less], pivot1) < 0)
 				;
-			while (a[--great] > pivot2)
+			while (c.compare(a[--great], pivot2) > 0)
 				;
 
 			outer: for (int k = less - 1; ++k <= great;)
 			{
 				int ak = a[k];
-				if (ak < pivot1)
+				if (c.compare(ak, pivot1) < 0)
 				{ // Move a[k] to left part
 					a[k] = a[less];
 
 					a[less] = ak;
 					++less;
 				}
-				else if (ak > pivot2)
+				else if (c.compare(ak, pivot2) > 0)
 				{ // Move a[k] to right part
-					while (a[great] > pivot2)
+					while (c.compare(a[great], pivot2) > 0)
 					{
 						if (great-- == k)
 						{
 							break outer;
 						}
 					}
-					if (a[great] < pivot1)
+					if (c.compare(a[great], pivot1) < 0)
 					{ // a[great] <= pivot2
 						a[k] = a[less];
 						a[less] = a[great];
@@ -354,18 +1562,18 @@ public class IntegerArray
 			a[great + 1] = pivot2;
 
 			// Sort left and right parts recursively, excluding known pivots
-			sort(a, left, less - 2, leftmost);
-			sort(a, great + 2, right, false);
+			sort(a, left, less - 2, leftmost, c);
+			sort(a, great + 2, right, false, c);
 
 			if (less < e1 && e5 < great)
 			{
 
-				while (a[less] == pivot1)
+				while (c.compare(a[less], pivot1) == 0)
 				{
 					++less;
 				}
 
-				while (a[great] == pivot2)
+				while (c.compare(a[great], pivot2) == 0)
 				{
 					--great;
 				}
@@ -373,26 +1581,26 @@ public class IntegerArray
 				outer: for (int k = less - 1; ++k <= great;)
 				{
 					int ak = a[k];
-					if (ak == pivot1)
+					if (c.compare(ak, pivot1) == 0)
 					{ // Move a[k] to left part
 						a[k] = a[less];
 						a[less] = ak;
 						++less;
 					}
-					else if (ak == pivot2)
+					else if (c.compare(ak, pivot2) == 0)
 					{ // Move a[k] to right part
-						while (a[great] == pivot2)
+						while (c.compare(a[great], pivot2) == 0)
 						{
 							if (great-- == k)
 							{
 								break outer;
 							}
 						}
-						if (a[great] == pivot1)
+						if (c.compare(a[great], pivot1) == 0)
 						{ // a[great] < pivot2
 							a[k] = a[less];
 
-							a[less] = pivot1;
+							a[less] = a[great];
 							++less;
 						}
 						else
@@ -406,7 +1614,7 @@ public class IntegerArray
 			}
 
 			// Sort center part recursively
-			sort(a, less, great, false);
+			sort(a, less, great, false, c);
 
 		}
 		else
@@ -416,12 +1624,12 @@ public class IntegerArray
 
 			for (int k = less; k <= great; ++k)
 			{
-				if (a[k] == pivot)
+				if (c.compare(a[k], pivot) == 0)
 				{
 					continue;
 				}
 				int ak = a[k];
-				if (ak < pivot)
+				if (c.compare(ak, pivot) < 0)
 				{ // Move a[k] to left part
 					a[k] = a[less];
 					a[less] = ak;
@@ -429,11 +1637,11 @@ public class IntegerArray
 				}
 				else
 				{ // a[k] > pivot - Move a[k] to right part
-					while (a[great] > pivot)
+					while (c.compare(a[great], pivot) > 0)
 					{
 						--great;
 					}
-					if (a[great] < pivot)
+					if (c.compare(a[great], pivot) < 0)
 					{ // a[great] <= pivot
 						a[k] = a[less];
 						a[less] = a[great];
@@ -442,15 +1650,150 @@ public class IntegerArray
 					else
 					{ // a[great] == pivot
 
-						a[k] = pivot;
+						a[k] = a[great];
 					}
 					a[great] = ak;
 					--great;
 				}
 			}
 
-			sort(a, left, less - 1, leftmost);
-			sort(a, great + 1, right, false);
+			sort(a, left, less - 1, leftmost, c);
+			sort(a, great + 1, right, false, c);
+		}
+	}
+
+	/**
+	 * Sorts a[base..base+size) in four quarters, merges the quarters pairwise
+	 * into w and merges the two halves back into a. Leaves use the sequential
+	 * sort with their slice of w as its work buffer.
+	 */
+	private static final class Sorter extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] a, w;
+		private final int base, size, wbase, gran;
+
+		Sorter(int[] a, int[] w, int base, int size, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.base = base;
+			this.size = size;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int[] a = this.a, w = this.w;
+			int b = base, n = size, wb = wbase, g = gran;
+			if (n <= g)
+			{
+				sort(a, b, b + n - 1, w, wb, n);
+				return;
+			}
+			int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+			invokeAll(new Sorter(a, w, b, q, wb, g), new Sorter(a, w, b + q, h - q, wb + q, g),
+					new Sorter(a, w, b + h, q, wb + h, g), new Sorter(a, w, b + u, n - u, wb + u, g));
+			invokeAll(new Merger(a, w, b, q, b + q, h - q, wb, g),
+					new Merger(a, w, b + h, q, b + u, n - u, wb + h, g));
+			new Merger(w, a, wb, h, wb + h, n - h, b, g).compute();
+		}
+	}
+
+	/**
+	 * Merges the sorted ranges a[lbase..lbase+lsize) and a[rbase..rbase+rsize)
+	 * into w starting at wbase. Large merges split the longer range at its
+	 * midpoint, binary search the split value in the other range and merge
+	 * both halves in parallel.
+	 */
+	private static final class Merger extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] a, w;
+		private final int lbase, lsize, rbase, rsize, wbase, gran;
+
+		Merger(int[] a, int[] w, int lbase, int lsize, int rbase, int rsize, int wbase, int gran)
+		{
+			this.a = a;
+			this.w = w;
+			this.lbase = lbase;
+			this.lsize = lsize;
+			this.rbase = rbase;
+			this.rsize = rsize;
+			this.wbase = wbase;
+			this.gran = gran;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int[] a = this.a, w = this.w;
+			int lb = lbase, ln = lsize, rb = rbase, rn = rsize, k = wbase, g = gran;
+			if (ln + rn > g && (ln > 1 || rn > 1))
+			{
+				int lh, rh;
+				if (ln >= rn)
+				{ // a[lb..lb+lh) and the right elements < split go first
+					lh = ln >>> 1;
+					int split = a[lb + lh];
+					int lo = 0;
+					for (int hi = rn; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[rb + mid] < split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					rh = lo;
+				}
+				else
+				{ // a[rb..rb+rh) and the left elements <= split go first
+					rh = rn >>> 1;
+					int split = a[rb + rh];
+					int lo = 0;
+					for (int hi = ln; lo < hi;)
+					{
+						int mid = (lo + hi) >>> 1;
+						if (a[lb + mid] <= split)
+							lo = mid + 1;
+						else
+							hi = mid;
+					}
+					lh = lo;
+				}
+				invokeAll(new Merger(a, w, lb, lh, rb, rh, k, g),
+						new Merger(a, w, lb + lh, ln - lh, rb + rh, rn - rh, k + lh + rh, g));
+				return;
+			}
+
+			int lf = lb + ln, rf = rb + rn;
+			while (lb < lf && rb < rf)
+			{
+				int al = a[lb], ar = a[rb];
+				if (al <= ar)
+				{
+					w[k++] = al;
+					++lb;
+				}
+				else
+				{
+					w[k++] = ar;
+					++rb;
+				}
+			}
+			if (rb < rf)
+			{
+				System.arraycopy(a, rb, w, k, rf - rb);
+			}
+			else if (lb < lf)
+			{
+				System.arraycopy(a, lb, w, k, lf - lb);
+			}
 		}
 	}
 }
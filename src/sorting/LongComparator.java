@@ -0,0 +1,14 @@
+package sorting;
+
+/**
+ * Comparison function on primitive <tt>long</tt> values, used to sort
+ * <tt>long[]</tt> arrays in orders other than the natural one without boxing.
+ */
+public interface LongComparator
+{
+	/**
+	 * Returns a negative integer, zero, or a positive integer as the first
+	 * argument is less than, equal to, or greater than the second.
+	 */
+	int compare(long a, long b);
+}
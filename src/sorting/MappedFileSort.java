@@ -0,0 +1,388 @@
+package sorting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Sorts files of little-endian int or long records that are too large for
+ * the heap. The input is read through memory-mapped windows in chunks that
+ * fit the memory budget, each chunk is sorted on the heap with
+ * {@link IntegerArray} or {@link LongArray} and written to a run file, and
+ * the runs are combined by k-way merges through a loser tree. At most 256
+ * runs are merged at once, each through its own window, so that small
+ * budgets on large inputs do not exhaust the address space or the mapping
+ * limit of the process; more runs are merged in several passes. Inputs that
+ * fit in one chunk are sorted straight into the output.
+ * <p>
+ * The input is left unchanged unless it is also the output. The run file is
+ * created next to the output and needs as much disk space as the input; a
+ * sort of more than 256 runs needs a second file of that size.
+ */
+public final class MappedFileSort
+{
+
+	private static final int INT_BYTES = 4;
+	private static final int LONG_BYTES = 8;
+
+	// Smallest and largest window mapped per run during the merge
+	private static final int MIN_WINDOW_BYTES = 1 << 16;
+	private static final int MAX_WINDOW_BYTES = 1 << 26;
+
+	// Most runs merged at once, which bounds the windows mapped at a time
+	private static final int MAX_FAN_IN = 256;
+
+	// This class should not be instantiated.
+	private MappedFileSort()
+	{
+	}
+
+	/**
+	 * Sorts the 8-byte little-endian records of input into output.
+	 *
+	 * @param memoryBudget
+	 *            heap bytes the sort may use, at least 128 KB; a chunk of
+	 *            memoryBudget / 16 records is sorted at a time, leaving room for
+	 *            the work buffer of the in-memory sort
+	 * @throws IllegalArgumentException
+	 *             if memoryBudget is less than 128 KB
+	 */
+	public static void sortLongs(File input, File output, long memoryBudget) throws IOException
+	{
+		sort(input, output, memoryBudget, LONG_BYTES);
+	}
+
+	/**
+	 * Sorts the 4-byte little-endian records of input into output.
+	 *
+	 * @param memoryBudget
+	 *            heap bytes the sort may use, at least 128 KB; a chunk of
+	 *            memoryBudget / 8 records is sorted at a time, leaving room for
+	 *            the work buffer of the in-memory sort
+	 * @throws IllegalArgumentException
+	 *             if memoryBudget is less than 128 KB
+	 */
+	public static void sortInts(File input, File output, long memoryBudget) throws IOException
+	{
+		sort(input, output, memoryBudget, INT_BYTES);
+	}
+
+	private static void sort(File input, File output, long memoryBudget, int width) throws IOException
+	{
+		// every run is read through a window of at least MIN_WINDOW_BYTES, so
+		// smaller chunks would only multiply the runs and their mappings
+		if (memoryBudget < 2 * MIN_WINDOW_BYTES)
+		{
+			throw new IllegalArgumentException("memoryBudget(" + memoryBudget + ") < " + 2 * MIN_WINDOW_BYTES);
+		}
+
+		RandomAccessFile in = new RandomAccessFile(input, "r");
+		try
+		{
+			long size = in.length();
+			if (size % width != 0)
+			{
+				throw new IllegalArgumentException(input + ": length " + size + " is not a multiple of " + width);
+			}
+
+			// Half the budget holds the chunk, the other half the sort's work
+			// buffer; a single mapping is limited to Integer.MAX_VALUE bytes
+			long chunkBytes = Math.min(memoryBudget / 2, Integer.MAX_VALUE) / width * width;
+			if (size <= chunkBytes)
+			{
+				RandomAccessFile out = open(output, size);
+				try
+				{
+					sortChunk(in.getChannel(), out.getChannel(), 0, (int) size, width);
+				}
+				finally
+				{
+					out.close();
+				}
+				return;
+			}
+
+			File directory = output.getAbsoluteFile().getParentFile();
+			File runFile = File.createTempFile("runs", ".tmp", directory);
+			File passFile = null;
+			try
+			{
+				RandomAccessFile tmp = open(runFile, size);
+				RandomAccessFile pass = null;
+				try
+				{
+					for (long pos = 0; pos < size; pos += chunkBytes)
+					{
+						int bytes = (int) Math.min(chunkBytes, size - pos);
+						sortChunk(in.getChannel(), tmp.getChannel(), pos, bytes, width);
+					}
+
+					long runs = (size + chunkBytes - 1) / chunkBytes;
+					long window = memoryBudget / (Math.min(runs, MAX_FAN_IN) + 1) / width * width;
+					window = Math.max(MIN_WINDOW_BYTES, Math.min(MAX_WINDOW_BYTES, window));
+
+					// merge groups of MAX_FAN_IN runs into longer runs, back and
+					// forth between the run file and a second one, until a
+					// single merge can finish into the output
+					FileChannel src = tmp.getChannel();
+					long runBytes = chunkBytes;
+					while (runs > MAX_FAN_IN)
+					{
+						if (pass == null)
+						{
+							passFile = File.createTempFile("runs", ".tmp", directory);
+							pass = open(passFile, size);
+						}
+						FileChannel dst = (src == tmp.getChannel()) ? pass.getChannel() : tmp.getChannel();
+						long groupBytes = runBytes * MAX_FAN_IN;
+						for (long from = 0; from < size; from += groupBytes)
+						{
+							merge(src, dst, from, Math.min(from + groupBytes, size), runBytes, (int) window, width);
+						}
+						src = dst;
+						runBytes = groupBytes;
+						runs = (size + runBytes - 1) / runBytes;
+					}
+
+					RandomAccessFile out = open(output, size);
+					try
+					{
+						merge(src, out.getChannel(), 0, size, runBytes, (int) window, width);
+					}
+					finally
+					{
+						out.close();
+					}
+				}
+				finally
+				{
+					tmp.close();
+					if (pass != null)
+					{
+						pass.close();
+					}
+				}
+			}
+			finally
+			{
+				runFile.delete();
+				if (passFile != null)
+				{
+					passFile.delete();
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private static RandomAccessFile open(File file, long size) throws IOException
+	{
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		f.setLength(size);
+		return f;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, MapMode mode, long position, long size)
+			throws IOException
+	{
+		MappedByteBuffer buffer = channel.map(mode, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	// Sorts the records in [pos, pos + bytes) of in into the same range of out
+	private static void sortChunk(FileChannel in, FileChannel out, long pos, int bytes, int width) throws IOException
+	{
+		MappedByteBuffer src = map(in, MapMode.READ_ONLY, pos, bytes);
+		MappedByteBuffer dst = map(out, MapMode.READ_WRITE, pos, bytes);
+		if (width == LONG_BYTES)
+		{
+			long[] a = new long[bytes / LONG_BYTES];
+			src.asLongBuffer().get(a);
+			LongArray.sort(a);
+			dst.asLongBuffer().put(a);
+		}
+		else
+		{
+			int[] a = new int[bytes / INT_BYTES];
+			src.asIntBuffer().get(a);
+			IntegerArray.sort(a);
+			dst.asIntBuffer().put(a);
+		}
+	}
+
+	// Merges the sorted runs of runBytes each in [from, to) of in into the
+	// same range of out
+	private static void merge(FileChannel in, FileChannel out, long from, long to, long runBytes, int window,
+			int width) throws IOException
+	{
+		int k = (int) ((to - from + runBytes - 1) / runBytes);
+		Run[] runs = new Run[k];
+		for (int i = 0; i < k; ++i)
+		{
+			long start = from + i * runBytes;
+			runs[i] = new Run(in, MapMode.READ_ONLY, start, Math.min(start + runBytes, to), window, width);
+			runs[i].advance();
+		}
+
+		Run sink = new Run(out, MapMode.READ_WRITE, from, to, window, width);
+		LoserTree tree = new LoserTree(runs);
+		for (long n = (to - from) / width; n > 0; --n)
+		{
+			int w = tree.winner();
+			sink.write(runs[w].head);
+			runs[w].advance();
+			tree.replay(w);
+		}
+	}
+
+	/**
+	 * Sequential cursor over the records in [position, end) of a file, read
+	 * or written through a sliding memory-mapped window.
+	 */
+	private static final class Run
+	{
+
+		private final FileChannel channel;
+		private final MapMode mode;
+		private final long end;
+		private final int window;
+		private final int width;
+
+		private long position; // file offset of the current window
+		private MappedByteBuffer buffer;
+
+		long head; // current record of an input run
+		boolean exhausted;
+
+		Run(FileChannel channel, MapMode mode, long position, long end, int window, int width)
+		{
+			this.channel = channel;
+			this.mode = mode;
+			this.position = position;
+			this.end = end;
+			this.window = window;
+			this.width = width;
+		}
+
+		private boolean slide() throws IOException
+		{
+			if (buffer != null)
+			{
+				position += buffer.capacity();
+			}
+			if (position >= end)
+			{
+				return false;
+			}
+			buffer = map(channel, mode, position, Math.min(window, end - position));
+			return true;
+		}
+
+		void advance() throws IOException
+		{
+			if (exhausted)
+			{
+				return;
+			}
+			if ((buffer == null || !buffer.hasRemaining()) && !slide())
+			{
+				exhausted = true;
+				return;
+			}
+			head = (width == LONG_BYTES) ? buffer.getLong() : buffer.getInt();
+		}
+
+		void write(long value) throws IOException
+		{
+			if (buffer == null || !buffer.hasRemaining())
+			{
+				slide();
+			}
+			if (width == LONG_BYTES)
+			{
+				buffer.putLong(value);
+			}
+			else
+			{
+				buffer.putInt((int) value);
+			}
+		}
+	}
+
+	/**
+	 * Tournament tree over the heads of k runs. tree[0] is the run with the
+	 * smallest head, every internal node tree[1..k) holds the loser of the
+	 * match played there, so replacing the winner's head replays one
+	 * root-to-leaf path of log k comparisons.
+	 */
+	private static final class LoserTree
+	{
+
+		private final Run[] runs;
+		private final int[] tree;
+		private final int k;
+
+		LoserTree(Run[] runs)
+		{
+			this.runs = runs;
+			this.k = runs.length;
+			this.tree = new int[k];
+			tree[0] = build(1);
+		}
+
+		private int build(int node)
+		{
+			if (node >= k)
+			{
+				return node - k;
+			}
+			int l = build(2 * node);
+			int r = build(2 * node + 1);
+			if (beats(l, r))
+			{
+				tree[node] = r;
+				return l;
+			}
+			tree[node] = l;
+			return r;
+		}
+
+		// Exhausted runs lose every match, ties go to the lower run
+		private boolean beats(int i, int j)
+		{
+			Run a = runs[i], b = runs[j];
+			if (a.exhausted || b.exhausted)
+			{
+				return !a.exhausted || (b.exhausted && i < j);
+			}
+			return a.head < b.head || (a.head == b.head && i < j);
+		}
+
+		int winner()
+		{
+			return tree[0];
+		}
+
+		void replay(int w)
+		{
+			for (int node = (w + k) >>> 1; node > 0; node >>>= 1)
+			{
+				if (beats(tree[node], w))
+				{
+					int t = tree[node];
+					tree[node] = w;
+					w = t;
+				}
+			}
+			tree[0] = w;
+		}
+	}
+}
@@ -25,751 +25,471 @@ public class ObjectArray
 			ComparableTimSort.sort(a, fromIndex, toIndex, null, 0, 0);
 	}
 
-	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
+	/**
+	 * Sorts a with the buffers held by context instead of allocating fresh
+	 * ones, so repeated sorts on one thread grow and then reuse the same
+	 * temporary array and run stacks. Allocations made by this call are
+	 * reported in {@link SortContext#stats()}.
+	 */
+	public static void sort(Object[] a, SortContext context)
 	{
-		if (fromIndex > toIndex)
-		{
-			throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
-		}
-		if (fromIndex < 0)
-		{
-			throw new ArrayIndexOutOfBoundsException(fromIndex);
-		}
-		if (toIndex > arrayLength)
-		{
-			throw new ArrayIndexOutOfBoundsException(toIndex);
-		}
-	}
-
-	private static void legacyMergeSort(Object[] a)
-	{
-		Object[] aux = a.clone();
-		mergeSort(aux, a, 0, a.length, 0);
+		ComparableTimSort.sort(a, 0, a.length, context);
 	}
 
-	private static void legacyMergeSort(Object[] a, int fromIndex, int toIndex)
+	public static void sort(Object[] a, int fromIndex, int toIndex, SortContext context)
 	{
-		Object[] aux = copyOfRange(a, fromIndex, toIndex);
-		mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+		rangeCheck(a.length, fromIndex, toIndex);
+		ComparableTimSort.sort(a, fromIndex, toIndex, context);
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private static void mergeSort(Object[] src, Object[] dest, int low, int high, int off)
+	/**
+	 * Rearranges a so that a[k] holds the value it would have if a were
+	 * sorted, with no greater element before it and no smaller element after
+	 * it, and returns that value. Uses dual-pivot quickselect, which runs in
+	 * expected linear time, and switches to heap selection after too many
+	 * unbalanced partitions, which bounds the worst case by O(n log k).
+	 */
+	public static Object select(Object[] a, int k)
 	{
-		int length = high - low;
-
-		// Insertion sort on smallest arrays
-		if (length < 47)
+		if (k < 0 || k >= a.length)
 		{
-			for (int i = low; i < high; i++)
-				for (int j = i; j > low && ((Comparable) dest[j - 1]).compareTo(dest[j]) > 0; j--)
-					swap(dest, j, j - 1);
-			return;
+			throw new ArrayIndexOutOfBoundsException(k);
 		}
+		select(a, 0, a.length - 1, k);
+		return a[k];
+	}
 
-		// Recursively sort halves of dest into src
-		int destLow = low;
-		int destHigh = high;
-		low += off;
-		high += off;
-		int mid = (low + high) >>> 1;
-		mergeSort(dest, src, low, mid, -off);
-		mergeSort(dest, src, mid, high, -off);
-
-		// If list is already sorted, just copy from src to dest. This is an
-		// optimization that results in faster sorts for nearly ordered lists.
-		if (((Comparable) src[mid - 1]).compareTo(src[mid]) <= 0)
+	/**
+	 * Rearranges a so that a[0..k) holds its k smallest elements in ascending
+	 * order. The order of the remaining elements is unspecified.
+	 */
+	public static void partialSort(Object[] a, int k)
+	{
+		checkK(a.length, k);
+		if (k == 0)
 		{
-			System.arraycopy(src, low, dest, destLow, length);
 			return;
 		}
-
-		// Merge sorted halves (now in src) into dest
-		for (int i = destLow, p = low, q = mid; i < destHigh; i++)
+		if (k < a.length)
 		{
-			if (q >= high || p < mid && ((Comparable) src[p]).compareTo(src[q]) <= 0)
-				dest[i] = src[p++];
-			else
-				dest[i] = src[q++];
+			select(a, 0, a.length - 1, k - 1);
 		}
+		ComparableTimSort.sort(a, 0, k, null, 0, 0);
 	}
 
-	private static void swap(Object[] x, int a, int b)
+	/**
+	 * Copies the k smallest elements of a into out[0..k) in ascending order
+	 * and leaves a unchanged. out serves as a bounded max-heap, so this takes
+	 * a single pass over a and O(n log k) time.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void topK(Object[] a, int k, Object[] out)
 	{
-		Object t = x[a];
-		x[a] = x[b];
-		x[b] = t;
-	}
-
-	@SuppressWarnings("unchecked")
-	public static <T> T[] copyOfRange(T[] original, int from, int to)
-	{
-		return copyOfRange(original, from, to, (Class<? extends T[]>) original.getClass());
-	}
-
-	public static <T, U> T[] copyOfRange(U[] original, int from, int to, Class<? extends T[]> newType)
-	{
-		int newLength = to - from;
-		if (newLength < 0)
-			throw new IllegalArgumentException(from + " > " + to);
-		@SuppressWarnings("unchecked")
-		T[] copy = ((Object) newType == (Object) Object[].class) ? (T[]) new Object[newLength]
-				: (T[]) java.lang.reflect.Array.newInstance(newType.getComponentType(), newLength);
-		System.arraycopy(original, from, copy, 0, Math.min(original.length - from, newLength));
-		return copy;
-	}
-
-}
-
-class ComparableTimSort
-{
-
-	private static final int MIN_MERGE = 32;
-
-	private final Object[] a;
-
-	private static final int MIN_GALLOP = 7;
-
-	private int minGallop = MIN_GALLOP;
-
-	private static final int INITIAL_TMP_STORAGE_LENGTH = 256;
-
-	private Object[] tmp;
-	private int tmpBase; // base of tmp array slice
-	private int tmpLen; // length of tmp array slice
-
-	private int stackSize = 0; // Number of pending runs on stack
-	private final int[] runBase;
-	private final int[] runLen;
-
-	private ComparableTimSort(Object[] a, Object[] work, int workBase, int workLen)
-	{
-		this.a = a;
-
-		// Allocate temp storage (which may be increased later if necessary)
-		int len = a.length;
-		int tlen = (len < 2 * INITIAL_TMP_STORAGE_LENGTH) ? len >>> 1 : INITIAL_TMP_STORAGE_LENGTH;
-		if (work == null || workLen < tlen || workBase + tlen > work.length)
+		checkK(a.length, k);
+		if (out.length < k)
 		{
-			tmp = new Object[tlen];
-			tmpBase = 0;
-			tmpLen = tlen;
+			throw new IllegalArgumentException("out.length(" + out.length + ") < k(" + k + ")");
 		}
-		else
+		if (k == 0)
 		{
-			tmp = work;
-			tmpBase = workBase;
-			tmpLen = workLen;
-		}
-
-		int stackLen = (len < 120 ? 5 : len < 1542 ? 10 : len < 119151 ? 24 : 49);
-		runBase = new int[stackLen];
-		runLen = new int[stackLen];
-	}
-
-	static void sort(Object[] a, int lo, int hi, Object[] work, int workBase, int workLen)
-	{
-		assert a != null && lo >= 0 && lo <= hi && hi <= a.length;
-
-		int nRemaining = hi - lo;
-		if (nRemaining < 2)
-			return; // Arrays of size 0 and 1 are always sorted
-
-		// If array is small, do a "mini-TimSort" with no merges
-		if (nRemaining < MIN_MERGE)
-		{
-			int initRunLen = countRunAndMakeAscending(a, lo, hi);
-			binarySort(a, lo, hi, lo + initRunLen);
 			return;
 		}
-
-		ComparableTimSort ts = new ComparableTimSort(a, work, workBase, workLen);
-		int minRun = minRunLength(nRemaining);
-		do
+		System.arraycopy(a, 0, out, 0, k);
+		for (int i = (k >>> 1) - 1; i >= 0; --i)
 		{
-			// Identify next run
-			int runLen = countRunAndMakeAscending(a, lo, hi);
-
-			// If run is short, extend to min(minRun, nRemaining)
-			if (runLen < minRun)
-			{
-				int force = nRemaining <= minRun ? nRemaining : minRun;
-				binarySort(a, lo, lo + force, lo + runLen);
-				runLen = force;
-			}
-
-			// Push run onto pending-run stack, and maybe merge
-			ts.pushRun(lo, runLen);
-			ts.mergeCollapse();
-
-			// Advance to find next run
-			lo += runLen;
-			nRemaining -= runLen;
+			siftDown(out, 0, i, out[i], k);
 		}
-		while (nRemaining != 0);
-
-		// Merge all remaining runs to complete sort
-		assert lo == hi;
-		ts.mergeForceCollapse();
-		assert ts.stackSize == 1;
-	}
-
-	@SuppressWarnings({ "fallthrough", "rawtypes", "unchecked" })
-	private static void binarySort(Object[] a, int lo, int hi, int start)
-	{
-		assert lo <= start && start <= hi;
-		if (start == lo)
-			start++;
-		for (; start < hi; start++)
+		for (int i = k; i < a.length; ++i)
 		{
-			Comparable pivot = (Comparable) a[start];
-
-			// Set left (and right) to the index where a[start] (pivot)
-			// belongs
-			int left = lo;
-			int right = start;
-			assert left <= right;
-
-			while (left < right)
+			Object x = a[i];
+			if (((Comparable) x).compareTo(out[0]) < 0)
 			{
-				int mid = (left + right) >>> 1;
-				if (pivot.compareTo(a[mid]) < 0)
-					right = mid;
-				else
-					left = mid + 1;
-			}
-			assert left == right;
-
-			int n = start - left; // The number of elements to move
-			// Switch is just an optimization for arraycopy in default case
-			switch (n)
-			{
-				case 2:
-					a[left + 2] = a[left + 1];
-				case 1:
-					a[left + 1] = a[left];
-					break;
-				default:
-					System.arraycopy(a, left, a, left + 1, n);
+				siftDown(out, 0, 0, x, k);
 			}
-			a[left] = pivot;
 		}
-	}
-
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private static int countRunAndMakeAscending(Object[] a, int lo, int hi)
-	{
-		assert lo < hi;
-		int runHi = lo + 1;
-		if (runHi == hi)
-			return 1;
-
-		// Find end of run, and reverse range if descending
-		if (((Comparable) a[runHi++]).compareTo(a[lo]) < 0)
-		{ // Descending
-			while (runHi < hi && ((Comparable) a[runHi]).compareTo(a[runHi - 1]) < 0)
-				runHi++;
-			reverseRange(a, lo, runHi);
-		}
-		else
-		{ // Ascending
-			while (runHi < hi && ((Comparable) a[runHi]).compareTo(a[runHi - 1]) >= 0)
-				runHi++;
-		}
-
-		return runHi - lo;
-	}
-
-	private static void reverseRange(Object[] a, int lo, int hi)
-	{
-		hi--;
-		while (lo < hi)
-		{
-			Object t = a[lo];
-			a[lo++] = a[hi];
-			a[hi--] = t;
+		for (int n = k - 1; n > 0; --n)
+		{ // Heap sort: move the maximum behind the shrinking heap
+			Object max = out[0];
+			siftDown(out, 0, 0, out[n], n);
+			out[n] = max;
 		}
 	}
 
-	private static int minRunLength(int n)
+	private static void rangeCheck(int arrayLength, int fromIndex, int toIndex)
 	{
-		assert n >= 0;
-		int r = 0; // Becomes 1 if any 1 bits are shifted off
-		while (n >= MIN_MERGE)
+		if (fromIndex > toIndex)
 		{
-			r |= (n & 1);
-			n >>= 1;
+			throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
 		}
-		return n + r;
-	}
-
-	private void pushRun(int runBase, int runLen)
-	{
-		this.runBase[stackSize] = runBase;
-		this.runLen[stackSize] = runLen;
-		stackSize++;
-	}
-
-	private void mergeCollapse()
-	{
-		while (stackSize > 1)
+		if (fromIndex < 0)
 		{
-			int n = stackSize - 2;
-			if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
-			{
-				if (runLen[n - 1] < runLen[n + 1])
-					n--;
-				mergeAt(n);
-			}
-			else if (runLen[n] <= runLen[n + 1])
-			{
-				mergeAt(n);
-			}
-			else
-			{
-				break; // Invariant is established
-			}
+			throw new ArrayIndexOutOfBoundsException(fromIndex);
 		}
-	}
-
-	private void mergeForceCollapse()
-	{
-		while (stackSize > 1)
+		if (toIndex > arrayLength)
 		{
-			int n = stackSize - 2;
-			if (n > 0 && runLen[n - 1] < runLen[n + 1])
-				n--;
-			mergeAt(n);
+			throw new ArrayIndexOutOfBoundsException(toIndex);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void mergeAt(int i)
+	private static void checkK(int arrayLength, int k)
 	{
-		assert stackSize >= 2;
-		assert i >= 0;
-		assert i == stackSize - 2 || i == stackSize - 3;
-
-		int base1 = runBase[i];
-		int len1 = runLen[i];
-		int base2 = runBase[i + 1];
-		int len2 = runLen[i + 1];
-		assert len1 > 0 && len2 > 0;
-		assert base1 + len1 == base2;
-
-		runLen[i] = len1 + len2;
-		if (i == stackSize - 3)
+		if (k < 0 || k > arrayLength)
 		{
-			runBase[i + 1] = runBase[i + 2];
-			runLen[i + 1] = runLen[i + 2];
+			throw new IllegalArgumentException("k(" + k + ") not in [0, " + arrayLength + "]");
 		}
-		stackSize--;
-
-		int k = gallopRight((Comparable<Object>) a[base2], a, base1, len1, 0);
-		assert k >= 0;
-		base1 += k;
-		len1 -= k;
-		if (len1 == 0)
-			return;
-
-		len2 = gallopLeft((Comparable<Object>) a[base1 + len1 - 1], a, base2, len2, len2 - 1);
-		assert len2 >= 0;
-		if (len2 == 0)
-			return;
-
-		// Merge remaining runs, using tmp array with min(len1, len2)
-		// elements
-		if (len1 <= len2)
-			mergeLo(base1, len1, base2, len2);
-		else
-			mergeHi(base1, len1, base2, len2);
 	}
 
-	private static int gallopLeft(Comparable<Object> key, Object[] a, int base, int len, int hint)
+	// Dual-pivot quickselect: places the k-th smallest element of a[left..right]
+	// at a[k], partitioned around it
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void select(Object[] a, int left, int right, int k)
 	{
-		assert len > 0 && hint >= 0 && hint < len;
+		// Allow about two partitions per halving of the range
+		int budget = 2 * (32 - Integer.numberOfLeadingZeros(right - left + 1));
 
-		int lastOfs = 0;
-		int ofs = 1;
-		if (key.compareTo(a[base + hint]) > 0)
+		while (right - left >= 47)
 		{
-			// Gallop right until a[base+hint+lastOfs] < key <=
-			// a[base+hint+ofs]
-			int maxOfs = len - hint;
-			while (ofs < maxOfs && key.compareTo(a[base + hint + ofs]) > 0)
+			if (--budget < 0)
 			{
-				lastOfs = ofs;
-				ofs = (ofs << 1) + 1;
-				if (ofs <= 0) // int overflow
-					ofs = maxOfs;
+				heapSelect(a, left, right, k);
+				return;
 			}
-			if (ofs > maxOfs)
-				ofs = maxOfs;
 
-			// Make offsets relative to base
-			lastOfs += hint;
-			ofs += hint;
-		}
-		else
-		{ // key <= a[base + hint]
-			// Gallop left until a[base+hint-ofs] < key <=
-			// a[base+hint-lastOfs]
-			final int maxOfs = hint + 1;
-			while (ofs < maxOfs && key.compareTo(a[base + hint - ofs]) <= 0)
+			// Same pivot sampling as the dual-pivot quicksort
+			int length = right - left + 1;
+			int seventh = (length >> 3) + (length >> 6) + 1;
+			int e3 = (left + right) >>> 1;
+			int e2 = e3 - seventh;
+			int e1 = e2 - seventh;
+			int e4 = e3 + seventh;
+			int e5 = e4 + seventh;
+
+			if (((Comparable) a[e2]).compareTo(a[e1]) < 0)
 			{
-				lastOfs = ofs;
-				ofs = (ofs << 1) + 1;
-				if (ofs <= 0) // int overflow
-					ofs = maxOfs;
+				Object t = a[e2];
+				a[e2] = a[e1];
+				a[e1] = t;
 			}
-			if (ofs > maxOfs)
-				ofs = maxOfs;
-
-			// Make offsets relative to base
-			int tmp = lastOfs;
-			lastOfs = hint - ofs;
-			ofs = hint - tmp;
-		}
-		assert -1 <= lastOfs && lastOfs < ofs && ofs <= len;
-
-		lastOfs++;
-		while (lastOfs < ofs)
-		{
-			int m = lastOfs + ((ofs - lastOfs) >>> 1);
-
-			if (key.compareTo(a[base + m]) > 0)
-				lastOfs = m + 1; // a[base + m] < key
-			else
-				ofs = m; // key <= a[base + m]
-		}
-		assert lastOfs == ofs; // so a[base + ofs - 1] < key <= a[base +
-								// ofs]
-		return ofs;
-	}
-
-	private static int gallopRight(Comparable<Object> key, Object[] a, int base, int len, int hint)
-	{
-		assert len > 0 && hint >= 0 && hint < len;
-
-		int ofs = 1;
-		int lastOfs = 0;
-		if (key.compareTo(a[base + hint]) < 0)
-		{
-			// Gallop left until a[b+hint - ofs] <= key < a[b+hint -
-			// lastOfs]
-			int maxOfs = hint + 1;
-			while (ofs < maxOfs && key.compareTo(a[base + hint - ofs]) < 0)
+			if (((Comparable) a[e3]).compareTo(a[e2]) < 0)
 			{
-				lastOfs = ofs;
-				ofs = (ofs << 1) + 1;
-				if (ofs <= 0) // int overflow
-					ofs = maxOfs;
+				Object t = a[e3];
+				a[e3] = a[e2];
+				a[e2] = t;
+				if (((Comparable) t).compareTo(a[e1]) < 0)
+				{
+					a[e2] = a[e1];
+					a[e1] = t;
+				}
 			}
-			if (ofs > maxOfs)
-				ofs = maxOfs;
-
-			// Make offsets relative to b
-			int tmp = lastOfs;
-			lastOfs = hint - ofs;
-			ofs = hint - tmp;
-		}
-		else
-		{ // a[b + hint] <= key
-			// Gallop right until a[b+hint + lastOfs] <= key < a[b+hint +
-			// ofs]
-			int maxOfs = len - hint;
-			while (ofs < maxOfs && key.compareTo(a[base + hint + ofs]) >= 0)
+			if (((Comparable) a[e4]).compareTo(a[e3]) < 0)
 			{
-				lastOfs = ofs;
-				ofs = (ofs << 1) + 1;
-				if (ofs <= 0) // int overflow
-					ofs = maxOfs;
+				Object t = a[e4];
+				a[e4] = a[e3];
+				a[e3] = t;
+				if (((Comparable) t).compareTo(a[e2]) < 0)
+				{
+					a[e3] = a[e2];
+					a[e2] = t;
+					if (((Comparable) t).compareTo(a[e1]) < 0)
+					{
+						a[e2] = a[e1];
+						a[e1] = t;
+					}
+				}
+			}
+			if (((Comparable) a[e5]).compareTo(a[e4]) < 0)
+			{
+				Object t = a[e5];
+				a[e5] = a[e4];
+				a[e4] = t;
+				if (((Comparable) t).compareTo(a[e3]) < 0)
+				{
+					a[e4] = a[e3];
+					a[e3] = t;
+					if (((Comparable) t).compareTo(a[e2]) < 0)
+					{
+						a[e3] = a[e2];
+						a[e2] = t;
+						if (((Comparable) t).compareTo(a[e1]) < 0)
+						{
+							a[e2] = a[e1];
+							a[e1] = t;
+						}
+					}
+				}
 			}
-			if (ofs > maxOfs)
-				ofs = maxOfs;
-
-			// Make offsets relative to b
-			lastOfs += hint;
-			ofs += hint;
-		}
-		assert -1 <= lastOfs && lastOfs < ofs && ofs <= len;
 
-		lastOfs++;
-		while (lastOfs < ofs)
-		{
-			int m = lastOfs + ((ofs - lastOfs) >>> 1);
+			int less = left; // The index of the first element of center part
+			int great = right; // The index before the first element of right part
 
-			if (key.compareTo(a[base + m]) < 0)
-				ofs = m; // key < a[b + m]
-			else
-				lastOfs = m + 1; // a[b + m] <= key
-		}
-		assert lastOfs == ofs; // so a[b + ofs - 1] <= key < a[b + ofs]
-		return ofs;
-	}
+			if (((Comparable) a[e1]).compareTo(a[e2]) != 0 && ((Comparable) a[e2]).compareTo(a[e3]) != 0
+					&& ((Comparable) a[e3]).compareTo(a[e4]) != 0 && ((Comparable) a[e4]).compareTo(a[e5]) != 0)
+			{
+				Object pivot1 = a[e2];
+				Object pivot2 = a[e4];
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private void mergeLo(int base1, int len1, int base2, int len2)
-	{
-		assert len1 > 0 && len2 > 0 && base1 + len1 == base2;
+				a[e2] = a[left];
+				a[e4] = a[right];
 
-		// Copy first run into temp array
-		Object[] a = this.a; // For performance
-		Object[] tmp = ensureCapacity(len1);
+				while (((Comparable) a[++less]).compareTo(pivot1) < 0)
+					;
+				while (((Comparable) pivot2).compareTo(a[--great]) < 0)
+					;
 
-		int cursor1 = tmpBase; // Indexes into tmp array
-		int cursor2 = base2; // Indexes int a
-		int dest = base1; // Indexes int a
-		System.arraycopy(a, base1, tmp, cursor1, len1);
+				outer: for (int j = less - 1; ++j <= great;)
+				{
+					Object aj = a[j];
+					if (((Comparable) aj).compareTo(pivot1) < 0)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else if (((Comparable) pivot2).compareTo(aj) < 0)
+					{ // Move a[j] to right part
+						while (((Comparable) pivot2).compareTo(a[great]) < 0)
+						{
+							if (great-- == j)
+							{
+								break outer;
+							}
+						}
+						if (((Comparable) a[great]).compareTo(pivot1) < 0)
+						{ // a[great] <= pivot2
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // pivot1 <= a[great] <= pivot2
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
+				}
 
-		// Move first element of second run and deal with degenerate cases
-		a[dest++] = a[cursor2++];
-		if (--len2 == 0)
-		{
-			System.arraycopy(tmp, cursor1, a, dest, len1);
-			return;
-		}
-		if (len1 == 1)
-		{
-			System.arraycopy(a, cursor2, a, dest, len2);
-			a[dest + len2] = tmp[cursor1]; // Last elt of run 1 to end of
-											// merge
-			return;
-		}
+				// Swap pivots into their final positions
+				a[left] = a[less - 1];
+				a[less - 1] = pivot1;
+				a[right] = a[great + 1];
+				a[great + 1] = pivot2;
 
-		int minGallop = this.minGallop; // Use local variable for
-										// performance
-		outer: while (true)
-		{
-			int count1 = 0; // Number of times in a row that first run won
-			int count2 = 0; // Number of times in a row that second run won
-
-			do
-			{
-				assert len1 > 1 && len2 > 0;
-				if (((Comparable) a[cursor2]).compareTo(tmp[cursor1]) < 0)
+				// Continue in the part that contains k
+				if (k < less - 1)
+				{
+					right = less - 2;
+				}
+				else if (k > great + 1)
+				{
+					left = great + 2;
+				}
+				else if (k == less - 1 || k == great + 1)
 				{
-					a[dest++] = a[cursor2++];
-					count2++;
-					count1 = 0;
-					if (--len2 == 0)
-						break outer;
+					return;
 				}
 				else
 				{
-					a[dest++] = tmp[cursor1++];
-					count1++;
-					count2 = 0;
-					if (--len1 == 1)
-						break outer;
+					left = less;
+					right = great;
 				}
 			}
-			while ((count1 | count2) < minGallop);
+			else
+			{ // Partitioning with one pivot
+				Object pivot = a[e3];
 
-			do
-			{
-				assert len1 > 1 && len2 > 0;
-				count1 = gallopRight((Comparable) a[cursor2], tmp, cursor1, len1, 0);
-				if (count1 != 0)
+				for (int j = less; j <= great; ++j)
 				{
-					System.arraycopy(tmp, cursor1, a, dest, count1);
-					dest += count1;
-					cursor1 += count1;
-					len1 -= count1;
-					if (len1 <= 1) // len1 == 1 || len1 == 0
-						break outer;
+					if (((Comparable) a[j]).compareTo(pivot) == 0)
+					{
+						continue;
+					}
+					Object aj = a[j];
+					if (((Comparable) aj).compareTo(pivot) < 0)
+					{ // Move a[j] to left part
+						a[j] = a[less];
+						a[less] = aj;
+						++less;
+					}
+					else
+					{ // a[j] > pivot - Move a[j] to right part
+						while (((Comparable) pivot).compareTo(a[great]) < 0)
+						{
+							--great;
+						}
+						if (((Comparable) a[great]).compareTo(pivot) < 0)
+						{ // a[great] <= pivot
+							a[j] = a[less];
+							a[less] = a[great];
+							++less;
+						}
+						else
+						{ // a[great] == pivot
+							a[j] = a[great];
+						}
+						a[great] = aj;
+						--great;
+					}
 				}
-				a[dest++] = a[cursor2++];
-				if (--len2 == 0)
-					break outer;
 
-				count2 = gallopLeft((Comparable) tmp[cursor1], a, cursor2, len2, 0);
-				if (count2 != 0)
+				// a[less..great] are equal to the pivot
+				if (k < less)
+				{
+					right = less - 1;
+				}
+				else if (k > great)
 				{
-					System.arraycopy(a, cursor2, a, dest, count2);
-					dest += count2;
-					cursor2 += count2;
-					len2 -= count2;
-					if (len2 == 0)
-						break outer;
+					left = great + 1;
+				}
+				else
+				{
+					return;
 				}
-				a[dest++] = tmp[cursor1++];
-				if (--len1 == 1)
-					break outer;
-				minGallop--;
 			}
-			while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
-			if (minGallop < 0)
-				minGallop = 0;
-			minGallop += 2; // Penalize for leaving gallop mode
-		} // End of "outer" loop
-		this.minGallop = minGallop < 1 ? 1 : minGallop; // Write back to
-														// field
-
-		if (len1 == 1)
-		{
-			assert len2 > 0;
-			System.arraycopy(a, cursor2, a, dest, len2);
-			a[dest + len2] = tmp[cursor1]; // Last elt of run 1 to end of
-											// merge
-		}
-		else if (len1 == 0)
-		{
-			throw new IllegalArgumentException("Comparison method violates its general contract!");
 		}
-		else
+
+		// Use insertion sort on tiny ranges
+		for (int i = left, j = i; i < right; j = ++i)
 		{
-			assert len2 == 0;
-			assert len1 > 1;
-			System.arraycopy(tmp, cursor1, a, dest, len1);
+			Object ai = a[i + 1];
+			while (((Comparable) ai).compareTo(a[j]) < 0)
+			{
+				a[j + 1] = a[j];
+				if (j-- == left)
+				{
+					break;
+				}
+			}
+			a[j + 1] = ai;
 		}
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private void mergeHi(int base1, int len1, int base2, int len2)
+	// Heap selection in O(n log k): keeps the k - left + 1 smallest elements of
+	// a[left..right] in a max-heap at a[left..k], then moves its top to a[k]
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void heapSelect(Object[] a, int left, int right, int k)
 	{
-		assert len1 > 0 && len2 > 0 && base1 + len1 == base2;
-
-		// Copy second run into temp array
-		Object[] a = this.a; // For performance
-		Object[] tmp = ensureCapacity(len2);
-		int tmpBase = this.tmpBase;
-		System.arraycopy(a, base2, tmp, tmpBase, len2);
-
-		int cursor1 = base1 + len1 - 1; // Indexes into a
-		int cursor2 = tmpBase + len2 - 1; // Indexes into tmp array
-		int dest = base2 + len2 - 1; // Indexes into a
-
-		// Move last element of first run and deal with degenerate cases
-		a[dest--] = a[cursor1--];
-		if (--len1 == 0)
+		int m = k - left + 1;
+		for (int i = (m >>> 1) - 1; i >= 0; --i)
 		{
-			System.arraycopy(tmp, tmpBase, a, dest - (len2 - 1), len2);
-			return;
+			siftDown(a, left, i, a[left + i], m);
 		}
-		if (len2 == 1)
+		for (int i = k + 1; i <= right; ++i)
 		{
-			dest -= len1;
-			cursor1 -= len1;
-			System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
-			a[dest] = tmp[cursor2];
-			return;
+			Object x = a[i];
+			if (((Comparable) x).compareTo(a[left]) < 0)
+			{
+				a[i] = a[left];
+				siftDown(a, left, 0, x, m);
+			}
 		}
+		Object top = a[left];
+		a[left] = a[k];
+		a[k] = top;
+	}
 
-		int minGallop = this.minGallop; // Use local variable for
-										// performance
-		outer: while (true)
+	// Sifts x down from slot i of the max-heap h[base..base+n)
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void siftDown(Object[] h, int base, int i, Object x, int n)
+	{
+		for (int half = n >>> 1; i < half;)
 		{
-			int count1 = 0; // Number of times in a row that first run won
-			int count2 = 0; // Number of times in a row that second run won
-
-			do
+			int child = (i << 1) + 1;
+			Object c = h[base + child];
+			int right = child + 1;
+			if (right < n && ((Comparable) c).compareTo(h[base + right]) < 0)
 			{
-				assert len1 > 0 && len2 > 1;
-				if (((Comparable) tmp[cursor2]).compareTo(a[cursor1]) < 0)
-				{
-					a[dest--] = a[cursor1--];
-					count1++;
-					count2 = 0;
-					if (--len1 == 0)
-						break outer;
-				}
-				else
-				{
-					a[dest--] = tmp[cursor2--];
-					count2++;
-					count1 = 0;
-					if (--len2 == 1)
-						break outer;
-				}
+				c = h[base + (child = right)];
 			}
-			while ((count1 | count2) < minGallop);
-
-			do
+			if (((Comparable) x).compareTo(c) < 0)
 			{
-				assert len1 > 0 && len2 > 1;
-				count1 = len1 - gallopRight((Comparable) tmp[cursor2], a, base1, len1, len1 - 1);
-				if (count1 != 0)
-				{
-					dest -= count1;
-					cursor1 -= count1;
-					len1 -= count1;
-					System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
-					if (len1 == 0)
-						break outer;
-				}
-				a[dest--] = tmp[cursor2--];
-				if (--len2 == 1)
-					break outer;
-
-				count2 = len2 - gallopLeft((Comparable) a[cursor1], tmp, tmpBase, len2, len2 - 1);
-				if (count2 != 0)
-				{
-					dest -= count2;
-					cursor2 -= count2;
-					len2 -= count2;
-					System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
-					if (len2 <= 1)
-						break outer; // len2 == 1 || len2 == 0
-				}
-				a[dest--] = a[cursor1--];
-				if (--len1 == 0)
-					break outer;
-				minGallop--;
+				h[base + i] = c;
+				i = child;
 			}
-			while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
-			if (minGallop < 0)
-				minGallop = 0;
-			minGallop += 2; // Penalize for leaving gallop mode
-		} // End of "outer" loop
-		this.minGallop = minGallop < 1 ? 1 : minGallop; // Write back to
-														// field
-
-		if (len2 == 1)
+			else
+			{
+				break;
+			}
+		}
+		h[base + i] = x;
+	}
+
+	private static void legacyMergeSort(Object[] a)
+	{
+		Object[] aux = a.clone();
+		mergeSort(aux, a, 0, a.length, 0);
+	}
+
+	private static void legacyMergeSort(Object[] a, int fromIndex, int toIndex)
+	{
+		Object[] aux = copyOfRange(a, fromIndex, toIndex);
+		mergeSort(aux, a, fromIndex, toIndex, -fromIndex);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void mergeSort(Object[] src, Object[] dest, int low, int high, int off)
+	{
+		int length = high - low;
+
+		// Insertion sort on smallest arrays
+		if (length < 47)
 		{
-			assert len1 > 0;
-			dest -= len1;
-			cursor1 -= len1;
-			System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
-			a[dest] = tmp[cursor2]; // Move first elt of run2 to front of
-									// merge
+			for (int i = low; i < high; i++)
+				for (int j = i; j > low && ((Comparable) dest[j - 1]).compareTo(dest[j]) > 0; j--)
+					swap(dest, j, j - 1);
+			return;
 		}
-		else if (len2 == 0)
+
+		// Recursively sort halves of dest into src
+		int destLow = low;
+		int destHigh = high;
+		low += off;
+		high += off;
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, -off);
+		mergeSort(dest, src, mid, high, -off);
+
+		// If list is already sorted, just copy from src to dest. This is an
+		// optimization that results in faster sorts for nearly ordered lists.
+		if (((Comparable) src[mid - 1]).compareTo(src[mid]) <= 0)
 		{
-			throw new IllegalArgumentException("Comparison method violates its general contract!");
+			System.arraycopy(src, low, dest, destLow, length);
+			return;
 		}
-		else
+
+		// Merge sorted halves (now in src) into dest
+		for (int i = destLow, p = low, q = mid; i < destHigh; i++)
 		{
-			assert len1 == 0;
-			assert len2 > 0;
-			System.arraycopy(tmp, tmpBase, a, dest - (len2 - 1), len2);
+			if (q >= high || p < mid && ((Comparable) src[p]).compareTo(src[q]) <= 0)
+				dest[i] = src[p++];
+			else
+				dest[i] = src[q++];
 		}
 	}
 
-	private Object[] ensureCapacity(int minCapacity)
+	private static void swap(Object[] x, int a, int b)
 	{
-		if (tmpLen < minCapacity)
-		{
-			// Compute smallest power of 2 > minCapacity
-			int newSize = minCapacity;
-			newSize |= newSize >> 1;
-			newSize |= newSize >> 2;
-			newSize |= newSize >> 4;
-			newSize |= newSize >> 8;
-			newSize |= newSize >> 16;
-			newSize++;
-
-			if (newSize < 0) // Not bloody likely!
-				newSize = minCapacity;
-			else
-				newSize = Math.min(newSize, a.length >>> 1);
+		Object t = x[a];
+		x[a] = x[b];
+		x[b] = t;
+	}
 
-			Object[] newArray = new Object[newSize];
-			tmp = newArray;
-			tmpLen = newSize;
-			tmpBase = 0;
-		}
-		return tmp;
+	@SuppressWarnings("unchecked")
+	public static <T> T[] copyOfRange(T[] original, int from, int to)
+	{
+		return copyOfRange(original, from, to, (Class<? extends T[]>) original.getClass());
+	}
+
+	public static <T, U> T[] copyOfRange(U[] original, int from, int to, Class<? extends T[]> newType)
+	{
+		int newLength = to - from;
+		if (newLength < 0)
+			throw new IllegalArgumentException(from + " > " + to);
+		@SuppressWarnings("unchecked")
+		T[] copy = ((Object) newType == (Object) Object[].class) ? (T[]) new Object[newLength]
+				: (T[]) java.lang.reflect.Array.newInstance(newType.getComponentType(), newLength);
+		System.arraycopy(original, from, copy, 0, Math.min(original.length - from, newLength));
+		return copy;
 	}
 
 }
@@ -0,0 +1,63 @@
+package sorting;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fork/join support shared by the <tt>parallelSort</tt> methods of the
+ * primitive array classes in this package.
+ */
+public final class ParallelSort
+{
+
+	/**
+	 * Default granularity: ranges of at most this many elements are sorted
+	 * sequentially, no matter how many processors are available.
+	 */
+	public static final int MIN_ARRAY_SORT_GRAN = 1 << 13;
+
+	private static volatile ForkJoinPool pool;
+
+	// This class should not be instantiated.
+	private ParallelSort()
+	{
+	}
+
+	static int parallelism()
+	{
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	static ForkJoinPool pool()
+	{
+		ForkJoinPool p = pool;
+		if (p == null)
+		{
+			synchronized (ParallelSort.class)
+			{
+				if ((p = pool) == null)
+				{
+					pool = p = new ForkJoinPool(parallelism());
+				}
+			}
+		}
+		return p;
+	}
+
+	static void checkGranularity(int granularity)
+	{
+		if (granularity < 1)
+		{
+			throw new IllegalArgumentException("granularity(" + granularity + ") < 1");
+		}
+	}
+
+	/**
+	 * Returns the leaf size for a parallel sort of n elements: about four
+	 * leaves per worker, but never below the requested granularity.
+	 */
+	static int leafSize(int n, int granularity)
+	{
+		int g = n / (parallelism() << 2);
+		return (g <= granularity) ? granularity : g;
+	}
+}
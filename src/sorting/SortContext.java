@@ -0,0 +1,115 @@
+package sorting;
+
+/**
+ * Reusable buffers for {@link ObjectArray#sort(Object[], SortContext)}. A
+ * context keeps the temporary merge array and the run stacks of its last
+ * sort and only reallocates them when a larger array comes along, so a
+ * thread that sorts many small batches stops allocating after the first few
+ * calls.
+ * <p>
+ * A context is not thread-safe and must be confined to one thread. Between
+ * sorts the temporary array may still reference elements of earlier arrays;
+ * call {@link #release()} to drop them.
+ */
+public final class SortContext
+{
+
+	// Estimated heap sizes used for the allocation statistics, assuming
+	// 16-byte array headers and compressed references
+	static final int ARRAY_HEADER_BYTES = 16;
+	static final int REFERENCE_BYTES = 4;
+
+	private ComparableTimSort timSort;
+	private final Stats stats = new Stats();
+
+	ComparableTimSort timSort()
+	{
+		if (timSort == null)
+		{
+			timSort = new ComparableTimSort(this);
+		}
+		return timSort;
+	}
+
+	void beginSort()
+	{
+		stats.sorts++;
+		stats.lastAllocatedBytes = 0;
+	}
+
+	void allocated(long bytes)
+	{
+		stats.lastAllocatedBytes += bytes;
+		stats.totalAllocatedBytes += bytes;
+	}
+
+	static long arrayBytes(int length, int elementBytes)
+	{
+		return (ARRAY_HEADER_BYTES + (long) length * elementBytes + 7) & ~7L;
+	}
+
+	/**
+	 * Returns the allocation statistics of this context. The returned object
+	 * is live and changes with every sort.
+	 */
+	public Stats stats()
+	{
+		return stats;
+	}
+
+	/**
+	 * Drops the buffers held by this context, releasing any references to
+	 * previously sorted elements. The next sort allocates them again.
+	 */
+	public void release()
+	{
+		timSort = null;
+	}
+
+	/**
+	 * Estimated bytes of work arrays allocated by the sorts of one context.
+	 */
+	public static final class Stats
+	{
+
+		private long sorts;
+		private long lastAllocatedBytes;
+		private long totalAllocatedBytes;
+
+		private Stats()
+		{
+		}
+
+		/**
+		 * Returns the number of sorts run with the context.
+		 */
+		public long sorts()
+		{
+			return sorts;
+		}
+
+		/**
+		 * Returns the bytes allocated by the most recent sort, 0 if it reused
+		 * the buffers of earlier sorts.
+		 */
+		public long lastAllocatedBytes()
+		{
+			return lastAllocatedBytes;
+		}
+
+		/**
+		 * Returns the bytes allocated by all sorts of the context.
+		 */
+		public long totalAllocatedBytes()
+		{
+			return totalAllocatedBytes;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "sorts=" + sorts + ", lastAllocatedBytes=" + lastAllocatedBytes + ", totalAllocatedBytes="
+					+ totalAllocatedBytes;
+		}
+	}
+}
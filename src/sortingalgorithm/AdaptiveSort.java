@@ -0,0 +1,126 @@
+package sortingalgorithm;
+
+import java.util.Arrays;
+
+/**
+ * Picks a sort from {@link SortAlgorithms} by looking at the input first:
+ * <ul>
+ * <li>small arrays go to {@link InsertionX}, as do arrays that are already
+ * sorted, which it finishes in one linear pass;</li>
+ * <li>arrays made of a few ascending runs go to {@link MergeX}, which skips
+ * merging halves that are already in order;</li>
+ * <li>arrays with few distinct keys go to {@link Quick3Way}, which removes
+ * every key equal to the pivot from further partitioning;</li>
+ * <li>everything else goes to {@link QuickX}.</li>
+ * </ul>
+ * Presortedness is measured by counting descents from the start of the
+ * array, stopping as soon as there are too many, so random input costs only
+ * a small prefix. Duplicates are estimated from an evenly spaced sample.
+ */
+public class AdaptiveSort
+{
+
+	// Arrays shorter than this are insertion sorted
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	// Arrays with at most length / RUN_RATIO descents count as presorted
+	private static final int RUN_RATIO = 64;
+
+	// Elements sampled to estimate the number of distinct keys
+	private static final int SAMPLE_SIZE = 256;
+
+	// Samples with at most one distinct key in DISTINCT_RATIO elements count
+	// as heavy on duplicates
+	private static final int DISTINCT_RATIO = 8;
+
+	private static final SortAlgorithm INSERTION = SortAlgorithms.get("InsertionX");
+	private static final SortAlgorithm MERGE = SortAlgorithms.get("MergeX");
+	private static final SortAlgorithm QUICK_3WAY = SortAlgorithms.get("Quick3Way");
+	private static final SortAlgorithm QUICK = SortAlgorithms.get("QuickX");
+
+	// This class should not be instantiated.
+	private AdaptiveSort()
+	{
+	}
+
+	/**
+	 * Rearranges the array in ascending order, using the natural order and
+	 * the algorithm returned by {@link #choose(Comparable[])}.
+	 *
+	 * @param a
+	 *            the array to be sorted
+	 */
+	@SuppressWarnings("rawtypes")
+	public static void sort(Comparable[] a)
+	{
+		choose(a).sort(a);
+	}
+
+	/**
+	 * Returns the algorithm best suited to sort a.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static SortAlgorithm choose(Comparable[] a)
+	{
+		int n = a.length;
+		if (n < INSERTION_SORT_THRESHOLD)
+		{
+			return INSERTION;
+		}
+
+		int descents = descents(a, n / RUN_RATIO);
+		if (descents == 0)
+		{
+			return INSERTION;
+		}
+		if (descents <= n / RUN_RATIO)
+		{
+			return MERGE;
+		}
+
+		if (fewDistinct(a))
+		{
+			return QUICK_3WAY;
+		}
+		return QUICK;
+	}
+
+	// Counts i with a[i] < a[i - 1], stopping as soon as the count exceeds max
+	@SuppressWarnings("rawtypes")
+	private static int descents(Comparable[] a, int max)
+	{
+		int descents = 0;
+		for (int i = 1; i < a.length; i++)
+		{
+			if (less(a[i], a[i - 1]) && ++descents > max)
+				break;
+		}
+		return descents;
+	}
+
+	// Are there at most m / DISTINCT_RATIO distinct keys among m evenly
+	// spaced elements?
+	@SuppressWarnings("rawtypes")
+	private static boolean fewDistinct(Comparable[] a)
+	{
+		int m = Math.min(SAMPLE_SIZE, a.length);
+		Comparable[] sample = new Comparable[m];
+		for (int i = 0; i < m; i++)
+			sample[i] = a[(int) ((long) i * a.length / m)];
+		Arrays.sort(sample);
+
+		int distinct = 1;
+		for (int i = 1; i < m; i++)
+		{
+			if (less(sample[i - 1], sample[i]))
+				distinct++;
+		}
+		return distinct * DISTINCT_RATIO <= m;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static boolean less(Comparable v, Comparable w)
+	{
+		return v.compareTo(w) < 0;
+	}
+}
@@ -0,0 +1,29 @@
+package sortingalgorithm;
+
+/**
+ * A sort of Comparable arrays into their natural order, looked up by name
+ * through {@link SortAlgorithms}.
+ */
+public interface SortAlgorithm
+{
+
+	/**
+	 * Returns the name the algorithm is registered under.
+	 */
+	String name();
+
+	/**
+	 * Returns true if the running time of the algorithm grows quadratically
+	 * with the length of a random input.
+	 */
+	boolean isQuadratic();
+
+	/**
+	 * Rearranges the array in ascending order, using the natural order.
+	 *
+	 * @param a
+	 *            the array to be sorted
+	 */
+	@SuppressWarnings("rawtypes")
+	void sort(Comparable[] a);
+}
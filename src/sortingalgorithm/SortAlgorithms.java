@@ -0,0 +1,248 @@
+package sortingalgorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registry of the sorts of this package by name. Every class of the package
+ * is registered under its class name, <tt>System</tt> under
+ * {@link Arrays#sort(Object[])} and <tt>Adaptive</tt> under
+ * {@link AdaptiveSort}. Names are matched ignoring case.
+ */
+public final class SortAlgorithms
+{
+
+	private static final Map<String, SortAlgorithm> ALGORITHMS = new LinkedHashMap<String, SortAlgorithm>();
+
+	// This class should not be instantiated.
+	private SortAlgorithms()
+	{
+	}
+
+	private static abstract class Builtin implements SortAlgorithm
+	{
+		private final String name;
+		private final boolean quadratic;
+
+		Builtin(String name, boolean quadratic)
+		{
+			this.name = name;
+			this.quadratic = quadratic;
+		}
+
+		@Override
+		public String name()
+		{
+			return name;
+		}
+
+		@Override
+		public boolean isQuadratic()
+		{
+			return quadratic;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name;
+		}
+	}
+
+	static
+	{
+		register(new Builtin("Insertion", true)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Insertion.sort(a);
+			}
+		});
+		register(new Builtin("InsertionX", true)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				InsertionX.sort(a);
+			}
+		});
+		register(new Builtin("BinaryInsertion", true)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				BinaryInsertion.sort(a);
+			}
+		});
+		register(new Builtin("Selection", true)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Selection.sort(a);
+			}
+		});
+		register(new Builtin("Bubble", true)
+		{
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Bubble.sort(a);
+			}
+		});
+		register(new Builtin("Shell", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Shell.sort(a);
+			}
+		});
+		register(new Builtin("Merge", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Merge.sort(a);
+			}
+		});
+		register(new Builtin("MergeX", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				MergeX.sort(a);
+			}
+		});
+		register(new Builtin("MergeBU", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				MergeBU.sort(a);
+			}
+		});
+		register(new Builtin("Quick", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Quick.sort(a);
+			}
+		});
+		register(new Builtin("Quick3Way", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Quick3Way.sort(a);
+			}
+		});
+		register(new Builtin("QuickX", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				QuickX.sort(a);
+			}
+		});
+		register(new Builtin("QuickDualPivot", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				QuickDualPivot.sort(a);
+			}
+		});
+		register(new Builtin("Heap", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Heap.sort(a);
+			}
+		});
+		register(new Builtin("System", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				Arrays.sort(a);
+			}
+		});
+		register(new Builtin("Adaptive", false)
+		{
+			@SuppressWarnings("rawtypes")
+			@Override
+			public void sort(Comparable[] a)
+			{
+				AdaptiveSort.sort(a);
+			}
+		});
+	}
+
+	private static String key(String name)
+	{
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Registers algorithm under its name.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if an algorithm of the same name is already registered
+	 */
+	public static synchronized void register(SortAlgorithm algorithm)
+	{
+		String key = key(algorithm.name());
+		if (ALGORITHMS.containsKey(key))
+		{
+			throw new IllegalArgumentException("Duplicate algorithm: " + algorithm.name());
+		}
+		ALGORITHMS.put(key, algorithm);
+	}
+
+	/**
+	 * Returns the algorithm registered under name.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if no such algorithm is registered
+	 */
+	public static synchronized SortAlgorithm get(String name)
+	{
+		SortAlgorithm algorithm = ALGORITHMS.get(key(name));
+		if (algorithm == null)
+		{
+			throw new IllegalArgumentException("Invalid algorithm: " + name);
+		}
+		return algorithm;
+	}
+
+	/**
+	 * Returns the registered algorithms in registration order.
+	 */
+	public static synchronized List<SortAlgorithm> all()
+	{
+		return new ArrayList<SortAlgorithm>(ALGORITHMS.values());
+	}
+}
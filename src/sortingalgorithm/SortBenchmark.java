@@ -0,0 +1,317 @@
+package sortingalgorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import sorting.ByteArray;
+import sorting.CharArray;
+import sorting.DoubleArray;
+import sorting.FloatArray;
+import sorting.IntegerArray;
+import sorting.LongArray;
+import sorting.ObjectArray;
+import sorting.ShortArray;
+import util.Benchmark;
+
+/**
+ * Benchmarks every sort registered with {@link SortAlgorithms} and every
+ * sort of the sorting package on random, sorted, reverse, sawtooth,
+ * many-duplicates and organ-pipe inputs of several sizes, reporting
+ * throughput, latency percentiles and allocated bytes per sort (see
+ * {@link Benchmark}). Every sort works on a fresh copy of the same input,
+ * made outside the timed section.
+ * <p>
+ * Usage: <tt>SortBenchmark [-n 16,1000,...] [-a Quick,IntegerArray,...]
+ * [-d RANDOM,SORTED,...] [-w warmup] [-i iterations] [-t millis]</tt>
+ */
+public class SortBenchmark
+{
+
+	/**
+	 * Input distributions, generated as int keys and converted to the element
+	 * type of each sort. byte, short and char sorts see the keys truncated.
+	 */
+	public enum Distribution
+	{
+		RANDOM, SORTED, REVERSE, SAWTOOTH, MANY_DUPLICATES, ORGAN_PIPE;
+
+		int[] keys(int n, Random random)
+		{
+			int[] a = new int[n];
+			int period = Math.max(1, (int) Math.sqrt(n));
+			for (int i = 0; i < n; i++)
+			{
+				switch (this)
+				{
+					case RANDOM:
+						a[i] = random.nextInt();
+						break;
+					case SORTED:
+						a[i] = i;
+						break;
+					case REVERSE:
+						a[i] = n - i;
+						break;
+					case SAWTOOTH:
+						a[i] = i % period;
+						break;
+					case MANY_DUPLICATES:
+						a[i] = random.nextInt(16);
+						break;
+					case ORGAN_PIPE:
+						a[i] = (i < n / 2) ? i : n - i;
+						break;
+				}
+			}
+			return a;
+		}
+	}
+
+	// Element types of the sorts
+	private enum Input
+	{
+		BOXED, INT, LONG, DOUBLE, FLOAT, SHORT, CHAR, BYTE;
+
+		Object from(int[] keys)
+		{
+			int n = keys.length;
+			switch (this)
+			{
+				case BOXED:
+				{
+					Double[] a = new Double[n];
+					for (int i = 0; i < n; i++)
+						a[i] = (double) keys[i];
+					return a;
+				}
+				case INT:
+					return keys.clone();
+				case LONG:
+				{
+					long[] a = new long[n];
+					for (int i = 0; i < n; i++)
+						a[i] = (long) keys[i] << 16;
+					return a;
+				}
+				case DOUBLE:
+				{
+					double[] a = new double[n];
+					for (int i = 0; i < n; i++)
+						a[i] = keys[i] / 7.0;
+					return a;
+				}
+				case FLOAT:
+				{
+					float[] a = new float[n];
+					for (int i = 0; i < n; i++)
+						a[i] = keys[i] / 7.0f;
+					return a;
+				}
+				case SHORT:
+				{
+					short[] a = new short[n];
+					for (int i = 0; i < n; i++)
+						a[i] = (short) keys[i];
+					return a;
+				}
+				case CHAR:
+				{
+					char[] a = new char[n];
+					for (int i = 0; i < n; i++)
+						a[i] = (char) keys[i];
+					return a;
+				}
+				default:
+				{
+					byte[] a = new byte[n];
+					for (int i = 0; i < n; i++)
+						a[i] = (byte) keys[i];
+					return a;
+				}
+			}
+		}
+	}
+
+	// Quadratic sorts are skipped above this size
+	private static final int QUADRATIC_LIMIT = 1 << 16;
+
+	private static abstract class Case
+	{
+		final String name;
+		final Input input;
+		final boolean quadratic;
+
+		Case(String name, Input input, boolean quadratic)
+		{
+			this.name = name;
+			this.input = input;
+			this.quadratic = quadratic;
+		}
+
+		abstract void sort(Object a);
+	}
+
+	private static List<Case> cases()
+	{
+		List<Case> cases = new ArrayList<Case>();
+		for (final SortAlgorithm algorithm : SortAlgorithms.all())
+		{
+			cases.add(new Case(algorithm.name(), Input.BOXED, algorithm.isQuadratic())
+			{
+				@SuppressWarnings("rawtypes")
+				void sort(Object a)
+				{
+					algorithm.sort((Comparable[]) a);
+				}
+			});
+		}
+		cases.add(new Case("ObjectArray", Input.BOXED, false)
+		{
+			void sort(Object a)
+			{
+				ObjectArray.sort((Object[]) a);
+			}
+		});
+		cases.add(new Case("IntegerArray", Input.INT, false)
+		{
+			void sort(Object a)
+			{
+				IntegerArray.sort((int[]) a);
+			}
+		});
+		cases.add(new Case("IntegerArray.parallel", Input.INT, false)
+		{
+			void sort(Object a)
+			{
+				IntegerArray.parallelSort((int[]) a);
+			}
+		});
+		cases.add(new Case("LongArray", Input.LONG, false)
+		{
+			void sort(Object a)
+			{
+				LongArray.sort((long[]) a);
+			}
+		});
+		cases.add(new Case("DoubleArray", Input.DOUBLE, false)
+		{
+			void sort(Object a)
+			{
+				DoubleArray.sort((double[]) a);
+			}
+		});
+		cases.add(new Case("FloatArray", Input.FLOAT, false)
+		{
+			void sort(Object a)
+			{
+				FloatArray.sort((float[]) a);
+			}
+		});
+		cases.add(new Case("ShortArray", Input.SHORT, false)
+		{
+			void sort(Object a)
+			{
+				ShortArray.sort((short[]) a);
+			}
+		});
+		cases.add(new Case("CharArray", Input.CHAR, false)
+		{
+			void sort(Object a)
+			{
+				CharArray.sort((char[]) a);
+			}
+		});
+		cases.add(new Case("ByteArray", Input.BYTE, false)
+		{
+			void sort(Object a)
+			{
+				ByteArray.sort((byte[]) a);
+			}
+		});
+		return cases;
+	}
+
+	private static Benchmark.Operation operation(final Case c, final Object input)
+	{
+		final Object work = copy(input);
+		final int n = java.lang.reflect.Array.getLength(input);
+		return new Benchmark.Operation()
+		{
+			@Override
+			public void setup()
+			{
+				System.arraycopy(input, 0, work, 0, n);
+			}
+
+			@Override
+			public long run()
+			{
+				c.sort(work);
+				return n;
+			}
+		};
+	}
+
+	private static Object copy(Object array)
+	{
+		int n = java.lang.reflect.Array.getLength(array);
+		Object copy = java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), n);
+		System.arraycopy(array, 0, copy, 0, n);
+		return copy;
+	}
+
+	public static void main(String[] args)
+	{
+		int[] sizes = { 16, 1000, 100000, 10000000 };
+		List<String> algorithms = null;
+		List<Distribution> distributions = Arrays.asList(Distribution.values());
+		int warmup = 5, iterations = 5, millis = 500;
+
+		for (int i = 0; i + 1 < args.length; i += 2)
+		{
+			String value = args[i + 1];
+			if (args[i].equals("-n"))
+			{
+				String[] parts = value.split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					sizes[j] = Integer.parseInt(parts[j]);
+			}
+			else if (args[i].equals("-a"))
+				algorithms = Arrays.asList(value.split(","));
+			else if (args[i].equals("-d"))
+			{
+				distributions = new ArrayList<Distribution>();
+				for (String d : value.split(","))
+					distributions.add(Distribution.valueOf(d));
+			}
+			else if (args[i].equals("-w"))
+				warmup = Integer.parseInt(value);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(value);
+			else if (args[i].equals("-t"))
+				millis = Integer.parseInt(value);
+			else
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+		}
+
+		Benchmark benchmark = new Benchmark(warmup, iterations, millis);
+		List<Case> cases = cases();
+		for (Distribution d : distributions)
+		{
+			for (int n : sizes)
+			{
+				int[] keys = d.keys(n, new Random(n));
+				for (Case c : cases)
+				{
+					if ((algorithms != null && !algorithms.contains(c.name)) || (c.quadratic && n > QUADRATIC_LIMIT))
+						continue;
+					Benchmark.Result r = benchmark.measure(operation(c, c.input.from(keys)));
+					System.out.printf("%-16s %9d  %-22s %s%n", d, n, c.name, r);
+				}
+			}
+		}
+	}
+}
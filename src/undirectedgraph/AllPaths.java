@@ -1,7 +1,7 @@
 package undirectedgraph;
 
+import datastructure.ArrayStack;
 import datastructure.HashMap;
-import datastructure.Stack;
 
 public class AllPaths<T>
 {
@@ -9,7 +9,7 @@ public class AllPaths<T>
 	private HashMap<T, Boolean> onPath;
 
 	// the current path
-	private Stack<T> path;
+	private ArrayStack<T> path;
 
 	// number of simple path
 	private int numberOfPaths;
@@ -27,7 +27,7 @@ public class AllPaths<T>
 			onPath.put(vertex, false);
 		}
 		
-		path = new Stack<T>();
+		path = new ArrayStack<T>();
 		
 		dfs(G, s, t);
 	}
@@ -68,7 +68,7 @@ public class AllPaths<T>
 	// this implementation just prints the path to standard output
 	private void processCurrentPath()
 	{
-		Stack<T> reverse = new Stack<T>();
+		ArrayStack<T> reverse = new ArrayStack<T>();
 		
 		Object[] pathArr = path.toArray();
 		
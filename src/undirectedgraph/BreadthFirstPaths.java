@@ -1,8 +1,8 @@
 package undirectedgraph;
 
+import datastructure.ArrayStack;
 import datastructure.HashMap;
 import datastructure.Queue;
-import datastructure.Stack;
 
 /**
  * The <tt>BreadthFirstPaths</tt> class represents a data type for finding
@@ -178,11 +178,11 @@ public class BreadthFirstPaths<T>
 	 *            the vertex
 	 * @return the sequence of vertices on a shortest path, as an Iterable
 	 */
-	public Stack<T> pathTo(T vertex)
+	public ArrayStack<T> pathTo(T vertex)
 	{
 		if (!hasPathTo(vertex))
 			return null;
-		Stack<T> path = new Stack<T>();
+		ArrayStack<T> path = new ArrayStack<T>();
 		T x;
 		for (x = vertex; distTo.get(x) != null; x = edgeTo.get(x))
 			path.push(x);
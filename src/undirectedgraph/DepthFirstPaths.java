@@ -1,7 +1,7 @@
 package undirectedgraph;
 
+import datastructure.ArrayStack;
 import datastructure.HashMap;
-import datastructure.Stack;
 
 /**
  * The <tt>DepthFirstPaths</tt> class represents a data type for finding paths
@@ -73,12 +73,12 @@ public class DepthFirstPaths<T>
 		return connected.get(vertex);
 	}
 
-	public Stack<T> getPathTo(T vertex)
+	public ArrayStack<T> getPathTo(T vertex)
 	{
 		if (!hasPathTo(vertex))
 			return null;
 
-		Stack<T> path = new Stack<T>();
+		ArrayStack<T> path = new ArrayStack<T>();
 		for (T x = vertex; x != sourceVertex; x = edgeTo.get(x))
 			path.push(x);
 
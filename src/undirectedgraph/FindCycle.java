@@ -5,14 +5,14 @@ import java.io.FileNotFoundException;
 import java.util.Scanner;
 import java.util.StringTokenizer;
 
+import datastructure.ArrayStack;
 import datastructure.HashMap;
-import datastructure.Stack;
 
 public class FindCycle<T>
 {
 	private HashMap<T, Boolean> marked;
 	private HashMap<T, T> edgeTo;
-	private Stack<T> cycle;
+	private ArrayStack<T> cycle;
 
 	private Object[] vertices;
 
@@ -67,7 +67,7 @@ public class FindCycle<T>
 				T w = (T) obj;
 				if (v.equals(w))
 				{
-					cycle = new Stack<T>();
+					cycle = new ArrayStack<T>();
 					cycle.push(v);
 					cycle.push(v);
 					return true;
@@ -104,7 +104,7 @@ public class FindCycle<T>
 
 				if (marked.get(w))
 				{
-					cycle = new Stack<T>();
+					cycle = new ArrayStack<T>();
 					cycle.push(v);
 					cycle.push(w);
 					cycle.push(v);
@@ -140,7 +140,7 @@ public class FindCycle<T>
 	 * @return a cycle if the graph <tt>G</tt> has a cycle, and <tt>null</tt>
 	 *         otherwise
 	 */
-	public Stack<T> getCycle()
+	public ArrayStack<T> getCycle()
 	{
 		return cycle;
 	}
@@ -166,7 +166,7 @@ public class FindCycle<T>
 			// check for cycle (but disregard reverse of edge leading to v)
 			else if (!w.equals(u))
 			{
-				cycle = new Stack<T>();
+				cycle = new ArrayStack<T>();
 				for (T x = v; !x.equals(w); x = edgeTo.get(x))
 				{
 					cycle.push(x);
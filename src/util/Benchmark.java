@@ -0,0 +1,238 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * A small micro-benchmark harness. Each measurement runs warmup iterations
+ * to let the JIT compile the code, then timed iterations that record the
+ * latency of every single operation and the bytes it allocated. Every
+ * iteration repeats the operation for at least the configured time. Results
+ * of the operations are folded into a volatile sink so that the JIT cannot
+ * drop the work as dead code.
+ * <p>
+ * Allocation is read from the HotSpot per-thread allocation counter and is
+ * reported as NaN on JVMs that do not provide it.
+ */
+public class Benchmark
+{
+
+	/**
+	 * The code under measurement.
+	 */
+	public static abstract class Operation
+	{
+		/**
+		 * Prepares the next call of {@link #run()}, e.g. by refilling the input
+		 * that run() modifies. Not timed.
+		 */
+		public void setup()
+		{
+		}
+
+		/**
+		 * Runs the measured operation once and returns a value derived from
+		 * its result.
+		 */
+		public abstract long run();
+	}
+
+	// Latencies kept per measurement; later operations are still counted
+	private static final int MAX_SAMPLES = 1 << 20;
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private static volatile long sink;
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final long iterationNanos;
+	private final long allocationOverhead;
+
+	public Benchmark(int warmupIterations, int measurementIterations, int iterationMillis)
+	{
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanos = iterationMillis * 1000000L;
+		this.allocationOverhead = allocationOverhead();
+	}
+
+	private static com.sun.management.ThreadMXBean threads()
+	{
+		try
+		{
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			if (threads.isThreadAllocatedMemorySupported())
+			{
+				threads.setThreadAllocatedMemoryEnabled(true);
+				return threads;
+			}
+		}
+		catch (ClassCastException e)
+		{
+			// not a HotSpot JVM
+		}
+		catch (UnsupportedOperationException e)
+		{
+			// allocation counting cannot be enabled
+		}
+		return null;
+	}
+
+	private static long allocatedBytes()
+	{
+		return (THREADS == null) ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// Bytes reported between two back-to-back reads of the counter
+	private static long allocationOverhead()
+	{
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; ++i)
+		{
+			long a0 = allocatedBytes();
+			long a1 = allocatedBytes();
+			min = Math.min(min, a1 - a0);
+		}
+		return min;
+	}
+
+	/**
+	 * Warms up and measures op.
+	 */
+	public Result measure(Operation op)
+	{
+		for (int i = 0; i < warmupIterations; ++i)
+		{
+			iterate(op, null);
+		}
+		Result result = new Result();
+		for (int i = 0; i < measurementIterations; ++i)
+		{
+			iterate(op, result);
+		}
+		result.complete();
+		return result;
+	}
+
+	private void iterate(Operation op, Result result)
+	{
+		long acc = 0;
+		long deadline = System.nanoTime() + iterationNanos;
+		long t1;
+		do
+		{
+			op.setup();
+			long a0 = allocatedBytes();
+			long t0 = System.nanoTime();
+			acc += op.run();
+			t1 = System.nanoTime();
+			long a1 = allocatedBytes();
+			if (result != null)
+			{
+				result.add(t1 - t0, a1 - a0 - allocationOverhead);
+			}
+		}
+		while (t1 < deadline);
+		sink += acc;
+	}
+
+	/**
+	 * Throughput, latency distribution and allocation of one measurement.
+	 */
+	public static final class Result
+	{
+
+		private long operations;
+		private long totalNanos;
+		private long totalBytes;
+		private long[] latencies = new long[1024];
+		private int samples;
+
+		private Result()
+		{
+		}
+
+		private void add(long nanos, long bytes)
+		{
+			operations++;
+			totalNanos += nanos;
+			totalBytes += Math.max(0, bytes);
+			if (samples < MAX_SAMPLES)
+			{
+				if (samples == latencies.length)
+				{
+					latencies = Arrays.copyOf(latencies, samples << 1);
+				}
+				latencies[samples++] = nanos;
+			}
+		}
+
+		private void complete()
+		{
+			Arrays.sort(latencies, 0, samples);
+		}
+
+		public long operations()
+		{
+			return operations;
+		}
+
+		/**
+		 * Returns operations per second of measured time.
+		 */
+		public double throughput()
+		{
+			return (totalNanos == 0) ? 0 : operations * 1e9 / totalNanos;
+		}
+
+		public double meanNanos()
+		{
+			return (operations == 0) ? 0 : (double) totalNanos / operations;
+		}
+
+		/**
+		 * Returns the latency in nanoseconds below which the given fraction of
+		 * the sampled operations completed, e.g. 0.99 for the 99th percentile.
+		 */
+		public long percentileNanos(double p)
+		{
+			if (samples == 0)
+			{
+				return 0;
+			}
+			int i = (int) Math.ceil(p * samples) - 1;
+			return latencies[Math.max(0, Math.min(samples - 1, i))];
+		}
+
+		/**
+		 * Returns the average bytes allocated per operation, NaN if the JVM
+		 * cannot count allocations.
+		 */
+		public double bytesPerOperation()
+		{
+			return (THREADS == null || operations == 0) ? Double.NaN : (double) totalBytes / operations;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%14.1f ops/s  mean %s  p50 %s  p90 %s  p99 %s  p99.9 %s  max %s  %12.1f B/op",
+					throughput(), format(meanNanos()), format(percentileNanos(0.5)), format(percentileNanos(0.9)),
+					format(percentileNanos(0.99)), format(percentileNanos(0.999)), format(percentileNanos(1.0)),
+					bytesPerOperation());
+		}
+
+		private static String format(double nanos)
+		{
+			if (nanos < 1e4)
+				return String.format("%7.0fns", nanos);
+			if (nanos < 1e7)
+				return String.format("%7.1fus", nanos / 1e3);
+			if (nanos < 1e10)
+				return String.format("%7.1fms", nanos / 1e6);
+			return String.format("%8.2fs", nanos / 1e9);
+		}
+	}
+}